@@ -0,0 +1,259 @@
+package bench;
+
+import java.io.*;
+import java.util.*;
+
+import sokoban.Cell;
+import sokoban.Direction;
+import sokoban.Level;
+import sokoban.Sokoban;
+
+/**
+ * Micro-benchmarks for the core game engine, run over a representative subset of
+ * the bundled screens (plus a made-up level packed with boxes for the stuck checks).
+ *
+ * Usage: java bench.EngineBench [-w warmups] [-i iterations] [-t ms] [-f filter] [-o csv] [screen numbers]
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class EngineBench {
+	/**
+	 * Constructor
+	 *
+	 * @param harness the runner to time the benchmarks with (cannot be null)
+	 * @param filter only run benchmarks whose name contains this (empty for all)
+	 */
+	public EngineBench(Harness harness, String filter) {
+		if (harness == null)
+			throw new IllegalArgumentException("harness cannot be null");
+		this.harness = harness;
+		this.filter  = (filter == null) ? "" : filter;
+	}
+
+	/**
+	 * Run every benchmark on one level
+	 *
+	 * @param param the name the level is reported under
+	 * @param screen the level as a screen string
+	 */
+	public void runAll(String param, String screen) {
+		benchParse(param, screen);
+		benchCanMove(param, screen);
+		benchLegalMoves(param, screen);
+		benchMoveUndoClear(param, screen);
+		benchToString(param, screen);
+		benchStuckSafe(param, screen);
+	}
+
+	/**
+	 * Parsing a screen string into a puzzle
+	 *
+	 * @param param the level name
+	 * @param screen the level as a screen string
+	 */
+	private void benchParse(String param, String screen) {
+		if (!selected("parse"))
+			return;
+		harness.run("parse", param, () -> new Sokoban(screen).getNumRows());
+	}
+
+	/**
+	 * Finding the directions the actor can move in
+	 *
+	 * @param param the level name
+	 * @param screen the level as a screen string
+	 */
+	private void benchCanMove(String param, String screen) {
+		if (!selected("canMove"))
+			return;
+		Sokoban puzzle = new Sokoban(screen);
+		harness.run("canMove", param, () -> puzzle.canMove().size());
+	}
+
+	/**
+	 * Finding the directions the actor can move in, as a bitmask
+	 *
+	 * @param param the level name
+	 * @param screen the level as a screen string
+	 */
+	private void benchLegalMoves(String param, String screen) {
+		if (!selected("legalMoves"))
+			return;
+		Sokoban puzzle = new Sokoban(screen);
+		harness.run("legalMoves", param, () -> puzzle.legalMoves());
+	}
+
+	/**
+	 * Playing a fixed random walk, undoing part of it, then restarting
+	 *
+	 * @param param the level name
+	 * @param screen the level as a screen string
+	 */
+	private void benchMoveUndoClear(String param, String screen) {
+		if (!selected("moveUndoClear"))
+			return;
+		Sokoban     puzzle = new Sokoban(screen);
+		Direction[] walk   = randomWalk(new Sokoban(screen), WALK_LENGTH);
+		harness.run("moveUndoClear", param, () -> {
+			for (Direction dir : walk)
+				puzzle.move(dir);
+			for (int i=0; i<walk.length/2; i++)
+				puzzle.undo();
+			puzzle.clear();
+			return puzzle.getActorIndex();
+		});
+	}
+
+	/**
+	 * Rendering the puzzle as a screen string
+	 *
+	 * @param param the level name
+	 * @param screen the level as a screen string
+	 */
+	private void benchToString(String param, String screen) {
+		if (!selected("toString"))
+			return;
+		Sokoban puzzle = new Sokoban(screen);
+		harness.run("toString", param, () -> puzzle.toString().length());
+	}
+
+	/**
+	 * Checking every box push that passes the wall checks for getting stuck against
+	 * other boxes (the checks {@link sokoban.Box#isStuckSafe(Direction)} is asked to make)
+	 *
+	 * @param param the level name
+	 * @param screen the level as a screen string
+	 */
+	private void benchStuckSafe(String param, String screen) {
+		if (!selected("isStuckSafe"))
+			return;
+		Sokoban               puzzle = new Sokoban(screen);
+		Level                 level  = puzzle.getLevel();
+		int[]                 boxes  = puzzle.getBoxIndices();
+		ArrayList<Cell>       cells  = new ArrayList<Cell>();
+		ArrayList<Direction>  dirs   = new ArrayList<Direction>();
+		for (int box : boxes) {
+			for (Direction dir : Direction.values()) {
+				int next = level.step(box, dir);
+				if ((next < 0) || level.isWall(next) || level.isDead(next) || (next == puzzle.getActorIndex())
+						|| (Arrays.binarySearch(boxes, next) >= 0))
+					continue;
+				char display = level.isTarget(box) ? Sokoban.TARGET_BOX : Sokoban.BOX;
+				cells.add(new Cell(display, puzzle, level.rowOf(box), level.colOf(box)));
+				dirs.add(dir);
+			}
+		}
+		if (cells.isEmpty())
+			return;
+		Cell[]      cellArr = cells.toArray(new Cell[0]);
+		Direction[] dirArr  = dirs.toArray(new Direction[0]);
+		harness.run("isStuckSafe", param + "/" + cellArr.length, () -> {
+			long safe = 0;
+			for (int i=0; i<cellArr.length; i++)
+				if (cellArr[i].isStuckSafe(dirArr[i]))
+					safe++;
+			return safe;
+		});
+	}
+
+	/**
+	 * Is a benchmark selected by the filter?
+	 *
+	 * @param name the benchmark name
+	 * @return should the benchmark run?
+	 */
+	private boolean selected(String name) {
+		return name.contains(filter);
+	}
+
+	/**
+	 * Make a reproducible random walk of legal moves from the start of a puzzle
+	 *
+	 * @param puzzle the puzzle to walk in (moved along the walk)
+	 * @param length the maximum number of moves
+	 * @return the moves
+	 */
+	private static Direction[] randomWalk(Sokoban puzzle, int length) {
+		Random               rnd  = new Random(SEED);
+		ArrayList<Direction> walk = new ArrayList<Direction>();
+		for (int i=0; i<length; i++) {
+			Vector<Direction> choices = puzzle.canMove();
+			if (choices.isEmpty())
+				break;
+			Direction dir = choices.get(rnd.nextInt(choices.size()));
+			puzzle.move(dir);
+			walk.add(dir);
+		}
+		return walk.toArray(new Direction[0]);
+	}
+
+	/**
+	 * Main entry point for the engine benchmarks
+	 *
+	 * @param args the command line options (see the class comment)
+	 */
+	public static void main(String[] args) {
+		int    warmups    = 3;
+		int    iterations = 5;
+		long   iterMillis = 500;
+		String filter     = "";
+		String csvFile    = null;
+		ArrayList<Integer> screens = new ArrayList<Integer>();
+		try {
+			for (int i=0; i<args.length; i++) {
+				switch (args[i]) {
+					case "-w": warmups    = Integer.parseInt(args[++i]); break;
+					case "-i": iterations = Integer.parseInt(args[++i]); break;
+					case "-t": iterMillis = Long.parseLong(args[++i]);   break;
+					case "-f": filter     = args[++i];                   break;
+					case "-o": csvFile    = args[++i];                   break;
+					default:   screens.add(Integer.parseInt(args[i]));   break;
+				}
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Usage: java bench.EngineBench [-w warmups] [-i iterations] [-t ms] [-f filter] [-o csv] [screen numbers]");
+			System.exit(1);
+		}
+		if (screens.isEmpty())
+			screens.addAll(Arrays.asList(DEFAULT_SCREENS));
+
+		Harness     harness = new Harness(warmups, iterations, iterMillis);
+		EngineBench bench   = new EngineBench(harness, filter);
+		String      workDir = System.getProperty("user.dir");
+		harness.header();
+		for (int num : screens)
+			bench.runAll("screen." + num, Sokoban.fileAsString(new File(workDir + "/screens/screen." + num)));
+		bench.runAll("cluster", CLUSTER);
+
+		if (csvFile != null) {
+			try (PrintStream out = new PrintStream(new FileOutputStream(csvFile))) {
+				for (String line : harness.csv())
+					out.println(line);
+			} catch (FileNotFoundException e) {
+				System.out.println("Cannot write " + csvFile);
+			}
+		}
+		System.out.println("(sink " + Harness.sink() + ")");
+	}
+
+	private final Harness harness;
+	private final String  filter;
+
+	private static final int       WALK_LENGTH     = 200;
+	private static final long      SEED            = 20261018L;
+	private static final Integer[] DEFAULT_SCREENS = { 1, 10, 25, 50, 75, 90 };
+
+	// a level packed with boxes, so most pushes have to look at their neighbours
+	private static final String CLUSTER = String.join(
+		"\n",
+		"############",
+		"#          #",
+		"# $$$  ... #",
+		"# $ $$ ... #",
+		"# $$$  ... #",
+		"#    @     #",
+		"#          #",
+		"############"
+	);
+}
@@ -0,0 +1,136 @@
+package bench;
+
+import java.util.*;
+
+/**
+ * A small micro-benchmark runner in the style of JMH: each benchmark is run for a
+ * number of timed warm-up iterations (results thrown away, giving the JIT a chance
+ * to compile the code) and then for a number of timed measurement iterations,
+ * reporting the mean and standard deviation of the time per operation.
+ * Every operation returns a value that is folded into a sink, so the JIT cannot
+ * discard the work as dead code.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class Harness {
+	/**
+	 * A benchmarked operation
+	 */
+	public interface Op {
+		/**
+		 * Run the operation once
+		 *
+		 * @return any value depending on the work done
+		 */
+		long run();
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param warmups the number of warm-up iterations
+	 * @param iterations the number of measurement iterations (at least 1)
+	 * @param iterMillis the length of each iteration in milliseconds (at least 1)
+	 */
+	public Harness(int warmups, int iterations, long iterMillis) {
+		if (warmups < 0)
+			throw new IllegalArgumentException("warmups cannot be negative");
+		if (iterations < 1)
+			throw new IllegalArgumentException("iterations must be at least 1");
+		if (iterMillis < 1)
+			throw new IllegalArgumentException("iterMillis must be at least 1");
+		this.warmups    = warmups;
+		this.iterations = iterations;
+		this.iterMillis = iterMillis;
+	}
+
+	/**
+	 * Run a benchmark and print its result
+	 *
+	 * @param name the benchmark name
+	 * @param param the parameter it is run with
+	 * @param op the operation to time
+	 * @return the mean time per operation in nanoseconds
+	 */
+	public double run(String name, String param, Op op) {
+		for (int i=0; i<warmups; i++)
+			iteration(op);
+		double[] times = new double[iterations];
+		for (int i=0; i<iterations; i++)
+			times[i] = iteration(op);
+		double mean = 0;
+		for (double t : times)
+			mean += t;
+		mean /= iterations;
+		double var = 0;
+		for (double t : times)
+			var += (t - mean) * (t - mean);
+		double sd = (iterations > 1) ? Math.sqrt(var / (iterations - 1)) : 0;
+		String row = String.format("%-22s %-12s %14.1f %12.1f", name, param, mean, sd);
+		System.out.println(row);
+		rows.add(String.format("%s,%s,%.1f,%.1f", name, param, mean, sd));
+		return mean;
+	}
+
+	/**
+	 * Print the column headings
+	 */
+	public void header() {
+		System.out.println(String.format("%-22s %-12s %14s %12s", "benchmark", "param", "ns/op", "stddev"));
+	}
+
+	/**
+	 * Gets the results so far as CSV lines (with a heading line first)
+	 *
+	 * @return the CSV lines
+	 */
+	public List<String> csv() {
+		ArrayList<String> lines = new ArrayList<String>();
+		lines.add("benchmark,param,ns_per_op,stddev");
+		lines.addAll(rows);
+		return lines;
+	}
+
+	/**
+	 * Gets the sink (only so that it is used)
+	 *
+	 * @return the sink
+	 */
+	public static long sink() {
+		return sink;
+	}
+
+	/**
+	 * Run one timed iteration, checking the clock in batches so that reading it
+	 * does not dominate very short operations
+	 *
+	 * @param op the operation to time
+	 * @return the time per operation in nanoseconds
+	 */
+	private double iteration(Op op) {
+		long deadline = System.nanoTime() + iterMillis * 1000000L;
+		long started  = System.nanoTime();
+		long ops      = 0;
+		long batch    = 1;
+		long acc      = 0;
+		long now;
+		do {
+			for (long i=0; i<batch; i++)
+				acc += op.run();
+			ops += batch;
+			if (batch < 1024)
+				batch <<= 1;
+			now = System.nanoTime();
+		} while (now < deadline);
+		sink += acc;
+		return (double) (now - started) / ops;
+	}
+
+	private final int               warmups;
+	private final int               iterations;
+	private final long              iterMillis;
+	private final ArrayList<String> rows = new ArrayList<String>();
+
+	private static volatile long sink = 0;
+}
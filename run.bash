@@ -22,6 +22,34 @@ javac --class-path $CLASSPATH ./test/*.java -Xdiags:verbose
 
 # java sokoban.TextUI
 # java sokoban.GUI
-java sokoban.PlaySokoban
+
+# ./run.bash batch [options]  solves every screen headless and writes batch-report.csv/.json
+# ./run.bash bench [options]  runs the engine micro-benchmarks
+# ./run.bash playout [options] screen  runs random playouts of a screen headless
+# ./run.bash patterns [-p pack] screen...  builds the pattern database kept next to each screen (or pack level)
+# ./run.bash script [-m moves | -f file] screen  plays a LURD/NSEW move script, printing only the result
+# ./run.bash [-a] [-ansi] [-r] [pack.sok]  plays, optionally autosaving (-a), drawing the text UI
+#     with ANSI redraws (-ansi), with a random computer player (-r) and from the levels of a
+#     .sok/.xsb level pack
+if [ "$1" == "batch" ]; then
+	shift
+	java sokoban.BatchSolve "$@"
+elif [ "$1" == "playout" ]; then
+	shift
+	java sokoban.PlayoutEngine "$@"
+elif [ "$1" == "patterns" ]; then
+	shift
+	java sokoban.PatternDatabase "$@"
+elif [ "$1" == "script" ]; then
+	shift
+	java sokoban.TUI "$@"
+elif [ "$1" == "bench" ]; then
+	shift
+	rm -f ./bench/*.class
+	javac --class-path $CLASSPATH ./bench/*.java -Xdiags:verbose
+	java bench.EngineBench "$@"
+else
+	java sokoban.PlaySokoban "$@"
+fi
 
 # java org.junit.runner.JUnitCore test.TestTextUI #junit4
@@ -0,0 +1,186 @@
+package sokoban;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Draws a Sokoban puzzle on an ANSI terminal, redrawing only what changes.
+ * The whole board and menu are drawn once (and again only for a new puzzle).
+ * After that the renderer observes the puzzle, notes each cell it reports as
+ * changed, and on the next frame moves the cursor to just those cells and
+ * rewrites them, skipping any that are back to what is already on screen.
+ * Messages and the prompt go in the area below the menu, which is cleared
+ * before each command. Each frame is built in memory and sent with a single write.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+@SuppressWarnings("deprecation")
+class AnsiRenderer implements Observer {
+	/**
+	 * Constructor
+	 *
+	 * @param out the terminal (cannot be null)
+	 */
+	AnsiRenderer(PrintStream out) {
+		if (out == null)
+			throw new IllegalArgumentException("out cannot be null");
+		this.out = out;
+	}
+
+	/**
+	 * Changes the puzzle being drawn (observing the new one instead of the old one).
+	 * The next frame must be a full one.
+	 *
+	 * @param puzzle the puzzle (or null for none)
+	 */
+	void setPuzzle(Sokoban puzzle) {
+		if (this.puzzle != null)
+			this.puzzle.deleteObserver(this);
+		this.puzzle = puzzle;
+		if (puzzle != null)
+			puzzle.addObserver(this);
+		shown   = null;
+		dirty   = null;
+		changed = new int[16];
+		numChanged = 0;
+	}
+
+	/**
+	 * Note a cell the puzzle reports as changed
+	 *
+	 * @param obs the puzzle
+	 * @param arg the cell that changed
+	 */
+	@Override
+	public void update(Observable obs, Object arg) {
+		if (!(arg instanceof Cell) || (dirty == null))
+			return;
+		Cell cell = (Cell) arg;
+		int  idx  = cell.getRow() * numCols + cell.getCol();
+		if (dirty[idx])
+			return;
+		dirty[idx] = true;
+		if (numChanged == changed.length)
+			changed = Arrays.copyOf(changed, numChanged * 2);
+		changed[numChanged++] = idx;
+	}
+
+	/**
+	 * Draw a full frame: clear the screen, then draw the board, the menu and a status line
+	 *
+	 * @param menu the menu lines to show under the board
+	 * @param status the status line (or null for none)
+	 */
+	void drawFull(String[] menu, String status) {
+		if (puzzle == null)
+			throw new IllegalStateException("no puzzle to draw");
+		Level level = puzzle.getLevel();
+		Board board = puzzle.getBoard();
+		numCols = level.getNumCols();
+		shown   = new char[level.getNumCells()];
+		dirty   = new boolean[level.getNumCells()];
+		numChanged = 0;
+
+		StringBuffer b = new StringBuffer(shown.length + level.getNumRows() + 256);
+		b.append(HOME).append(CLEAR_SCREEN);
+		for (int row=0; row<level.getNumRows(); row++) {
+			for (int col=0; col<numCols; col++) {
+				int idx = row * numCols + col;
+				shown[idx] = Cell.displayOf(level, board, idx);
+				b.append(shown[idx]);
+			}
+			b.append('\n');
+		}
+		b.append('\n');
+		for (String line : menu)
+			b.append(line).append('\n');
+		messageRow = level.getNumRows() + menu.length + 2;
+		if (status != null)
+			b.append(status).append('\n');
+		write(b);
+	}
+
+	/**
+	 * Draw a frame of just the cells that have changed since the last frame, leaving
+	 * the cursor where it was (after any messages)
+	 *
+	 * @return the number of cells redrawn
+	 */
+	int drawChanges() {
+		if (shown == null)
+			throw new IllegalStateException("no full frame drawn yet");
+		Level        level  = puzzle.getLevel();
+		Board        board  = puzzle.getBoard();
+		StringBuffer b      = new StringBuffer(16 + numChanged * 12);
+		int          cursor = -1; // the cell the terminal cursor is on, if known
+		int          drawn  = 0;
+		b.append(SAVE_CURSOR);
+		for (int i=0; i<numChanged; i++) {
+			int idx = changed[i];
+			dirty[idx] = false;
+			char c = Cell.displayOf(level, board, idx);
+			if (c == shown[idx])
+				continue;
+			if (idx != cursor)
+				b.append(ESC).append(idx / numCols + 1).append(';').append(idx % numCols + 1).append('H');
+			b.append(c);
+			shown[idx] = c;
+			cursor = ((idx + 1) % numCols == 0) ? -1 : idx + 1;
+			drawn++;
+		}
+		numChanged = 0;
+		if (drawn == 0)
+			return 0;
+		b.append(RESTORE_CURSOR);
+		write(b);
+		return drawn;
+	}
+
+	/**
+	 * Clear the message area under the menu and put the cursor at its start
+	 */
+	void clearMessages() {
+		StringBuffer b = new StringBuffer(16);
+		b.append(ESC).append(messageRow + 1).append(";1H").append(CLEAR_BELOW);
+		write(b);
+	}
+
+	/**
+	 * Send a frame to the terminal in one write
+	 *
+	 * @param frame the frame
+	 */
+	private void write(StringBuffer frame) {
+		byte[] bytes = frame.toString().getBytes();
+		out.write(bytes, 0, bytes.length);
+		out.flush();
+		bytesWritten += bytes.length;
+	}
+
+	/**
+	 * Gets the number of bytes sent to the terminal so far
+	 *
+	 * @return the number of bytes written
+	 */
+	long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	private final PrintStream out;
+	private Sokoban   puzzle       = null;
+	private char[]    shown        = null;  // what is on screen, by cell index
+	private boolean[] dirty        = null;  // cells noted as changed since the last frame
+	private int[]     changed      = new int[16];
+	private int       numChanged   = 0;
+	private int       numCols      = 0;
+	private int       messageRow   = 0;     // first row (from 0) of the message area
+	private long      bytesWritten = 0;
+
+	private static final String ESC            = "\033[";
+	private static final String HOME           = ESC + "H";
+	private static final String CLEAR_SCREEN   = ESC + "2J";
+	private static final String CLEAR_BELOW    = ESC + "J";
+	private static final String SAVE_CURSOR    = "\0337";
+	private static final String RESTORE_CURSOR = "\0338";
+}
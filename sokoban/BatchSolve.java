@@ -0,0 +1,375 @@
+package sokoban;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import sokoban.solver.Solution;
+import sokoban.solver.Solver;
+
+/**
+ * Headless entry point that solves every screen in a directory concurrently and
+ * writes a report (CSV and JSON) of how each one went.
+ * Every level gets its own solver with the same time and memory budget; the levels
+ * are shared out over a fork-join pool. A line is printed for each level as it finishes.
+ *
+ * Usage: java sokoban.BatchSolve [options] [screen directory]
+ *   -t ms       time limit per level (default 10000)
+ *   -m MB       memory limit per level (default 256)
+ *   -w weight   heuristic weight (default 1)
+ *   -p threads  number of worker threads (default: number of processors)
+ *   -o prefix   report file prefix, giving prefix.csv and prefix.json (default batch-report)
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class BatchSolve {
+	/**
+	 * Constructor
+	 *
+	 * @param screenDir the directory holding the screen.* files (cannot be null)
+	 */
+	public BatchSolve(File screenDir) {
+		if (screenDir == null)
+			throw new IllegalArgumentException("screenDir cannot be null");
+		this.screenDir = screenDir;
+	}
+
+	/**
+	 * Changes the time limit for each level
+	 *
+	 * @param millis the time limit in milliseconds (0 for no limit)
+	 */
+	public void setTimeLimit(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("time limit cannot be negative");
+		timeLimit = millis;
+	}
+
+	/**
+	 * Changes the memory limit for each level
+	 *
+	 * @param bytes the memory limit in bytes (0 for no limit)
+	 */
+	public void setMemoryLimit(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("memory limit cannot be negative");
+		memoryLimit = bytes;
+	}
+
+	/**
+	 * Changes the heuristic weight used by each solver
+	 *
+	 * @param weight the heuristic weight (at least 1)
+	 */
+	public void setWeight(int weight) {
+		if (weight < 1)
+			throw new IllegalArgumentException("weight must be at least 1");
+		this.weight = weight;
+	}
+
+	/**
+	 * Changes the number of worker threads
+	 *
+	 * @param threads the number of worker threads (at least 1)
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+		this.threads = threads;
+	}
+
+	/**
+	 * Find the screen files, in screen number order
+	 *
+	 * @return the screen files
+	 */
+	public List<File> screens() {
+		File[] files = screenDir.listFiles((dir, name) -> name.startsWith("screen.") && !name.endsWith(PatternDatabase.SUFFIX));
+		if (files == null)
+			throw new SokobanException("Cannot read screen directory " + screenDir);
+		ArrayList<File> screens = new ArrayList<File>(Arrays.asList(files));
+		screens.sort(Comparator.comparingInt(BatchSolve::screenNumber).thenComparing(File::getName));
+		return screens;
+	}
+
+	/**
+	 * Solve every screen, in parallel
+	 *
+	 * @return one result per screen, in screen number order
+	 */
+	public List<Result> run() {
+		List<File>                 screens = screens();
+		ArrayList<Callable<Result>> tasks  = new ArrayList<Callable<Result>>();
+		for (File screen : screens)
+			tasks.add(() -> solve(screen));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			ArrayList<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : pool.invokeAll(tasks))
+				results.add(future.get());
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SokobanException("Batch interrupted");
+		} catch (ExecutionException e) {
+			throw new SokobanException("Batch failed: " + e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Solve one screen, checking any solution by playing it back
+	 *
+	 * @param screen the screen file
+	 * @return the result
+	 */
+	private Result solve(File screen) {
+		long started = System.nanoTime();
+		try {
+			Sokoban puzzle = new Sokoban(screen);
+			Solver  solver = new Solver();
+			solver.setTimeLimit(timeLimit);
+			solver.setMemoryLimit(memoryLimit);
+			solver.setWeight(weight);
+			Solution solution = solver.solve(puzzle);
+			boolean  verified = false;
+			if (solution.isSolved()) {
+				for (Direction dir : solution.getMoves())
+					puzzle.move(dir);
+				verified = puzzle.onTarget();
+			}
+			System.out.println(screen.getName() + " " + solution);
+			return new Result(screen.getName(), solution.getStatus().toString(), verified,
+				solution.getNumMoves(), solution.getNumPushes(), solution.getNodesExpanded(),
+				solution.getPeakMemory(), (System.nanoTime() - started) / 1000000L, "");
+		} catch (RuntimeException e) {
+			System.out.println(screen.getName() + " failed: " + e);
+			return new Result(screen.getName(), "ERROR", false, 0, 0, 0, 0,
+				(System.nanoTime() - started) / 1000000L, e.toString());
+		}
+	}
+
+	/**
+	 * Write the results as CSV
+	 *
+	 * @param results the results
+	 * @param file the file to write
+	 */
+	public static void writeCsv(List<Result> results, File file) {
+		StringBuffer b = new StringBuffer("screen,status,solved,verified,moves,pushes,nodes_expanded,peak_memory_bytes,wall_millis,error\n");
+		for (Result r : results) {
+			b.append(r.screen).append(',').append(r.status).append(',').append(r.isSolved())
+				.append(',').append(r.verified).append(',').append(r.moves).append(',').append(r.pushes)
+				.append(',').append(r.expanded).append(',').append(r.peakMemory).append(',').append(r.millis)
+				.append(',').append(csvQuote(r.error)).append('\n');
+		}
+		writeFile(b.toString(), file);
+	}
+
+	/**
+	 * Write the results as JSON
+	 *
+	 * @param results the results
+	 * @param file the file to write
+	 */
+	public static void writeJson(List<Result> results, File file) {
+		StringBuffer b = new StringBuffer("[\n");
+		for (int i=0; i<results.size(); i++) {
+			Result r = results.get(i);
+			b.append("  {\"screen\": ").append(jsonQuote(r.screen))
+				.append(", \"status\": ").append(jsonQuote(r.status))
+				.append(", \"solved\": ").append(r.isSolved())
+				.append(", \"verified\": ").append(r.verified)
+				.append(", \"moves\": ").append(r.moves)
+				.append(", \"pushes\": ").append(r.pushes)
+				.append(", \"nodesExpanded\": ").append(r.expanded)
+				.append(", \"peakMemoryBytes\": ").append(r.peakMemory)
+				.append(", \"wallMillis\": ").append(r.millis)
+				.append(", \"error\": ").append(jsonQuote(r.error))
+				.append((i < results.size() - 1) ? "},\n" : "}\n");
+		}
+		b.append("]\n");
+		writeFile(b.toString(), file);
+	}
+
+	/**
+	 * Write a string to a file
+	 *
+	 * @param text the text
+	 * @param file the file to write
+	 */
+	private static void writeFile(String text, File file) {
+		try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
+			out.print(text);
+		} catch (FileNotFoundException e) {
+			throw new SokobanException("Cannot write " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Quote a CSV field if it needs it
+	 *
+	 * @param s the field
+	 * @return the quoted field
+	 */
+	private static String csvQuote(String s) {
+		if ((s.indexOf(',') < 0) && (s.indexOf('"') < 0) && (s.indexOf('\n') < 0))
+			return s;
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Quote a JSON string
+	 *
+	 * @param s the string
+	 * @return the quoted string
+	 */
+	private static String jsonQuote(String s) {
+		StringBuffer b = new StringBuffer("\"");
+		for (char c : s.toCharArray()) {
+			if ((c == '"') || (c == '\\'))
+				b.append('\\').append(c);
+			else if (c < ' ')
+				b.append(String.format("\\u%04x", (int) c));
+			else
+				b.append(c);
+		}
+		return b.append('"').toString();
+	}
+
+	/**
+	 * Gets the number at the end of a screen file name
+	 *
+	 * @param file the screen file
+	 * @return the screen number (MAX_VALUE if there is none)
+	 */
+	private static int screenNumber(File file) {
+		String name = file.getName();
+		try {
+			return Integer.parseInt(name.substring(name.lastIndexOf('.') + 1));
+		} catch (NumberFormatException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * The outcome for one screen
+	 */
+	public static final class Result {
+		/**
+		 * Constructor
+		 *
+		 * @param screen the screen file name
+		 * @param status how the solver finished (or ERROR)
+		 * @param verified did the solution play back to a finished puzzle?
+		 * @param moves the number of actor moves in the solution
+		 * @param pushes the number of pushes in the solution
+		 * @param expanded the number of nodes expanded
+		 * @param peakMemory the estimated peak memory in bytes
+		 * @param millis the wall time in milliseconds
+		 * @param error the error message (empty if none)
+		 */
+		Result(String screen, String status, boolean verified, int moves, int pushes, long expanded, long peakMemory, long millis, String error) {
+			this.screen     = screen;
+			this.status     = status;
+			this.verified   = verified;
+			this.moves      = moves;
+			this.pushes     = pushes;
+			this.expanded   = expanded;
+			this.peakMemory = peakMemory;
+			this.millis     = millis;
+			this.error      = error;
+		}
+
+		/**
+		 * Was the screen solved?
+		 *
+		 * @return was the screen solved?
+		 */
+		public boolean isSolved() {
+			return status.equals(Solution.Status.SOLVED.toString());
+		}
+
+		public final String  screen;
+		public final String  status;
+		public final boolean verified;
+		public final int     moves;
+		public final int     pushes;
+		public final long    expanded;
+		public final long    peakMemory;
+		public final long    millis;
+		public final String  error;
+	}
+
+	/**
+	 * Main entry point for batch solving
+	 *
+	 * @param args the command line options (see the class comment)
+	 */
+	public static void main(String[] args) {
+		String     workDir = System.getProperty("user.dir");
+		File       dir     = new File(workDir, "screens");
+		String     prefix  = "batch-report";
+		BatchSolve batch   = null;
+		HashMap<String,String> options = new HashMap<String,String>();
+		try {
+			for (int i=0; i<args.length; i++) {
+				if (args[i].startsWith("-")) {
+					if (i + 1 >= args.length)
+						throw new IllegalArgumentException("missing value for " + args[i]);
+					options.put(args[i], args[++i]);
+				} else
+					dir = new File(args[i]);
+			}
+			batch = new BatchSolve(dir);
+			for (Map.Entry<String,String> option : options.entrySet()) {
+				String value = option.getValue();
+				switch (option.getKey()) {
+					case "-t": batch.setTimeLimit(Long.parseLong(value));                 break;
+					case "-m": batch.setMemoryLimit(Long.parseLong(value) * 1024 * 1024); break;
+					case "-w": batch.setWeight(Integer.parseInt(value));                  break;
+					case "-p": batch.setThreads(Integer.parseInt(value));                 break;
+					case "-o": prefix = value;                                            break;
+					default:   throw new IllegalArgumentException("unknown option " + option.getKey());
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println("Usage: java sokoban.BatchSolve [-t ms] [-m MB] [-w weight] [-p threads] [-o prefix] [screen directory]");
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+
+		long         started = System.nanoTime();
+		List<Result> results = batch.run();
+		long         elapsed = (System.nanoTime() - started) / 1000000L;
+		writeCsv(results, new File(prefix + ".csv"));
+		writeJson(results, new File(prefix + ".json"));
+
+		int solved = 0;
+		for (Result r : results)
+			if (r.isSolved() && r.verified)
+				solved++;
+		System.out.println("Solved " + solved + " of " + results.size() + " screens in " + elapsed + " ms");
+		System.out.println("Report written to " + prefix + ".csv and " + prefix + ".json");
+	}
+
+	/**
+	 * A trace method for debugging (active when traceOn is true)
+	 *
+	 * @param s the string to output
+	 */
+	public static void trace(String s) {
+		if (traceOn)
+			System.out.println("trace: " + s);
+	}
+
+	private final File screenDir;
+	private long       timeLimit   = 10000;
+	private long       memoryLimit = 256L * 1024 * 1024;
+	private int        weight      = 1;
+	private int        threads     = Runtime.getRuntime().availableProcessors();
+
+	private static boolean traceOn = false; // for debugging
+}
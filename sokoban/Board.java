@@ -0,0 +1,333 @@
+package sokoban;
+
+import java.util.*;
+
+/**
+ * The mutable state of a Sokoban puzzle laid over a shared {@link Level}:
+ * the boxes as a packed bitset and the actor as a single cell index.
+ * The board also keeps the Zobrist hash of its boxes up to date as they move, and
+ * caches the actor's region (which only changes when a box moves) for the state hash.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+final class Board {
+	/**
+	 * Constructor for an empty board (no boxes, no actor)
+	 *
+	 * @param level the static layout (cannot be null)
+	 */
+	Board(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		this.level   = level;
+		this.boxes   = new long[Level.words(level.getNumCells())];
+		this.actor   = -1;
+		this.zobrist = level.getZobrist();
+	}
+
+	/**
+	 * Constructor for a board with given boxes and actor
+	 *
+	 * @param level the static layout (cannot be null)
+	 * @param boxes bitset of box cells (taken over, not copied)
+	 * @param actor the actor cell index (or -1 for no actor)
+	 */
+	Board(Level level, long[] boxes, int actor) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		if ((boxes == null) || (boxes.length != Level.words(level.getNumCells())))
+			throw new IllegalArgumentException("boxes must cover the level");
+		this.level   = level;
+		this.boxes   = boxes;
+		this.actor   = actor;
+		this.zobrist = level.getZobrist();
+		recount();
+	}
+
+	/**
+	 * Copy constructor (the level is shared, the boxes are copied)
+	 *
+	 * @param other the board to copy (cannot be null)
+	 */
+	Board(Board other) {
+		if (other == null)
+			throw new IllegalArgumentException("other cannot be null");
+		this.level       = other.level;
+		this.boxes       = other.boxes.clone();
+		this.actor       = other.actor;
+		this.numBoxes    = other.numBoxes;
+		this.numOnTarget = other.numOnTarget;
+		this.zobrist     = other.zobrist;
+		this.boxHash     = other.boxHash;
+		this.boxHashHigh = other.boxHashHigh;
+		this.wide        = other.wide;
+	}
+
+	/**
+	 * Gets the static layout
+	 *
+	 * @return the level
+	 */
+	Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Checks if a cell holds a box
+	 *
+	 * @param idx the cell index
+	 * @return does the cell hold a box?
+	 */
+	boolean hasBox(int idx) {
+		return Level.get(boxes, idx);
+	}
+
+	/**
+	 * Checks if a cell holds the actor
+	 *
+	 * @param idx the cell index
+	 * @return does the cell hold the actor?
+	 */
+	boolean hasActor(int idx) {
+		return idx == actor;
+	}
+
+	/**
+	 * Checks if a cell has no wall, box or actor
+	 *
+	 * @param idx the cell index
+	 * @return is the cell empty?
+	 */
+	boolean isEmpty(int idx) {
+		return (idx != actor) && !Level.get(boxes, idx) && !level.isWall(idx);
+	}
+
+	/**
+	 * Place or remove a box
+	 *
+	 * @param idx the cell index
+	 * @param box should the cell hold a box?
+	 */
+	void setBox(int idx, boolean box) {
+		if (Level.get(boxes, idx) == box)
+			return;
+		int delta = box ? 1 : -1;
+		if (box)
+			Level.set(boxes, idx);
+		else
+			Level.clear(boxes, idx);
+		numBoxes += delta;
+		if (level.isTarget(idx))
+			numOnTarget += delta;
+		boxHash ^= zobrist.boxKey(idx);
+		if (wide)
+			boxHashHigh ^= zobrist.boxKeyHigh(idx);
+		regionValid = false;
+	}
+
+	/**
+	 * Gets the actor cell index
+	 *
+	 * @return the actor cell index (or -1 if there is no actor)
+	 */
+	int getActor() {
+		return actor;
+	}
+
+	/**
+	 * Changes the actor cell index
+	 *
+	 * @param idx the actor cell index (or -1 for no actor)
+	 */
+	void setActor(int idx) {
+		actor = idx;
+	}
+
+	/**
+	 * Gets the box bitset (live, not a copy; use setBox to keep the counts right)
+	 *
+	 * @return the box bitset
+	 */
+	long[] getBoxes() {
+		return boxes;
+	}
+
+	/**
+	 * Overwrite this board with the contents of another on the same level
+	 *
+	 * @param other the board to copy from (cannot be null)
+	 */
+	void copyFrom(Board other) {
+		if ((other == null) || (other.level != level))
+			throw new IllegalArgumentException("other must share this level");
+		System.arraycopy(other.boxes, 0, boxes, 0, boxes.length);
+		actor       = other.actor;
+		numBoxes    = other.numBoxes;
+		numOnTarget = other.numOnTarget;
+		boxHash     = other.boxHash;
+		boxHashHigh = wide ? zobrist.hashBoxesHigh(boxes) : 0;
+		regionValid = false;
+	}
+
+	/**
+	 * Recompute the box counts and hashes from scratch with a full scan of the bitset
+	 */
+	private void recount() {
+		long[] targets = level.getTargets();
+		numBoxes    = 0;
+		numOnTarget = 0;
+		for (int i=0; i<boxes.length; i++) {
+			numBoxes    += Long.bitCount(boxes[i]);
+			numOnTarget += Long.bitCount(boxes[i] & targets[i]);
+		}
+		boxHash     = zobrist.hashBoxes(boxes);
+		boxHashHigh = wide ? zobrist.hashBoxesHigh(boxes) : 0;
+		regionValid = false;
+	}
+
+	/**
+	 * Turn the high 64 bits of the state hash on or off
+	 *
+	 * @param wide should the high 64 bits be kept up to date?
+	 */
+	void setWide(boolean wide) {
+		if (wide && !this.wide)
+			boxHashHigh = zobrist.hashBoxesHigh(boxes);
+		this.wide = wide;
+	}
+
+	/**
+	 * Are the high 64 bits of the state hash kept up to date?
+	 *
+	 * @return are the high 64 bits kept up to date?
+	 */
+	boolean isWide() {
+		return wide;
+	}
+
+	/**
+	 * Gets the Zobrist hash of the boxes and the actor's region
+	 *
+	 * @return the (low 64 bits of the) state hash
+	 */
+	long stateHash() {
+		int norm = normalisedActor();
+		return boxHash ^ ((norm < 0) ? NO_ACTOR_KEY : zobrist.actorKey(norm));
+	}
+
+	/**
+	 * Gets the high 64 bits of the Zobrist hash of the boxes and the actor's region
+	 *
+	 * @return the high 64 bits of the state hash
+	 */
+	long stateHashHigh() {
+		if (!wide)
+			throw new IllegalStateException("128-bit hashing is not turned on");
+		int norm = normalisedActor();
+		return boxHashHigh ^ ((norm < 0) ? NO_ACTOR_KEY : zobrist.actorKeyHigh(norm));
+	}
+
+	/**
+	 * Gets the smallest cell index the actor can walk to without pushing a box.
+	 * The region is worked out again only after a box has moved or the actor has
+	 * left it; walking about inside it costs nothing.
+	 *
+	 * @return the normalised actor cell index (-1 if no actor has been placed)
+	 */
+	int normalisedActor() {
+		if (actor < 0)
+			return -1;
+		if (regionValid && Level.get(region, actor))
+			return regionMin;
+		int numCells = level.getNumCells();
+		if (region == null) {
+			region = new long[boxes.length];
+			queue  = new int[numCells];
+		} else
+			Arrays.fill(region, 0);
+		int head = 0;
+		int tail = 0;
+		int min  = actor;
+		Level.set(region, actor);
+		queue[tail++] = actor;
+		while (head < tail) {
+			int idx = queue[head++];
+			if (idx < min)
+				min = idx;
+			for (Direction dir : DIRECTIONS) {
+				int to = level.step(idx, dir);
+				if ((to < 0) || Level.get(region, to) || level.isWall(to) || Level.get(boxes, to))
+					continue;
+				Level.set(region, to);
+				queue[tail++] = to;
+			}
+		}
+		regionMin   = min;
+		regionValid = true;
+		return min;
+	}
+
+	/**
+	 * Gets the number of boxes (maintained incrementally)
+	 *
+	 * @return the number of boxes
+	 */
+	int numBoxes() {
+		return numBoxes;
+	}
+
+	/**
+	 * Gets the number of boxes on targets (maintained incrementally)
+	 *
+	 * @return the number of boxes on targets
+	 */
+	int numOnTarget() {
+		return numOnTarget;
+	}
+
+	/**
+	 * Test for equality with another board, considering boxes and actor only
+	 *
+	 * @param obj the other board
+	 * @return do the two boards have the same boxes and actor?
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj == null) || !(obj instanceof Board))
+			return false;
+		Board other = (Board) obj;
+		return (level == other.level) && (actor == other.actor) && Arrays.equals(boxes, other.boxes);
+	}
+
+	/**
+	 * Hash code consistent with equals
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(boxes) + actor;
+	}
+
+	private final Level  level;
+	private final long[] boxes;
+	private int          actor;
+	private int          numBoxes    = 0;
+	private int          numOnTarget = 0;
+	private Zobrist      zobrist     = null;
+	private long         boxHash     = 0;
+	private long         boxHashHigh = 0;
+	private boolean      wide        = false;
+
+	// the actor's region, cached until a box moves
+	private long[]       region      = null;
+	private int[]        queue       = null;
+	private int          regionMin   = -1;
+	private boolean      regionValid = false;
+
+	// the actor part of the state hash while no actor has been placed
+	private static final long NO_ACTOR_KEY = 0L;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
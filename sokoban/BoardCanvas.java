@@ -0,0 +1,143 @@
+package sokoban;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import javax.swing.*;
+import java.util.*;
+
+/**
+ * A Swing component that paints a Sokoban puzzle as a grid of tiles.
+ * The tile images are scaled once into a single atlas image, and the component
+ * observes its puzzle so that only the cells reported as changed are repainted.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+@SuppressWarnings({"deprecation","serial"})
+class BoardCanvas extends JComponent implements Observer {
+	/**
+	 * Constructor
+	 *
+	 * @param icons the tile image for each display character (blank if missing)
+	 * @param tileSize the width and height of a tile in pixels (must be positive)
+	 * @param gridSize the number of tiles across and down the canvas (must be positive)
+	 */
+	BoardCanvas(Map<Character,ImageIcon> icons, int tileSize, int gridSize) {
+		if (icons == null)
+			throw new IllegalArgumentException("icons cannot be null");
+		if ((tileSize <= 0) || (gridSize <= 0))
+			throw new IllegalArgumentException("tileSize and gridSize must be positive");
+		this.tileSize = tileSize;
+		this.gridSize = gridSize;
+		this.atlas    = genAtlas(icons, tileSize);
+		setOpaque(false);
+	}
+
+	/**
+	 * Show a different puzzle, observing it in place of the last one
+	 *
+	 * @param puzzle the puzzle to show (null for none)
+	 */
+	void setPuzzle(Sokoban puzzle) {
+		if (this.puzzle != null)
+			this.puzzle.deleteObserver(this);
+		this.puzzle = puzzle;
+		if (puzzle != null)
+			puzzle.addObserver(this);
+		repaint();
+	}
+
+	/**
+	 * Repaint the tile of a cell that the puzzle reports as changed
+	 *
+	 * @param obs the puzzle
+	 * @param arg the cell that changed
+	 */
+	@Override
+	public void update(Observable obs, Object arg) {
+		if (!(arg instanceof Cell))
+			return;
+		Cell   cell   = (Cell) arg;
+		Insets insets = getInsets();
+		repaint(insets.left + cell.getCol() * tileSize, insets.top + cell.getRow() * tileSize, tileSize, tileSize);
+	}
+
+	/**
+	 * The size of the whole grid (plus border)
+	 *
+	 * @return the preferred size
+	 */
+	@Override
+	public Dimension getPreferredSize() {
+		Insets insets = getInsets();
+		int    side   = gridSize * tileSize;
+		return new Dimension(insets.left + side + insets.right, insets.top + side + insets.bottom);
+	}
+
+	/**
+	 * Paint the tiles that fall inside the clip
+	 *
+	 * @param g the graphics context
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		if (puzzle == null)
+			return;
+		Insets    insets   = getInsets();
+		Rectangle clip     = g.getClipBounds();
+		Level     level    = puzzle.getLevel();
+		Board     board    = puzzle.getBoard();
+		int       numRows  = Math.min(level.getNumRows(), gridSize);
+		int       numCols  = Math.min(level.getNumCols(), gridSize);
+		int       firstRow = 0;
+		int       lastRow  = numRows - 1;
+		int       firstCol = 0;
+		int       lastCol  = numCols - 1;
+		if (clip != null) {
+			firstRow = Math.max(firstRow, (clip.y - insets.top) / tileSize);
+			lastRow  = Math.min(lastRow, (clip.y + clip.height - 1 - insets.top) / tileSize);
+			firstCol = Math.max(firstCol, (clip.x - insets.left) / tileSize);
+			lastCol  = Math.min(lastCol, (clip.x + clip.width - 1 - insets.left) / tileSize);
+		}
+		for (int row=firstRow; row<=lastRow; row++) {
+			for (int col=firstCol; col<=lastCol; col++) {
+				int slot = SYMBOLS.indexOf(Cell.displayOf(level, board, level.index(row, col)));
+				if (slot <= 0)
+					continue; // nothing to draw for an empty cell
+				int x = insets.left + col * tileSize;
+				int y = insets.top + row * tileSize;
+				int s = slot * tileSize;
+				g.drawImage(atlas, x, y, x + tileSize, y + tileSize, s, 0, s + tileSize, tileSize, null);
+			}
+		}
+	}
+
+	/**
+	 * Scale every tile image once into a single strip, in the order of SYMBOLS
+	 *
+	 * @param icons the tile image for each display character
+	 * @param tileSize the width and height of a tile in pixels
+	 * @return the atlas image
+	 */
+	private static BufferedImage genAtlas(Map<Character,ImageIcon> icons, int tileSize) {
+		BufferedImage atlas = new BufferedImage(SYMBOLS.length() * tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D    g     = atlas.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		for (int slot=0; slot<SYMBOLS.length(); slot++) {
+			ImageIcon icon = icons.get(SYMBOLS.charAt(slot));
+			if (icon != null)
+				g.drawImage(icon.getImage(), slot * tileSize, 0, tileSize, tileSize, null);
+		}
+		g.dispose();
+		return atlas;
+	}
+
+	private final int           tileSize;
+	private final int           gridSize;
+	private final BufferedImage atlas;
+	private Sokoban             puzzle   = null;
+
+	// atlas order; the first slot (empty) is never drawn
+	private static final String SYMBOLS = "" + Sokoban.EMPTY + Sokoban.WALL + Sokoban.BOX + Sokoban.ACTOR
+		+ Sokoban.TARGET + Sokoban.TARGET_ACTOR + Sokoban.TARGET_BOX;
+}
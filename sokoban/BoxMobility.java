@@ -0,0 +1,288 @@
+package sokoban;
+
+import java.util.*;
+
+/**
+ * Works out whether a box could move sideways (perpendicular to a push),
+ * following chains of neighbouring boxes that would themselves have to move.
+ * This is the check behind {@link Cell#isMoveableBoxLocation(Cell, Direction)},
+ * and behind the push rule of {@link Box#canMove(Direction)} (see {@link #canPush(int, Direction)}).
+ *
+ * The traversal is iterative, with an explicit stack of frames standing in for the
+ * recursion, and marks the cells it has visited in an epoch-stamped array indexed by
+ * cell index. Both are allocated once per puzzle and reused, so a check allocates
+ * nothing and its depth is bounded by the number of cells rather than the call stack.
+ * An instance belongs to a single puzzle and is not thread safe.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+class BoxMobility {
+	/**
+	 * Constructor
+	 *
+	 * @param puzzle the puzzle to check (cannot be null)
+	 */
+	BoxMobility(Sokoban puzzle) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		int numCells = puzzle.getLevel().getNumCells();
+		this.puzzle  = puzzle;
+		this.stamp   = new int[numCells];
+		this.cells   = new int[numCells + 1];
+		this.dirs    = new int[numCells + 1];
+		this.lefts   = new int[numCells + 1];
+		this.rights  = new int[numCells + 1];
+		this.states  = new int[numCells + 1];
+	}
+
+	/**
+	 * Could the box in a cell be pushed one cell in a given direction without the
+	 * walls making it unsolvable or it getting stuck against other boxes?
+	 * This is the rule of {@link Box#canMove(Direction)}, worked out on cell indices
+	 * so that it allocates nothing.
+	 *
+	 * @param box the cell index of the box
+	 * @param dir the direction to push
+	 * @return could the box be pushed in the given direction?
+	 */
+	boolean canPush(int box, Direction dir) {
+		Level level = puzzle.getLevel();
+		int   next  = level.step(box, dir);
+		return (next >= 0) && puzzle.getBoard().isEmpty(next) && !level.isDead(next) && isStuckSafe(box, next, dir);
+	}
+
+	/**
+	 * Is it safe (from getting stuck to another box) to push a box into an empty,
+	 * wall safe cell? This is the rule of {@link Box#isStuckSafe(Direction)}.
+	 * A push that would leave boxes frozen in place with one of them off target
+	 * (see {@link FreezeDetector}) is not safe, even onto a target, nor is one that
+	 * would complete a deadlocked group of boxes in the puzzle's pattern database.
+	 *
+	 * @param box the cell index of the box
+	 * @param next the cell index the box would move to
+	 * @param dir the direction of the push
+	 * @return is it safe to push the box?
+	 */
+	boolean isStuckSafe(int box, int next, Direction dir) {
+		Level level = puzzle.getLevel();
+		Board board = puzzle.getBoard();
+		PatternDatabase patterns = puzzle.getPatternDatabase();
+		if ((patterns != null) && (patterns.lookup(board, box, next) == PatternDatabase.DEADLOCK))
+			return false;
+		if (puzzle.getFreezeDetector().isDeadlock(box, next))
+			return false;
+		if (level.isTarget(next)) // okay to get stuck on a target
+			return true;
+		Direction left  = DIRECTIONS[LEFT[dir.ordinal()]];
+		Direction right = DIRECTIONS[RIGHT[dir.ordinal()]];
+		int nextAhead = level.step(next, dir);
+		int nextLeft  = level.step(next, left);
+		int nextRight = level.step(next, right);
+		boolean boxAhead = (nextAhead >= 0) && board.hasBox(nextAhead);
+		boolean boxLeft  = (nextLeft >= 0) && board.hasBox(nextLeft);
+		boolean boxRight = (nextRight >= 0) && board.hasBox(nextRight);
+		// might get stuck only if we move next to a box ...
+		if (!boxAhead && !boxLeft && !boxRight)
+			return true;
+		// ... but not if the box ahead can be moved, or we still can
+		if (boxAhead && (isMoveable(next, box, -1, dir) || isMoveable(nextAhead, box, next, dir)))
+			return true;
+		// ... but not if the box on the left can be moved, or we still can
+		if (boxLeft && (isMoveable(next, box, -1, left) || isMoveable(nextLeft, box, next, left)))
+			return true;
+		// ... but not if the box on the right can be moved, or we still can
+		return boxRight && (isMoveable(next, box, -1, right) || isMoveable(nextRight, box, next, right));
+	}
+
+	/**
+	 * Could a box at the given location move perpendicular to the indicated direction?
+	 * The location does not currently have to contain a box.
+	 * Origin is the cell where the original box will move from (treated as empty).
+	 *
+	 * @param start the cell index to check
+	 * @param origin the cell index the original box will move from
+	 * @param taboo a cell index assumed to have been visited already (or -1 for none)
+	 * @param dir the direction to check
+	 * @return could a box at the location move perpendicular to the indicated direction?
+	 */
+	boolean isMoveable(int start, int origin, int taboo, Direction dir) {
+		level = puzzle.getLevel();
+		board = puzzle.getBoard();
+		if (++epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+		if (taboo >= 0)
+			stamp[taboo] = epoch;
+		this.origin = origin;
+
+		int     sp     = 0;
+		boolean result = false;
+		sp = push(sp, start, dir.ordinal());
+		while (sp > 0) {
+			int f = sp - 1;
+			int c = cells[f];
+			int l = lefts[f];
+			int r = rights[f];
+			int s = states[f];
+			switch (s & STATE) {
+			case ENTER:
+				if (stamp[c] == epoch) {
+					result = false;
+					sp--;
+					break;
+				}
+				stamp[c] = epoch;
+				states[f] = CAN_LEFT
+					| (((l >= 0) && (stamp[l] == epoch)) ? VISITED_LEFT  : 0)
+					| (((r >= 0) && (stamp[r] == epoch)) ? VISITED_RIGHT : 0);
+				break;
+			case CAN_LEFT: // could move left, if the right side is free ...
+				if ((l < 0) || ((s & VISITED_LEFT) != 0))
+					states[f] = (s & ~STATE) | CAN_RIGHT;
+				else if (isFree(l) && isWallSafe(l))
+					states[f] = (s & ~STATE) | LEFT_FREE;
+				else if (board.hasBox(l)) {
+					states[f] = (s & ~STATE) | CAN_LEFT_DONE;
+					sp = push(sp, l, LEFT[dirs[f]]);
+				} else
+					states[f] = (s & ~STATE) | CAN_RIGHT;
+				break;
+			case CAN_LEFT_DONE:
+				states[f] = (s & ~STATE) | (result ? LEFT_FREE : CAN_RIGHT);
+				break;
+			case LEFT_FREE:
+				if ((r < 0) || ((s & VISITED_RIGHT) != 0))
+					states[f] = (s & ~STATE) | CAN_RIGHT;
+				else if (isFree(r)) {
+					result = true;
+					sp--;
+				} else if (board.hasBox(r)) {
+					states[f] = (s & ~STATE) | LEFT_FREE_DONE;
+					sp = push(sp, r, RIGHT[dirs[f]]);
+				} else
+					states[f] = (s & ~STATE) | CAN_RIGHT;
+				break;
+			case LEFT_FREE_DONE:
+				if (result)
+					sp--;
+				else
+					states[f] = (s & ~STATE) | CAN_RIGHT;
+				break;
+			case CAN_RIGHT: // ... or could move right, if the left side is free
+				if ((r < 0) || ((s & VISITED_RIGHT) != 0)) {
+					result = false;
+					sp--;
+				} else if (isFree(r) && isWallSafe(r))
+					states[f] = (s & ~STATE) | RIGHT_FREE;
+				else if (board.hasBox(r)) {
+					states[f] = (s & ~STATE) | CAN_RIGHT_DONE;
+					sp = push(sp, r, RIGHT[dirs[f]]);
+				} else {
+					result = false;
+					sp--;
+				}
+				break;
+			case CAN_RIGHT_DONE:
+				if (result)
+					states[f] = (s & ~STATE) | RIGHT_FREE;
+				else
+					sp--;
+				break;
+			case RIGHT_FREE:
+				if ((l < 0) || ((s & VISITED_LEFT) != 0)) {
+					result = false;
+					sp--;
+				} else if (isFree(l)) {
+					result = true;
+					sp--;
+				} else if (board.hasBox(l)) {
+					states[f] = (s & ~STATE) | RIGHT_FREE_DONE;
+					sp = push(sp, l, LEFT[dirs[f]]);
+				} else {
+					result = false;
+					sp--;
+				}
+				break;
+			default: // RIGHT_FREE_DONE: the result is that of the box on the left
+				sp--;
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Push a new frame on the stack
+	 *
+	 * @param sp the current stack size
+	 * @param cell the cell index for the frame
+	 * @param dir the direction (ordinal) for the frame
+	 * @return the new stack size
+	 */
+	private int push(int sp, int cell, int dir) {
+		cells[sp]  = cell;
+		dirs[sp]   = dir;
+		lefts[sp]  = level.step(cell, DIRECTIONS[LEFT[dir]]);
+		rights[sp] = level.step(cell, DIRECTIONS[RIGHT[dir]]);
+		states[sp] = ENTER;
+		return sp + 1;
+	}
+
+	/**
+	 * Would a box have room in this cell? (empty, the actor, or the origin)
+	 *
+	 * @param idx the cell index
+	 * @return would a box have room in this cell?
+	 */
+	private boolean isFree(int idx) {
+		return board.isEmpty(idx) || board.hasActor(idx) || (idx == origin);
+	}
+
+	/**
+	 * Is this cell neither a wall nor a dead square?
+	 *
+	 * @param idx the cell index
+	 * @return is this cell neither a wall nor a dead square?
+	 */
+	private boolean isWallSafe(int idx) {
+		return !level.isWall(idx) && !level.isDead(idx);
+	}
+
+	private final Sokoban puzzle;
+	private final int[]   stamp;
+	private final int[]   cells;
+	private final int[]   dirs;
+	private final int[]   lefts;
+	private final int[]   rights;
+	private final int[]   states;
+	private int           epoch  = 0;
+	private int           origin = -1;
+	private Level         level  = null;
+	private Board         board  = null;
+
+	// frame states (low bits) and flags
+	private static final int ENTER           = 0;
+	private static final int CAN_LEFT        = 1;
+	private static final int CAN_LEFT_DONE   = 2;
+	private static final int LEFT_FREE       = 3;
+	private static final int LEFT_FREE_DONE  = 4;
+	private static final int CAN_RIGHT       = 5;
+	private static final int CAN_RIGHT_DONE  = 6;
+	private static final int RIGHT_FREE      = 7;
+	private static final int RIGHT_FREE_DONE = 8;
+	private static final int STATE           = 15;
+	private static final int VISITED_LEFT    = 16;
+	private static final int VISITED_RIGHT   = 32;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int[]       LEFT       = new int[DIRECTIONS.length];
+	private static final int[]       RIGHT      = new int[DIRECTIONS.length];
+	static {
+		for (Direction dir : DIRECTIONS) {
+			LEFT[dir.ordinal()]  = dir.left().ordinal();
+			RIGHT[dir.ordinal()] = dir.right().ordinal();
+		}
+	}
+}
@@ -6,9 +6,12 @@ import java.util.*;
 
 /**
  * A cell in a Sokoban puzzle.
+ * A cell is a lightweight view over its puzzle's board: it holds no state of its own
+ * beyond its position, so cells can be created on demand and discarded freely.
  *
  * @author Dr Mark C. Sinclair
- * @version October 2021
+ * @author Dr Kelechi Berquist
+ * @version October 2026
  */
 public class Cell implements Comparable<Cell> {
 	/**
@@ -20,6 +23,19 @@ public class Cell implements Comparable<Cell> {
 	 * @param col this cell's column in the Sokoban puzzle (numbered from 0)
 	 */
 	public Cell(char display, Sokoban puzzle, int row, int col) {
+		this(puzzle, row, col);
+		if (getDisplay() != display)
+			setDisplay(display);
+	}
+
+	/**
+	 * Constructor for a view of an existing cell
+	 *
+	 * @param puzzle the parent Sokoban puzzle (cannot be null)
+	 * @param row this cell's row in the Sokoban puzzle (numbered from 0)
+	 * @param col this cell's column in the Sokoban puzzle (numbered from 0)
+	 */
+	Cell(Sokoban puzzle, int row, int col) {
 		if (puzzle == null)
 			throw new IllegalArgumentException("puzzle cannot be null");
 		if ((row<0) || (row>=puzzle.getNumRows()))
@@ -29,27 +45,36 @@ public class Cell implements Comparable<Cell> {
 		this.puzzle = puzzle;
 		this.row    = row;
 		this.col    = col;
-		this.target = (display == Sokoban.TARGET || display == Sokoban.TARGET_BOX || display == Sokoban.TARGET_ACTOR) ? true : false;
-		this.occ    = (display == Sokoban.EMPTY || display == Sokoban.TARGET) ? null : Occupant.getInstance(display, this);
+		this.idx    = row * puzzle.getNumCols() + col;
 	}
 
 	/**
-	 * Compares the cell with another only on the basis of rows and columns
+	 * Compares the cell with another only on the basis of rows and columns (row-major order)
 	 *
 	 * @param other the other cell
-	 * @return -1 if either this row or column are smaller; 1 if either this row or column are larger; otherwise 0
+	 * @return -1 if this cell comes first; 1 if the other cell comes first; otherwise 0
 	 */
 	@Override
 	public int compareTo(Cell other) {
 		// consider row and col only
-		if ((row < other.row) || (col < other.col))
+		if ((row < other.row) || ((row == other.row) && (col < other.col)))
 			return -1;
-		else if ((row > other.row) || (col > other.col))
+		else if ((row > other.row) || ((row == other.row) && (col > other.col)))
 			return 1;
 		else
 			return 0;
 	}
 
+	/**
+	 * Hash code consistent with equals (row and column only)
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * row + col;
+	}
+
 	/**
 	 * Test for equality with another cell, considering row and column only
 	 *
@@ -91,8 +116,11 @@ public class Cell implements Comparable<Cell> {
 	 * @param display the character to use for display purposes for this cell
 	 */
 	void setDisplay(char display) {
-		this.target = (display == Sokoban.TARGET || display == Sokoban.TARGET_BOX || display == Sokoban.TARGET_ACTOR) ? true : false;
-		this.occ    = (display == Sokoban.EMPTY || display == Sokoban.TARGET) ? null : Occupant.getInstance(display, this);
+		boolean target = (display == Sokoban.TARGET || display == Sokoban.TARGET_BOX || display == Sokoban.TARGET_ACTOR) ? true : false;
+		boolean wall   = (display == Sokoban.WALL);
+		if ((target != isTarget()) || (wall != hasWall()))
+			throw new SokobanException("cannot change the walls or targets of a cell");
+		setOccupant((display == Sokoban.EMPTY || display == Sokoban.TARGET) ? null : Occupant.getInstance(display, this));
 	}
 
 	/**
@@ -102,27 +130,90 @@ public class Cell implements Comparable<Cell> {
 	 */
 
 	public char getDisplay() {
-		return toString().charAt(0);
+		return displayOf(puzzle.getLevel(), puzzle.getBoard(), idx);
 	}
 
 	/**
-	 * Changes the occupant for this cell (can be null)
+	 * Gets the display character of a cell straight from the level and board
+	 *
+	 * @param level the static layout
+	 * @param board the boxes and actor
+	 * @param idx the cell index
+	 * @return the character to use for display purposes for the cell
+	 */
+	static char displayOf(Level level, Board board, int idx) {
+		if (level.isWall(idx))
+			return Sokoban.WALL;
+		boolean target = level.isTarget(idx);
+		if (board.hasBox(idx))
+			return target ? Sokoban.TARGET_BOX : Sokoban.BOX;
+		if (board.hasActor(idx))
+			return target ? Sokoban.TARGET_ACTOR : Sokoban.ACTOR;
+		return target ? Sokoban.TARGET : Sokoban.EMPTY;
+	}
+
+	/**
+	 * Gets the occupant for this cell (a view created on demand)
+	 *
+	 * @return the occupant of this cell (or null if empty)
+	 */
+	Occupant getOccupant() {
+		if (hasWall())
+			return new Wall(this);
+		else if (hasBox())
+			return new Box(this);
+		else if (hasActor())
+			return new Actor(this);
+		else
+			return null;
+	}
+
+	/**
+	 * Changes the occupant for this cell (can be null).
+	 * Walls are part of the static layout and cannot be moved.
 	 *
 	 * @param occ the occupant for this cell
 	 */
 	void setOccupant(Occupant occ) {
-		this.occ = occ;
+		if ((occ != null) && occ.isWall() && hasWall())
+			return;
+		if (hasWall() || ((occ != null) && occ.isWall()))
+			throw new SokobanException("walls cannot be moved");
+		Board board = puzzle.getBoard();
+		if (board.hasActor(idx))
+			board.setActor(-1);
+		board.setBox(idx, (occ != null) && occ.isBox());
+		if ((occ != null) && occ.isActor())
+			board.setActor(idx);
 		if (occ != null)
 			occ.setCell(this);
 	}
 
+	/**
+	 * Gets the puzzle this cell belongs to
+	 *
+	 * @return the puzzle
+	 */
+	Sokoban getPuzzle() {
+		return puzzle;
+	}
+
+	/**
+	 * Gets the cell index within the puzzle
+	 *
+	 * @return the cell index
+	 */
+	int getIndex() {
+		return idx;
+	}
+
 	/**
 	 * Checks if this cell is a target
 	 *
 	 * @return is this cell a target?
 	 */
 	public boolean isTarget() {
-		return target;
+		return puzzle.getLevel().isTarget(idx);
 	}
 
 	/**
@@ -131,7 +222,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return is this cell empty?
 	 */
 	public boolean isEmpty() {
-		return (occ == null);
+		return puzzle.getBoard().isEmpty(idx);
 	}
 
 	/**
@@ -140,7 +231,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return is this cell occupied by an actor?
 	 */
 	public boolean hasActor() {
-		return (occ == null) ? false : occ.isActor();
+		return puzzle.getBoard().hasActor(idx);
 	}
 
 	/**
@@ -149,7 +240,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return is this cell occupied by a box?
 	 */
 	public boolean hasBox() {
-		return (occ == null) ? false : occ.isBox();
+		return puzzle.getBoard().hasBox(idx);
 	}
 
 	/**
@@ -158,7 +249,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return is this cell occupied by a wall?
 	 */
 	public boolean hasWall() {
-		return (occ == null) ? false : occ.isWall();
+		return puzzle.getLevel().isWall(idx);
 	}
 
 	/**
@@ -195,30 +286,14 @@ public class Cell implements Comparable<Cell> {
 
 	/**
 	 * If this Cell was empty, would it be safe to push a box into it?
-	 * (Do the walls make it impossible to push it out of this cell?)
+	 * (Do the walls make it impossible to push it on to any target from this cell?)
+	 * This is a single lookup in the dead-square table worked out when the level was built.
 	 *
 	 * @return if this Cell was empty, would it be safe to push a box into it?
 	 */
 	public boolean isWallSafe() {
-		if (hasWall())
-			return false;
-		else if (isTarget())
-			return true;
-		else if (numAdjacentWalls() >= 3)
-			return false;
-		else if (numAdjacentWalls() == 2) {
-			// two parallel Walls
-			Cell north = getCell(Direction.NORTH);
-			Cell south = getCell(Direction.SOUTH);
-			Cell east  = getCell(Direction.EAST);
-			Cell west  = getCell(Direction.WEST);
-			if (((north != null) && north.hasWall() && (south != null) && south.hasWall()) ||
-					((east != null) && east.hasWall() && (west != null) && west.hasWall()))
-				return true;
-			else // two Walls at 90 degrees
-				return false;
-		} else  // only one or zero adjacent Walls
-			return true;
+		Level level = puzzle.getLevel();
+		return !level.isWall(idx) && !level.isDead(idx);
 	}
 
 	/**
@@ -228,7 +303,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return is it safe (from getting stuck to another box) to move a box in the given direction?
 	 */
 	public boolean isStuckSafe(Direction dir) {
-		return isEmpty() ? false : occ.isStuckSafe(dir);
+		return isEmpty() ? false : getOccupant().isStuckSafe(dir);
 	}
 
 	/**
@@ -244,8 +319,7 @@ public class Cell implements Comparable<Cell> {
 	public boolean isMoveableBoxLocation(Cell origin, Direction dir) {
 		if (origin == null)
 			throw new IllegalArgumentException("origin cannot be null");
-		TreeSet<Cell> visited = new TreeSet<Cell>();
-		return isMoveableBoxLocation(origin, dir, visited);
+		return puzzle.getBoxMobility().isMoveable(idx, origin.idx, -1, dir);
 	}
 
 	/**
@@ -267,51 +341,7 @@ public class Cell implements Comparable<Cell> {
 			throw new IllegalArgumentException("taboo cannot be null");
 		if (taboo.equals(this))
 			throw new IllegalArgumentException("taboo cannot be this cell");
-		TreeSet<Cell> visited = new TreeSet<Cell>();
-		visited.add(taboo);
-		return isMoveableBoxLocation(origin, dir, visited);
-	}
-
-	/**
-	 * Could a box at this location move perpendicular to the indicated direction?
-	 * The location does not currently have to contain a box (this should be separately tested if required)
-	 * Origin is the cell where the original box will move from.
-	 * (Even if it currently contains a box, origin is treated as empty)
-	 * The recursion has already checked all the cells in visited
-	 *
-	 * @param origin where the original box will move from (cannot be null)
-	 * @param dir the direction to check
-	 * @param the set of cells already visited
-	 * @return if a box at this location could move perpendicular to the indicated direction?
-	 */
-	private boolean isMoveableBoxLocation(Cell origin, Direction dir, TreeSet<Cell> visited) {
-		if (origin == null)
-			throw new IllegalArgumentException("origin cannot be null");
-		if (visited == null)
-			throw new IllegalArgumentException("visited cannot be null");
-		Cell left  = getCell(dir.left());
-		Cell right = getCell(dir.right());
-
-		//check for loops
-		if (visited.contains(this))
-			return false;
-		visited.add(this);
-		boolean visitedLeft  = visited.contains(left);
-		boolean visitedRight = visited.contains(right);
-
-		// could move left
-		if ((left != null) && (!visitedLeft) && (((left.isEmpty() || left.hasActor() || left.equals(origin)) && left.isWallSafe()) ||
-				(left.hasBox() && left.isMoveableBoxLocation(origin, dir.left(), visited))) &&
-				(right != null) && (!visitedRight) && (right.isEmpty() || right.hasActor() || right.equals(origin) ||
-						(right.hasBox() && right.isMoveableBoxLocation(origin, dir.right(), visited))))
-			return true;
-		// could move right
-		else if ((right != null) && (!visitedRight) && (((right.isEmpty() || right.hasActor() || right.equals(origin)) && right.isWallSafe()) ||
-				(right.hasBox() && right.isMoveableBoxLocation(origin, dir.right(), visited))) &&
-				(left != null) && (!visitedLeft) && (left.isEmpty() || left.hasActor() || left.equals(origin) ||
-						(left.hasBox() && left.isMoveableBoxLocation(origin, dir.left(), visited))))
-			return true;
-		return false;
+		return puzzle.getBoxMobility().isMoveable(idx, origin.idx, taboo.idx, dir);
 	}
 
 	/**
@@ -321,7 +351,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return can the cell occupant move to the next cell in a given direction?
 	 */
 	public boolean canMove(Direction dir) {
-		return isEmpty() ? false : occ.canMove(dir);
+		return isEmpty() ? false : getOccupant().canMove(dir);
 	}
 
 	/**
@@ -332,7 +362,7 @@ public class Cell implements Comparable<Cell> {
 	public void move(Direction dir) {
 		if (!canMove(dir))
 			throw new IllegalArgumentException("cannot move "+dir);
-		occ.move(dir);
+		getOccupant().move(dir);
 	}
 
 	/**
@@ -341,7 +371,7 @@ public class Cell implements Comparable<Cell> {
 	 * @return is this cell occupied by a box on a target?
 	 */
 	public boolean onTarget() {
-		return isEmpty() ? false : occ.onTarget();
+		return hasBox() && isTarget();
 	}
 
 	/**
@@ -351,12 +381,7 @@ public class Cell implements Comparable<Cell> {
 	 */
 	@Override
 	public String toString() {
-		if (isEmpty() && !isTarget())
-			return ""+Sokoban.EMPTY;
-		else if (isEmpty() && isTarget())
-			return ""+Sokoban.TARGET;
-		else
-			return ""+occ;
+		return String.valueOf(getDisplay());
 	}
 
 	/**
@@ -408,8 +433,7 @@ public class Cell implements Comparable<Cell> {
 	private Sokoban  puzzle = null;
 	private int      row;
 	private int      col;
-	private Occupant occ    = null;
-	private boolean  target = false;
+	private int      idx;
 
 	private static boolean   traceOn = false; // for debugging
 }
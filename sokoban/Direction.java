@@ -1,6 +1,6 @@
 package sokoban;
 
- 
+import java.util.*;
 
 /**
  * Compass directions in a Sokoban puzzle.
@@ -65,6 +65,55 @@ public enum Direction {
 		}
 	}
 
+	/**
+	 * The bit for this direction in a bitmask of directions (1 shifted by the ordinal)
+	 *
+	 * @return the bit for this direction
+	 */
+	public int mask() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * The directions in a bitmask, as a vector (in declaration order)
+	 *
+	 * @param mask a bitmask of directions (see {@link #mask()})
+	 * @return a vector of the directions in the mask
+	 */
+	public static Vector<Direction> toVector(int mask) {
+		Vector<Direction> dirs = new Vector<>();
+		for (Direction dir : DIRECTIONS) {
+			if ((mask & dir.mask()) != 0)
+				dirs.add(dir);
+		}
+		return dirs;
+	}
+
+	/**
+	 * The directions in a vector, as a bitmask
+	 *
+	 * @param dirs a vector of directions (cannot be null)
+	 * @return a bitmask of the directions (see {@link #mask()})
+	 */
+	public static int toMask(Vector<Direction> dirs) {
+		if (dirs == null)
+			throw new IllegalArgumentException("dirs cannot be null");
+		int mask = 0;
+		for (Direction dir : dirs)
+			mask |= dir.mask();
+		return mask;
+	}
+
+	/**
+	 * Gets the direction with a given ordinal without copying values()
+	 *
+	 * @param ordinal the ordinal (0 to 3)
+	 * @return the direction
+	 */
+	public static Direction of(int ordinal) {
+		return DIRECTIONS[ordinal];
+	}
+
 	public static Direction fromString(String dirString) {
 		switch(dirString) {
 		case "NORTH":
@@ -79,4 +128,6 @@ public enum Direction {
 			return null;
 		}
 	}
+
+	private static final Direction[] DIRECTIONS = values();
 }
@@ -0,0 +1,144 @@
+package sokoban;
+
+import java.util.*;
+
+/**
+ * Spots freeze deadlocks: boxes that can never be moved again, where at least one
+ * of them is not on a target. A box is frozen if it is blocked both across and up
+ * and down. It is blocked along an axis if there is a wall on either side, or a
+ * frozen box on either side, or a dead square on both sides (it could be moved,
+ * but only onto a dead square). Whether a neighbouring box is frozen is worked
+ * out the same way, in turn; a box whose check is already under way counts as a
+ * wall, so a ring of boxes that hold one another in place is found to be frozen.
+ * Boxes frozen on targets are fine, so only a frozen group holding a box off its
+ * target is a deadlock.
+ *
+ * A check follows at most a fixed number of boxes (so it runs in bounded time,
+ * and the recursion stays shallow), and gives up, reporting no deadlock, if that
+ * is not enough. The boxes under way are marked in an epoch-stamped array, indexed
+ * by cell, that is allocated once for the puzzle's level and reused, so a check
+ * allocates nothing. An instance belongs to a single puzzle and is not thread safe.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+class FreezeDetector {
+	/**
+	 * Constructor
+	 *
+	 * @param puzzle the puzzle to check (cannot be null)
+	 */
+	FreezeDetector(Sokoban puzzle) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		this.puzzle = puzzle;
+		this.stamp  = new int[puzzle.getLevel().getNumCells()];
+	}
+
+	/**
+	 * Would pushing a box leave it frozen in a group of boxes that are not all on targets?
+	 *
+	 * @param from the cell index the box is pushed from (treated as empty)
+	 * @param to the cell index the box is pushed to (treated as holding the box)
+	 * @return would the push make a freeze deadlock?
+	 */
+	boolean isDeadlock(int from, int to) {
+		level = puzzle.getLevel();
+		board = puzzle.getBoard();
+		if (++epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+		this.from = from;
+		this.to   = to;
+		budget    = MAX_BOXES;
+		return frozen(to) == DEADLOCKED;
+	}
+
+	/**
+	 * Is a box frozen, and if so, are all the boxes holding it in place on targets?
+	 *
+	 * @param box the cell index of the box
+	 * @return FREE, STUCK (frozen, all on targets) or DEADLOCKED (frozen, some off target)
+	 */
+	private int frozen(int box) {
+		if (--budget < 0)
+			return FREE;
+		stamp[box] = epoch;
+		int result   = FREE;
+		int across   = blocked(box, Direction.WEST, Direction.EAST);
+		if (across != FREE) {
+			int upDown = blocked(box, Direction.NORTH, Direction.SOUTH);
+			if (upDown != FREE)
+				result = ((across == DEADLOCKED) || (upDown == DEADLOCKED) || !level.isTarget(box)) ? DEADLOCKED : STUCK;
+		}
+		stamp[box] = 0;
+		return result;
+	}
+
+	/**
+	 * Is a box blocked along an axis?
+	 *
+	 * @param box the cell index of the box
+	 * @param one the direction to one side
+	 * @param other the direction to the other side
+	 * @return FREE, STUCK (blocked only by walls, dead squares or boxes frozen on targets),
+	 * or DEADLOCKED (blocked by a frozen box in a group with a box off target)
+	 */
+	private int blocked(int box, Direction one, Direction other) {
+		int a = level.step(box, one);
+		int b = level.step(box, other);
+		if ((a < 0) || (b < 0) || level.isWall(a) || level.isWall(b))
+			return STUCK;
+		if (level.isDead(a) && level.isDead(b))
+			return STUCK;
+		int held = heldBy(a);
+		if (held == STUCK)
+			return STUCK;
+		int heldOther = heldBy(b);
+		if (heldOther == STUCK)
+			return STUCK;
+		return ((held == DEADLOCKED) || (heldOther == DEADLOCKED)) ? DEADLOCKED : FREE;
+	}
+
+	/**
+	 * Does the cell beside a box hold a box that cannot move?
+	 *
+	 * @param side the cell index beside the box
+	 * @return FREE (no box, or one that is not frozen), STUCK (a box whose check is
+	 * under way, or frozen with all on targets) or DEADLOCKED
+	 */
+	private int heldBy(int side) {
+		if (!hasBox(side))
+			return FREE;
+		if (stamp[side] == epoch) // under way: counts as a wall
+			return STUCK;
+		return frozen(side);
+	}
+
+	/**
+	 * Does a cell hold a box, once the pushed box has moved?
+	 *
+	 * @param idx the cell index
+	 * @return does the cell hold a box?
+	 */
+	private boolean hasBox(int idx) {
+		return (idx == to) || ((idx != from) && board.hasBox(idx));
+	}
+
+	private final Sokoban puzzle;
+	private final int[]   stamp;   // the boxes whose check is under way
+	private int           epoch  = 0;
+	private int           budget = 0;
+	private int           from   = -1;
+	private int           to     = -1;
+	private Level         level  = null;
+	private Board         board  = null;
+
+	// results of a check
+	private static final int FREE       = 0;
+	private static final int STUCK      = 1;
+	private static final int DEADLOCKED = 2;
+
+	private static final int MAX_BOXES = 64; // boxes a single check may follow
+}
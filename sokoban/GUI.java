@@ -10,6 +10,9 @@ import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
 import static java.util.Map.entry;
 
+import sokoban.solver.Solution;
+import sokoban.solver.SolverPlayer;
+
 /**
  * A graphical user interface for a Sokoban puzzle.
  *
@@ -22,28 +25,23 @@ public class GUI  {
 	 * Default constructor
 	 */
 	public GUI() {
-		Image brickImg         = new ImageIcon(workDir + "/image/brick-wall.png")
-			.getImage().getScaledInstance(imgHeight, imgWidth, Image.SCALE_DEFAULT);
-		Image boxImg           = new ImageIcon(workDir + "/image/icons8-box-16.png")
-			.getImage().getScaledInstance(imgHeight, imgWidth, Image.SCALE_DEFAULT);
-		Image humanImg         = new ImageIcon(workDir + "/image/icons8-human-51.png")
-			.getImage().getScaledInstance(imgHeight, imgWidth, Image.SCALE_DEFAULT);
-		Image targetImg        = new ImageIcon(workDir + "/image/icons8-target-48.png")
-			.getImage().getScaledInstance(imgHeight, imgWidth, Image.SCALE_DEFAULT);
-		Image humanTargetImg   = new ImageIcon(workDir + "/image/icons8-target-64.png")
-			.getImage().getScaledInstance(imgHeight, imgWidth, Image.SCALE_DEFAULT);
-		Image bullseyeImg      = new ImageIcon(workDir + "/image/icons8-bullseye-48.png")
-			.getImage().getScaledInstance(imgHeight, imgWidth, Image.SCALE_DEFAULT);
-
-		symbolMap = new HashMap<String,ImageIcon>();
-		symbolMap.put("#", new ImageIcon(brickImg));
-		symbolMap.put("$", new ImageIcon(boxImg));
-		symbolMap.put("@", new ImageIcon(humanImg));
-		symbolMap.put(".", new ImageIcon(targetImg));
-		symbolMap.put("+", new ImageIcon(humanTargetImg));
-		symbolMap.put("*", new ImageIcon(bullseyeImg));
+		HashMap<Character,ImageIcon> tileMap = new HashMap<Character,ImageIcon>();
+		tileMap.put(Sokoban.WALL,         new ImageIcon(workDir + "/image/brick-wall.png"));
+		tileMap.put(Sokoban.BOX,          new ImageIcon(workDir + "/image/icons8-box-16.png"));
+		tileMap.put(Sokoban.ACTOR,        new ImageIcon(workDir + "/image/icons8-human-51.png"));
+		tileMap.put(Sokoban.TARGET,       new ImageIcon(workDir + "/image/icons8-target-48.png"));
+		tileMap.put(Sokoban.TARGET_ACTOR, new ImageIcon(workDir + "/image/icons8-target-64.png"));
+		tileMap.put(Sokoban.TARGET_BOX,   new ImageIcon(workDir + "/image/icons8-bullseye-48.png"));
+		boardCanvas = new BoardCanvas(tileMap, imgHeight, numGrid);
 
 		appFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		appFrame.addWindowListener(new java.awt.event.WindowAdapter() {
+			@Override
+			public void windowClosing(java.awt.event.WindowEvent e) {
+				finishSaves();
+				endAutosave();
+			}
+		});
 		appFrame.setLayout(new BorderLayout(50, 50));
 		appFrame.setSize(frameHeight, frameWidth);
 
@@ -54,6 +52,7 @@ public class GUI  {
 			entry("S", "South"),
 			entry("P", "Player Move"),
 			entry("U", "Undo"),
+			entry("D", "Redo"),
 			entry("A", "New Game"),
 			entry("R", "Restart"),
 			entry("V", "Save"),
@@ -62,6 +61,18 @@ public class GUI  {
 		);
 	}
 
+	/**
+	 * Constructor playing levels from a level pack rather than the screens directory
+	 *
+	 * @param pack the level pack (cannot be null)
+	 */
+	public GUI(LevelPack pack) {
+		this();
+		if (pack == null)
+			throw new IllegalArgumentException("pack cannot be null");
+		this.pack = pack;
+	}
+
 	/**
 	 * Set up new game
 	 */
@@ -78,30 +89,55 @@ public class GUI  {
 	 * Initialise game attributes
 	 */
 	private void setScreen() {
+		if (pack != null) {
+			setPackLevel(ThreadLocalRandom.current().nextInt(1, pack.size() + 1));
+			return;
+		}
+		packLevel           =   0;
 		Integer randomNum   =   ThreadLocalRandom.current().nextInt(minScreen, maxScreen + 1);
 		screenFile          =   "screen." + randomNum.toString();
 		screenPath          =   workDir + "/screens/" + screenFile;
 		loadFile            =   new File(screenPath);
 	}
 
+	/**
+	 * Set the level of the pack to play
+	 *
+	 * @param number the level number (1 to the size of the pack)
+	 */
+	private void setPackLevel(int number) {
+		screenPath  =  pack.describe(number);
+		packLevel   =  number;
+	}
+
 	/**
 	 * Generate a new game from current game attribute
 	 */
 	private void setPuzzle() {
-		puzzle = new Sokoban(loadFile);
-		player = new RandomPlayer();
+		usePuzzle((packLevel > 0) ? pack.load(packLevel) : Snapshot.open(loadFile));
+	}
+
+	/**
+	 * Start playing a puzzle (a new game, so later saves go to a new file, and any
+	 * load still in progress is dropped when it finishes)
+	 *
+	 * @param newPuzzle the puzzle
+	 */
+	private void usePuzzle(Sokoban newPuzzle) {
+		puzzle = newPuzzle;
+		player = newPlayer();
+		boardCanvas.setPuzzle(puzzle);
 		validity = new ArrayList<Boolean>();
 		commands = new ArrayList<String>();
+		saveFile = null;
+		gameTicket++;
+		startAutosave();
 	}
 
 	/**
-	 * Generate the GUI frame
+	 * Generate the GUI frame (once; after that only the board and message change)
 	 */
 	private void getFrame() {
-		appFrame.getContentPane().removeAll();
-		appFrame.invalidate();
-		appFrame.revalidate();
-
 		genBoard();
 		genOutMsgPane();
 		genAdminBtns();
@@ -121,63 +157,38 @@ public class GUI  {
 	 */
 	private void genOutMsgPane() {
 		outputPane = new JTextPane();
-		JScrollPane scrollPane = new JScrollPane(outputPane);
 		outputPane.setEditable(false);
-		if (!(outMsg).equals("")){
-			outputPane.setMargin( new Insets(10,10,10,10) );
-			outputPane.setBackground(new Color(224, 255, 255));
+		outputPane.setMargin( new Insets(10,10,10,10) );
+		outputPane.setBackground(new Color(224, 255, 255));
+		outputPane.setFont(appFont);
+	}
+
+	/**
+	 * Show a message in the output pane (hidden if empty)
+	 *
+	 * @param msg the message to show
+	 */
+	private void showMessage(String msg) {
+		if (!(msg).equals("")){
 			outputPane.setForeground(new Color(43, 27, 23, 255));
-			outputPane.setFont(appFont);
-			outputPane.setText(outMsg);
+			outputPane.setText(msg);
 		} else {
-			outputPane.setMargin( new Insets(10,10,10,10) );
-			outputPane.setBackground(new Color(224, 255, 255));
 			outputPane.setForeground(outputPane.getBackground());
 		}
 	}
 
 	/**
-	 * Generate a frame for the Sokoban game board
+	 * Generate a frame for the Sokoban game board.
+	 * The board is painted by a {@link BoardCanvas}, which repaints only the cells
+	 * the puzzle reports as changed.
 	 */
 	private void genBoard() {
-		ArrayList<String> currGameState = Helpers.listFromString(puzzle.toString());
-		boardPanel = new JPanel();
-		boardPanel.setSize(frameHeight-10, frameWidth-10);
+		boardPanel = new JPanel(new BorderLayout());
 		boardPanel.setVisible(true);
-		boardPanel.setLayout(new GridLayout(numGrid, numGrid));
 
 		Border paneEdge = BorderFactory.createEmptyBorder(100,200,0,0);
-		boardPanel.setBorder(paneEdge);
-
-		for (Integer i = 0; i < numGrid; i++){
-			Integer  countBox = 0;
-			String   row      = null;
-			if ( i < currGameState.size()){
-				row = currGameState.get(i);
-				if (row.length() > 0){
-					countBox = row.length();
-				}
-			}
-
-			for (Integer j = 0; j < numGrid; j++){
-				JButton button = null;
-				button = new JButton();
-				button.setPreferredSize(new Dimension(20, 20));
-
-				if (countBox != 0 && j >= 0 && j < countBox) {
-					String theChar =  Character.toString(row.charAt(j));
-					if (!(theChar.equalsIgnoreCase(" "))){
-						button.setIcon(symbolMap.get(theChar));
-						button.setMargin(new Insets(0, 0, 0, 0));
-					}
-				}
-				button.setOpaque(false);
-				button.setContentAreaFilled(false);
-				button.setBorderPainted(false);
-				button.setBorder(null);
-				boardPanel.add(button);
-			}
-		}
+		boardCanvas.setBorder(paneEdge);
+		boardPanel.add(boardCanvas, BorderLayout.CENTER);
 	}
 
 	/**
@@ -187,16 +198,20 @@ public class GUI  {
 		JButton quitBtn     = new JButton("Quit");
 		JButton newBtn      = new JButton("New");
 		JButton loadBtn     = new JButton("Load");
+		JButton levelBtn    = new JButton("Level");
 
 		quitBtn.addActionListener(e ->    {quitPuzzle();});
 		newBtn.addActionListener(e ->     {newGame();});
 		loadBtn.addActionListener(e ->    {loadSavedPuzzle();});
+		levelBtn.addActionListener(e ->   {chooseLevel();});
 
 		quitBtn.setToolTipText("Quit this game");
 		newBtn.setToolTipText("Start a new game");
 		loadBtn.setToolTipText("Load previously saved game");
+		levelBtn.setToolTipText("Choose a level from the level pack");
+		levelBtn.setEnabled(pack != null);
 
-		JButton[] buttonList = {quitBtn, newBtn, loadBtn};
+		JButton[] buttonList = {quitBtn, newBtn, loadBtn, levelBtn};
 
 		for (JButton eachButton: buttonList){
 			eachButton.setPreferredSize(new Dimension(50, 30));
@@ -212,6 +227,7 @@ public class GUI  {
 		adminPanel.add(quitBtn);
 		adminPanel.add(newBtn);
 		adminPanel.add(loadBtn);
+		adminPanel.add(levelBtn);
 	}
 
 	/**
@@ -224,6 +240,7 @@ public class GUI  {
 		JButton sMoveBtn     =  new JButton("S");
 		JButton rMoveBtn     =  new JButton("P");
 		JButton uMoveBtn     =  new JButton("Undo");
+		JButton dMoveBtn     =  new JButton("Redo");
 		JButton hMoveBtn     =  new JButton("Help");
 		JButton saveBtn      =  new JButton("Save");
 		JButton restartBtn   =  new JButton("Restart");
@@ -238,6 +255,7 @@ public class GUI  {
 		sMoveBtn.setToolTipText("Move south");
 		rMoveBtn.setToolTipText("Computer move");
 		uMoveBtn.setToolTipText("Undo last move");
+		dMoveBtn.setToolTipText("Redo last undone move");
 		hMoveBtn.setToolTipText("Get help on how to play");
 		saveBtn.setToolTipText("Save this game");
 		restartBtn.setToolTipText("Restart this game");
@@ -249,11 +267,12 @@ public class GUI  {
 		saveBtn.addActionListener(e ->    {savePuzzle();});
 		restartBtn.addActionListener(e -> {clearPuzzle();});
 		uMoveBtn.addActionListener(e ->   {undoMove();});
+		dMoveBtn.addActionListener(e ->   {redoMove();});
 		rMoveBtn.addActionListener(e ->   {playerMove();});
 		hMoveBtn.addActionListener(e ->   {showHelp();});
 
 		JButton[] buttonList = {
-			nMoveBtn, eMoveBtn, wMoveBtn, sMoveBtn, uMoveBtn,
+			nMoveBtn, eMoveBtn, wMoveBtn, sMoveBtn, uMoveBtn, dMoveBtn,
 			rMoveBtn, hMoveBtn, saveBtn, restartBtn,
 			invisible1, invisible2, invisible3, invisible4
 		};
@@ -262,6 +281,7 @@ public class GUI  {
 			if (
 				eachButton.getText().equals("Help") ||
 				eachButton.getText().equals("Undo") ||
+				eachButton.getText().equals("Redo") ||
 				eachButton.getText().equals("Save") ||
 				eachButton.getText().equals("Restart")
 			){
@@ -308,29 +328,68 @@ public class GUI  {
 		playPanel.add(restartBtn);
 		playPanel.add(movePanel);
 		playPanel.add(uMoveBtn);
+		playPanel.add(dMoveBtn);
 		playPanel.add(hMoveBtn);
 	}
 
 	/**
-	 * Refresh frame and clear output message
+	 * Refresh frame with a new output message, building the frame on first use.
+	 * The board repaints itself as the puzzle changes.
 	 *
 	 * @param command the user command string
 	 */
 	private void refreshFrame(String command) {
-		outMsg = command;
-		getFrame();
-		outMsg = "";
+		if (outputPane == null)
+			getFrame();
+		showMessage(command);
 	}
 
 	/**
-	 * Move the actor according to the computer player's choice
+	 * Move the actor according to the computer player's choice. When the player needs a
+	 * new plan, the solver works on a copy of the puzzle on the background solver thread
+	 * and the move is made once it is done, so the window never waits for the search.
 	 */
 	private void playerMove() {
 		commands.add("P");
-		Vector<Direction> choices = puzzle.canMove();
-		Direction         choice  = player.move(choices);
+		if (planning) {
+			validity.add(false);
+			refreshFrame("Still planning, please wait ...");
+			return;
+		}
 		validity.add(true);
-		move(choice);
+		if (!(player instanceof SolverPlayer) || !((SolverPlayer) player).needsPlan()) {
+			move(player.move(puzzle.legalMoves()));
+			return;
+		}
+		SolverPlayer planner  = (SolverPlayer) player;
+		Sokoban      position = (Sokoban) puzzle.clone();
+		planning = true;
+		refreshFrame("Planning moves ...");
+		solverExecutor.execute(() -> {
+			Solution solution = planner.plan(position);
+			SwingUtilities.invokeLater(() -> finishPlan(planner, position, solution));
+		});
+	}
+
+	/**
+	 * Follow a plan worked out on the solver thread (unless another game was started
+	 * meanwhile, with a new player) and make its first move
+	 *
+	 * @param planner the player that asked for the plan
+	 * @param position the position it was planned from
+	 * @param solution the solver's outcome
+	 */
+	private void finishPlan(SolverPlayer planner, Sokoban position, Solution solution) {
+		planning = false;
+		if (planner != player)
+			return;
+		planner.usePlan(solution, position);
+		System.out.println("Solver: " + solution);
+		if (planner.needsPlan()) {
+			refreshFrame("The puzzle changed while planning; press the button again.");
+			return;
+		}
+		move(planner.move(puzzle.legalMoves()));
 	}
 
 	/**
@@ -361,38 +420,35 @@ public class GUI  {
 	}
 
 	/**
-	 * Undo last player move if move is E, W, N, S, P
+	 * Undo the last player move (repeat to undo further back)
 	 */
 	private void undoMove() {
 		commands.add("U");
 		String msg  =  "";
-		if (commands.size() >= 2){
-			String lastCommand = commands.get(commands.size()-2).toUpperCase();
-			if (
-				validity.size() >= 1 && validity.get(validity.size()-1) &&
-				(
-					lastCommand.equalsIgnoreCase("N") ||
-					lastCommand.equalsIgnoreCase("S") ||
-					lastCommand.equalsIgnoreCase("E") ||
-					lastCommand.equalsIgnoreCase("W") ||
-					lastCommand.equalsIgnoreCase("P")
-				)
-			) {
-				try {
-					puzzle.undo();
-					System.out.println("Command '" + commandMap.get(lastCommand) + "' undone.");
-					msg = "Command '" + commandMap.get(lastCommand) + "' undone.";
-				} catch (IllegalStateException ex) {
-					System.out.println("No previous moves available!");
-					msg = "No previous moves available!";
-				}
-			} else {
-				System.out.println("Command '" + commandMap.get(lastCommand) + "' cannot be undone.");
-				msg = "Command '" + commandMap.get(lastCommand) + "' cannot be undone.";
-			}
+		if (puzzle.canUndo()) {
+			puzzle.undo();
+			System.out.println("Command '" + commandMap.get("U") + "' done.");
+			msg = "Command '" + commandMap.get("U") + "' done.";
+		} else {
+			System.out.println("No previous moves available!");
+			msg = "No previous moves available!";
+		}
+		refreshFrame(msg);
+	}
+
+	/**
+	 * Redo the last undone player move
+	 */
+	private void redoMove() {
+		commands.add("D");
+		String msg  =  "";
+		if (puzzle.canRedo()) {
+			puzzle.redo();
+			System.out.println("Command '" + commandMap.get("D") + "' done.");
+			msg = "Command '" + commandMap.get("D") + "' done.";
 		} else {
-			System.out.println("Not enough commands to undo move.");
-			msg = "Not enough commands to undo move.";
+			System.out.println("No undone moves available!");
+			msg = "No undone moves available!";
 		}
 		refreshFrame(msg);
 	}
@@ -415,7 +471,10 @@ public class GUI  {
 	}
 
 	/**
-	 * Save puzzle state to file
+	 * Save puzzle state to file. The game is encoded here and written out on the
+	 * background I/O thread, so play carries on while it is written. Each game is
+	 * saved to one file; if it is saved again before an earlier save has been
+	 * written, only the latest position is written.
 	 */
 	private void savePuzzle() {
 		commands.add("V");
@@ -427,45 +486,244 @@ public class GUI  {
 			System.out.println("Cannot save completed game.");
 			msg = "Cannot save completed game.";
 		} else {
-			DateTimeFormatter dtf   =  DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss");
-			LocalDateTime     now   =  LocalDateTime.now();
-			String filename = "puzzle-" + dtf.format(now);
-			String filepath = workDir + "/snapshot/" + filename;
-			String relFilepath = "./snapshot/" + filename;
-
-			try (PrintStream out = new PrintStream(new FileOutputStream(filepath))) {
-				out.print(puzzle.toString());
-				System.out.println("Puzzle saved in: " + filepath);
-				msg = "Puzzle saved in: \n" + relFilepath;
-			} catch (FileNotFoundException e){
-				throw new SokobanException("File not found" + e);
+			if (saveFile == null) {
+				DateTimeFormatter dtf   =  DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss");
+				LocalDateTime     now   =  LocalDateTime.now();
+				String filename = "puzzle-" + dtf.format(now) + Snapshot.SUFFIX;
+				saveFile = new File(workDir + "/snapshot/" + filename);
 			}
+			File   file  = saveFile;
+			byte[] bytes = Snapshot.toBytes(puzzle);
+			synchronized (pendingSaves) {
+				// an earlier save of this game still waiting is simply given the newer position
+				if (pendingSaves.put(file, bytes) == null)
+					ioExecutor.execute(() -> writeSave(file));
+			}
+			msg = "Saving puzzle to: \n./snapshot/" + file.getName() + " ...";
 		}
 		refreshFrame(msg);
 	}
 
 	/**
-	 * Load saved puzzle from file
+	 * Write the latest position waiting to be saved to a file (on the I/O thread),
+	 * then report how it went
+	 *
+	 * @param file the file
+	 */
+	private void writeSave(File file) {
+		byte[] bytes;
+		synchronized (pendingSaves) {
+			bytes = pendingSaves.remove(file);
+		}
+		String msg;
+		try {
+			Snapshot.write(bytes, file);
+			System.out.println("Puzzle saved in: " + file.getPath());
+			msg = "Puzzle saved in: \n./snapshot/" + file.getName();
+		} catch (SokobanException e) {
+			System.out.println("Unable to save game: " + e.getMessage());
+			msg = "Unable to save game: \n" + e.getMessage();
+		}
+		String done = msg;
+		SwingUtilities.invokeLater(() -> refreshFrame(done));
+	}
+
+	/**
+	 * Load saved puzzle from file. The saved games are listed, and the chosen one is
+	 * read, on the background I/O thread; only the choosing happens here.
 	 */
 	private void loadSavedPuzzle() {
 		commands.add("L");
-		String msg  = "";
+		refreshFrame("Locating saved game files ...");
+		ioExecutor.execute(() -> {
+			java.util.List<SnapshotCatalog.Entry> saves = listSaves();
+			SwingUtilities.invokeLater(() -> chooseAndLoad(saves));
+		});
+	}
 
-		JFileChooser fileChooser = new JFileChooser();
-		fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
-		int fileChoice = fileChooser.showOpenDialog(appFrame);
-		if(fileChoice == JFileChooser.APPROVE_OPTION){
-			loadFile  =  fileChooser.getSelectedFile();
-			setPuzzle();
-			System.out.println("Loaded saved game from \n" + loadFile.getAbsolutePath() + "\n");
-			msg = "Loaded saved game from " + loadFile.getAbsolutePath();
-		} else{
+	/**
+	 * List the saved games, reading the details of those first in view (on the I/O thread)
+	 *
+	 * @return the saved games, newest first
+	 */
+	private java.util.List<SnapshotCatalog.Entry> listSaves() {
+		if (catalog == null)
+			catalog = new SnapshotCatalog(new File(workDir + "/snapshot"));
+		java.util.List<SnapshotCatalog.Entry> saves = catalog.page(0, Math.max(1, catalog.size()));
+		for (int i=0; i<Math.min(saves.size(), visibleSaves); i++)
+			saves.get(i).isValid();
+		return saves;
+	}
+
+	/**
+	 * Let the user choose a saved game, then read it on the I/O thread
+	 *
+	 * @param saves the saved games, newest first
+	 */
+	private void chooseAndLoad(java.util.List<SnapshotCatalog.Entry> saves) {
+		File chosen = chooseSavedPuzzle(saves);
+		if (chosen == null) {
 			System.out.println("Unable to load saved game");
-			msg = "Unable to load saved game";
+			refreshFrame("Unable to load saved game");
+			return;
+		}
+		int ticket = ++gameTicket;
+		refreshFrame("Loading saved game from " + chosen.getAbsolutePath() + " ...");
+		ioExecutor.execute(() -> {
+			try {
+				Sokoban loaded = Snapshot.open(chosen);
+				SwingUtilities.invokeLater(() -> finishLoad(ticket, chosen, loaded));
+			} catch (SokobanException e) {
+				System.out.println("Unable to load saved game: " + e.getMessage());
+				SwingUtilities.invokeLater(() -> refreshFrame("Unable to load saved game: \n" + e.getMessage()));
+			}
+		});
+	}
+
+	/**
+	 * Start playing a game that has been read (unless another game was started meanwhile)
+	 *
+	 * @param ticket the game ticket when the load was asked for
+	 * @param file the file it was read from
+	 * @param loaded the game read
+	 */
+	private void finishLoad(int ticket, File file, Sokoban loaded) {
+		if (ticket != gameTicket)
+			return;
+		loadFile  =  file;
+		packLevel =  0;
+		usePuzzle(loaded);
+		System.out.println("Loaded saved game from \n" + file.getAbsolutePath() + "\n");
+		refreshFrame("Loaded saved game from " + file.getAbsolutePath());
+	}
+
+	/**
+	 * Choose a saved game from the catalog of the snapshot directory (newest first),
+	 * or any other file. The list only shows the rows in view, so it opens quickly
+	 * however many games have been saved.
+	 *
+	 * @param saves the saved games, newest first
+	 * @return the chosen file (or null if none was chosen)
+	 */
+	private File chooseSavedPuzzle(java.util.List<SnapshotCatalog.Entry> saves) {
+		JList<SnapshotCatalog.Entry> saveList = new JList<SnapshotCatalog.Entry>(new AbstractListModel<SnapshotCatalog.Entry>() {
+			public int getSize() {
+				return saves.size();
+			}
+
+			public SnapshotCatalog.Entry getElementAt(int i) {
+				return saves.get(i);
+			}
+		});
+		saveList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		saveList.setFixedCellWidth(900);
+		saveList.setFixedCellHeight(22);
+		saveList.setVisibleRowCount(visibleSaves);
+		saveList.setFont(new Font("Monospaced", Font.PLAIN, 14));
+		if (!saves.isEmpty())
+			saveList.setSelectedIndex(0);
+
+		Object[] options = {"Load", "Other file...", "Cancel"};
+		Object   message = saves.isEmpty() ? "No saved game files available." : new JScrollPane(saveList);
+		int choice = JOptionPane.showOptionDialog(appFrame, message, "Load saved game",
+			JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+		if ((choice == 0) && (saveList.getSelectedValue() != null))
+			return saveList.getSelectedValue().getFile();
+		if (choice == 1) {
+			JFileChooser fileChooser = new JFileChooser(new File(workDir + "/snapshot"));
+			fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+			if (fileChooser.showOpenDialog(appFrame) == JFileChooser.APPROVE_OPTION)
+				return fileChooser.getSelectedFile();
+		}
+		return null;
+	}
+
+	/**
+	 * Wait (briefly) for saves still being written, before the program ends
+	 */
+	private void finishSaves() {
+		ioExecutor.shutdown();
+		try {
+			if (!ioExecutor.awaitTermination(10, TimeUnit.SECONDS))
+				System.out.println("Gave up waiting for saves to finish.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
-		refreshFrame(msg);
 	}
 
+	/**
+	 * Autosave this and later games to a move log, so an interrupted session can be recovered
+	 *
+	 * @param logFile the log file (cannot be null)
+	 */
+	public void setAutosave(File logFile) {
+		if (logFile == null)
+			throw new IllegalArgumentException("logFile cannot be null");
+		autosave = logFile;
+		startAutosave();
+	}
+
+	/**
+	 * Recover the game left in a move log by an interrupted session, and carry on autosaving to it
+	 *
+	 * @param logFile the log file (cannot be null)
+	 */
+	public void recoverAutosave(File logFile) {
+		if (logFile == null)
+			throw new IllegalArgumentException("logFile cannot be null");
+		autosave   = logFile;
+		screenPath = logFile.getPath();
+		packLevel  = 0;
+		usePuzzle(MoveLog.recover(logFile));
+		refreshFrame("Recovered the interrupted game.");
+	}
+
+	/**
+	 * Start a fresh move log for the current game (if autosave is on)
+	 */
+	private void startAutosave() {
+		if (autosave == null)
+			return;
+		if (moveLog != null)
+			moveLog.close();
+		moveLog = MoveLog.start(puzzle, autosave);
+	}
+
+	/**
+	 * Stop autosaving and delete the move log, as the session has ended cleanly
+	 */
+	private void endAutosave() {
+		if (moveLog != null)
+			moveLog.discard();
+		moveLog = null;
+	}
+
+	/**
+	 * Choose a level of the pack to play, by number or title
+	 */
+	private void chooseLevel() {
+		commands.add("C");
+		String response = JOptionPane.showInputDialog(appFrame,
+			"Level number (1-" + pack.size() + ") or title:", pack.getFile().getName(), JOptionPane.QUESTION_MESSAGE);
+		if (response == null)
+			return;
+		int number;
+		try {
+			number = Integer.parseInt(response.trim());
+		} catch (NumberFormatException ex) {
+			number = pack.find(response);
+		}
+		String msg;
+		if ((number < 1) || (number > pack.size())) {
+			msg = "No such level (" + response + ")";
+		} else {
+			setPackLevel(number);
+			setPuzzle();
+			msg = "Playing " + screenPath;
+		}
+		System.out.println(msg);
+		refreshFrame(msg);
+	}
 
 	/**
 	 * Show game help
@@ -478,9 +736,11 @@ public class GUI  {
 			"     [Quit]       Quit the current game",
 			"     [New]        Start a new game",
 			"     [Load]       Load from a previously saved game",
+			"     [Level]      Choose a level from the level pack",
 			"     [Save]       Save the current game",
 			"     [Restart]    Restart this game from the beginning",
 			"     [Undo]       Undo the previous player move",
+			"     [Redo]       Redo the last undone player move",
 			"     [Help]       Opens this help panel",
 			"     [N]          Move actor north",
 			"     [P]          Make computer move",
@@ -508,11 +768,33 @@ public class GUI  {
 		System.out.println("Program shutting down.");
 		String msg = "Program shutting down.";
 		refreshFrame(msg);
+		finishSaves();
+		endAutosave();
 		appFrame.setVisible(false);
 		appFrame.dispose();
 		System.exit(0);
 	}
 
+	/**
+	 * Choose the computer player for the Player Move button, for this and later games
+	 *
+	 * @param useSolver follow the solver's plan (the default), or make random moves?
+	 */
+	public void setSolverPlayer(boolean useSolver) {
+		this.useSolver = useSolver;
+		if (puzzle != null)
+			player = newPlayer();
+	}
+
+	/**
+	 * A computer player for the current puzzle
+	 *
+	 * @return the player
+	 */
+	private Player newPlayer() {
+		return useSolver ? new SolverPlayer(puzzle) : new RandomPlayer();
+	}
+
 	/**
 	 * A trace method for debugging (active when traceOn is true)
 	 *
@@ -525,31 +807,54 @@ public class GUI  {
 
 	private Sokoban puzzle     = null;
 	private Player  player     = null;
+	private boolean useSolver  = true;
+	private boolean planning   = false;
 	private File    loadFile   = null;
+	private LevelPack pack     = null;
+	private int     packLevel  = 0;
+	private File    autosave   = null;
+	private MoveLog moveLog    = null;
+	private SnapshotCatalog catalog = null;
+	private File    saveFile   = null;
+	private int     gameTicket = 0;
+
+	// saving and loading happen on one background thread, so the window never waits for the disk
+	private final ExecutorService   ioExecutor   = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "GUI save/load");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<File,byte[]>  pendingSaves = new HashMap<File,byte[]>();
+
+	// the computer player's solver runs on its own background thread, so the window never waits for it
+	private final ExecutorService   solverExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "GUI solver");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	private JTextPane   outputPane     = null;
 	private JPanel      boardPanel     = null;
 	private JPanel      adminPanel     = null;
 	private JPanel      playPanel      = null;
+	private BoardCanvas boardCanvas    = null;
 	private JFrame      appFrame       = new JFrame("Sokoban Game");
 
-	private String  outMsg          = "";
 	private String  screenFile      = null;
 	private String  screenPath      = null;
 
 	private static Integer imgHeight     = 20;
-	private static Integer imgWidth      = 20;
 	private static Integer frameHeight   = 800;
 	private static Integer frameWidth    = 800;
 	private static Integer numGrid       = 30;
 	private static Integer minScreen     = 1;
 	private static Integer maxScreen     = 90;
+	private static int     visibleSaves  = 15;
 	private static boolean traceOn       = true; // for debugging
 	private static String  workDir       = System.getProperty("user.dir");
 	private static Font    appFont       = new Font("Monospaced", Font.BOLD, 20);
 	private ArrayList<String>   commands  = null;
 	private ArrayList<Boolean>  validity  = null;
 
-	private static HashMap<String,ImageIcon> symbolMap  =  null;
 	private static Map<String,String> commandMap  =  null;
 }
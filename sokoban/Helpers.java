@@ -2,6 +2,8 @@ package sokoban;
 
  
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 
 
@@ -9,40 +11,42 @@ public class Helpers {
 	Helpers(){}
 
 	/** 
-	 * Get a list of Strings from a multiline String.
+	 * Get a list of Strings from a multiline String (blank lines are left out).
 	 */
 	public static ArrayList<String> listFromString(String str){
-		Scanner           scnr = null;
 		ArrayList<String> lines = new ArrayList<>();
-		scnr = new Scanner(str);
-		while (scnr.hasNextLine()) {
-			String line = scnr.nextLine();
-			if (line.length() > 0)
-				lines.add(line);
+		int               start = 0;
+		int               len   = str.length();
+		for (int i=0; i<=len; i++) {
+			char c = (i < len) ? str.charAt(i) : '\n';
+			if ((c != '\n') && (c != '\r'))
+				continue;
+			if (i > start)
+				lines.add(str.substring(start, i));
+			if ((c == '\r') && (i + 1 < len) && (str.charAt(i + 1) == '\n'))
+				i++;
+			start = i + 1;
 		}
-		scnr.close();
 		return lines;
 	}
 
 	/** 
-	 * Convert file to string
+	 * Convert file to string (read in one go as ISO-8859-1, like {@link LevelLoader},
+	 * with every line ended by a newline)
 	 */
 	public static String fileAsString(File file){
 		if (file == null)
 		throw new IllegalArgumentException("file cannot be null");
-		Scanner      fscnr = null;
-		StringBuffer sb    = new StringBuffer();
+		String text;
 		try {
-			fscnr = new Scanner(file);
-			while (fscnr.hasNextLine())
-				sb.append(fscnr.nextLine()+"\n");
+			text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
 		} catch(IOException e) {
 			throw new SokobanException(""+e);
-		} finally {
-			if (fscnr != null)
-				fscnr.close();
 		}
-		return sb.toString();
+		text = text.replace("\r\n", "\n").replace('\r', '\n');
+		if ((text.length() > 0) && !text.endsWith("\n"))
+			text += "\n";
+		return text;
 	}
 
 }
@@ -0,0 +1,336 @@
+package sokoban;
+
+/**
+ * The static layout of a Sokoban puzzle: its dimensions, walls and targets.
+ * Cells are numbered row by row from 0 (index = row * numCols + col) and the
+ * walls and targets are held as packed bitsets over those indices.
+ * A level never changes once built, so it can be shared by any number of puzzles.
+ * Anything that depends only on the walls and targets (such as the dead squares)
+ * is worked out once, when the level is built.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public final class Level {
+	/**
+	 * Constructor
+	 *
+	 * @param numRows the number of cell rows
+	 * @param numCols the number of cell columns
+	 * @param walls bitset of wall cells (taken over, not copied)
+	 * @param targets bitset of target cells (taken over, not copied)
+	 */
+	Level(int numRows, int numCols, long[] walls, long[] targets) {
+		if ((numRows < 0) || (numCols < 0))
+			throw new IllegalArgumentException("invalid dimensions");
+		if ((walls == null) || (targets == null))
+			throw new IllegalArgumentException("walls and targets cannot be null");
+		this.numRows    = numRows;
+		this.numCols    = numCols;
+		this.numCells   = numRows * numCols;
+		this.walls      = walls;
+		this.targets    = targets;
+		this.numTargets = bitCount(targets);
+		this.dead       = computeDeadSquares();
+		this.print      = computeFingerprint();
+	}
+
+	/**
+	 * Gets the number of cell rows
+	 *
+	 * @return the number of cell rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gets the number of cell columns
+	 *
+	 * @return the number of cell columns
+	 */
+	public int getNumCols() {
+		return numCols;
+	}
+
+	/**
+	 * Gets the number of cells
+	 *
+	 * @return the number of cells
+	 */
+	public int getNumCells() {
+		return numCells;
+	}
+
+	/**
+	 * Gets the number of targets
+	 *
+	 * @return the number of targets
+	 */
+	public int numTargets() {
+		return numTargets;
+	}
+
+	/**
+	 * Gets the index of a cell
+	 *
+	 * @param row row number (starts from 0)
+	 * @param col column number (starts from 0)
+	 * @return the cell index (or -1 if off the grid)
+	 */
+	public int index(int row, int col) {
+		if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
+			return -1;
+		return row * numCols + col;
+	}
+
+	/**
+	 * Gets the row of a cell index
+	 *
+	 * @param idx the cell index
+	 * @return the cell row
+	 */
+	public int rowOf(int idx) {
+		return idx / numCols;
+	}
+
+	/**
+	 * Gets the column of a cell index
+	 *
+	 * @param idx the cell index
+	 * @return the cell column
+	 */
+	public int colOf(int idx) {
+		return idx % numCols;
+	}
+
+	/**
+	 * Get the index of the next cell in a given direction
+	 *
+	 * @param idx the cell index
+	 * @param dir the direction to step
+	 * @return the index of the next cell (or -1 if off the grid)
+	 */
+	public int step(int idx, Direction dir) {
+		switch (dir) {
+		case NORTH:
+			return (idx >= numCols) ? idx - numCols : -1;
+		case SOUTH:
+			return (idx + numCols < numCells) ? idx + numCols : -1;
+		case EAST:
+			return ((idx % numCols) != numCols - 1) ? idx + 1 : -1;
+		default: // WEST
+			return ((idx % numCols) != 0) ? idx - 1 : -1;
+		}
+	}
+
+	/**
+	 * Checks if a cell is a wall
+	 *
+	 * @param idx the cell index
+	 * @return is the cell a wall?
+	 */
+	public boolean isWall(int idx) {
+		return get(walls, idx);
+	}
+
+	/**
+	 * Checks if a cell is a target
+	 *
+	 * @param idx the cell index
+	 * @return is the cell a target?
+	 */
+	public boolean isTarget(int idx) {
+		return get(targets, idx);
+	}
+
+	/**
+	 * Checks if a cell is a dead square: a box there could never be pushed to any target,
+	 * whatever the other boxes do. Walls are not dead squares.
+	 *
+	 * @param idx the cell index
+	 * @return is the cell a dead square?
+	 */
+	public boolean isDead(int idx) {
+		return get(dead, idx);
+	}
+
+	/**
+	 * Work out the dead squares by pulling a box backwards from every target.
+	 * A box can be pulled from p to q (one step in some direction) if q and the square
+	 * beyond it are not walls, as the actor would stand there to push it back.
+	 * Every square a box can be pulled to from a target is live; all other non-wall
+	 * squares are dead.
+	 *
+	 * @return bitset of the dead squares
+	 */
+	private long[] computeDeadSquares() {
+		long[] live  = new long[walls.length];
+		int[]  queue = new int[numCells];
+		int    head  = 0;
+		int    tail  = 0;
+		for (int idx=0; idx<numCells; idx++) {
+			if (isTarget(idx) && !isWall(idx)) {
+				set(live, idx);
+				queue[tail++] = idx;
+			}
+		}
+		while (head < tail) {
+			int box = queue[head++];
+			for (Direction dir : DIRECTIONS) {
+				int to    = step(box, dir);
+				int actor = (to < 0) ? -1 : step(to, dir);
+				if ((actor < 0) || isWall(to) || isWall(actor) || get(live, to))
+					continue;
+				set(live, to);
+				queue[tail++] = to;
+			}
+		}
+		long[] deadSquares = new long[walls.length];
+		for (int idx=0; idx<numCells; idx++)
+			if (!isWall(idx) && !get(live, idx))
+				set(deadSquares, idx);
+		return deadSquares;
+	}
+
+	/**
+	 * Gets the Zobrist keys for hashing positions on this level (generated on first use)
+	 *
+	 * @return the Zobrist keys
+	 */
+	public Zobrist getZobrist() {
+		Zobrist keys = zobrist;
+		return (keys != null) ? keys : generateZobrist();
+	}
+
+	/**
+	 * Generate the Zobrist keys (once, even if several threads ask at the same time)
+	 *
+	 * @return the Zobrist keys
+	 */
+	private synchronized Zobrist generateZobrist() {
+		if (zobrist == null)
+			zobrist = new Zobrist(numCells);
+		return zobrist;
+	}
+
+	/**
+	 * Gets a 64-bit fingerprint of the layout (dimensions, walls and targets), so that
+	 * saved positions can be checked against the level they were made on
+	 *
+	 * @return the fingerprint
+	 */
+	public long fingerprint() {
+		return print;
+	}
+
+	/**
+	 * Work out the fingerprint of the layout
+	 *
+	 * @return the fingerprint
+	 */
+	private long computeFingerprint() {
+		long h = mix(((long) numRows << 32) | numCols);
+		for (long word : walls)
+			h = mix(h ^ word);
+		for (long word : targets)
+			h = mix(h + word);
+		return h;
+	}
+
+	/**
+	 * Mix the bits of a value (the SplitMix64 finaliser)
+	 *
+	 * @param z the value
+	 * @return the mixed value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Gets the wall bitset (shared, must not be modified)
+	 *
+	 * @return the wall bitset
+	 */
+	long[] getWalls() {
+		return walls;
+	}
+
+	/**
+	 * Gets the target bitset (shared, must not be modified)
+	 *
+	 * @return the target bitset
+	 */
+	long[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Number of longs needed for a bitset over a given number of cells
+	 *
+	 * @param numCells the number of cells
+	 * @return the bitset length in longs
+	 */
+	static int words(int numCells) {
+		return (numCells + 63) >>> 6;
+	}
+
+	/**
+	 * Test a bit in a bitset
+	 *
+	 * @param bits the bitset
+	 * @param idx the bit index
+	 * @return is the bit set?
+	 */
+	static boolean get(long[] bits, int idx) {
+		return (bits[idx >>> 6] & (1L << idx)) != 0;
+	}
+
+	/**
+	 * Set a bit in a bitset
+	 *
+	 * @param bits the bitset
+	 * @param idx the bit index
+	 */
+	static void set(long[] bits, int idx) {
+		bits[idx >>> 6] |= (1L << idx);
+	}
+
+	/**
+	 * Clear a bit in a bitset
+	 *
+	 * @param bits the bitset
+	 * @param idx the bit index
+	 */
+	static void clear(long[] bits, int idx) {
+		bits[idx >>> 6] &= ~(1L << idx);
+	}
+
+	/**
+	 * Count the bits set in a bitset
+	 *
+	 * @param bits the bitset
+	 * @return the number of bits set
+	 */
+	static int bitCount(long[] bits) {
+		int num = 0;
+		for (long word : bits)
+			num += Long.bitCount(word);
+		return num;
+	}
+
+	private final int    numRows;
+	private final int    numCols;
+	private final int    numCells;
+	private final int    numTargets;
+	private final long[] walls;
+	private final long[] targets;
+	private final long[] dead;
+	private final long   print;
+	private volatile Zobrist zobrist = null;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
@@ -0,0 +1,57 @@
+package sokoban;
+
+/**
+ * A problem with the text of a Sokoban screen, with where it was found.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+@SuppressWarnings("serial")
+public class LevelFormatException extends SokobanException {
+	/**
+	 * Constructor with where the problem was found
+	 *
+	 * @param source where the screen came from (a file name, or null if not known)
+	 * @param line the line of the problem (numbered from 1)
+	 * @param column the column of the problem (numbered from 1, or 0 for the whole line)
+	 * @param msg the explanatory message
+	 */
+	public LevelFormatException(String source, int line, int column, String msg) {
+		super(((source == null) ? "" : source + ": ") + "line " + line
+			+ ((column > 0) ? ", column " + column : "") + ": " + msg);
+		this.source = source;
+		this.line   = line;
+		this.column = column;
+	}
+
+	/**
+	 * Gets where the screen came from
+	 *
+	 * @return the source (null if not known)
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the line of the problem
+	 *
+	 * @return the line (numbered from 1)
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Gets the column of the problem
+	 *
+	 * @return the column (numbered from 1, or 0 for the whole line)
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	private final String source;
+	private final int    line;
+	private final int    column;
+}
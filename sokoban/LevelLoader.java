@@ -0,0 +1,209 @@
+package sokoban;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Reads Sokoban screens straight into the packed level and board representation.
+ * A file is read with a single NIO call and its bytes are parsed in one pass, with no
+ * intermediate strings: walls, targets, boxes and the actor are noted by row and
+ * column as they are met, and placed into bitsets once the width of the widest row
+ * is known. Blank lines are skipped, and lines may end with LF, CRLF or CR.
+ * As in XSB collections, '-' and '_' are also accepted for an empty floor cell.
+ * Malformed input is reported with a {@link LevelFormatException} giving the line
+ * and column.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public final class LevelLoader {
+	/**
+	 * No instances; everything is static
+	 */
+	private LevelLoader() {
+	}
+
+	/**
+	 * Load a puzzle from a screen file
+	 *
+	 * @param file the screen file (cannot be null)
+	 * @return the puzzle
+	 */
+	public static Sokoban load(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		return new Sokoban(read(file.toPath()));
+	}
+
+	/**
+	 * Load a puzzle from a screen file
+	 *
+	 * @param path the screen file (cannot be null)
+	 * @return the puzzle
+	 */
+	public static Sokoban load(Path path) {
+		return new Sokoban(read(path));
+	}
+
+	/**
+	 * Build a puzzle from a screen held in a string
+	 *
+	 * @param screen the screen (cannot be null)
+	 * @return the puzzle
+	 */
+	public static Sokoban parse(String screen) {
+		return new Sokoban(parseScreen(screen));
+	}
+
+	/**
+	 * Read a screen file into a board (on a new level)
+	 *
+	 * @param path the screen file (cannot be null)
+	 * @return the starting board
+	 */
+	static Board read(Path path) {
+		if (path == null)
+			throw new IllegalArgumentException("path cannot be null");
+		byte[] buf;
+		try {
+			buf = Files.readAllBytes(path);
+		} catch (IOException e) {
+			throw new SokobanException("Cannot read " + path + ": " + e);
+		}
+		return parse(buf, 0, buf.length, path.toString());
+	}
+
+	/**
+	 * Parse a screen held in a string into a board (on a new level)
+	 *
+	 * @param screen the screen (cannot be null)
+	 * @return the starting board
+	 */
+	static Board parseScreen(String screen) {
+		if (screen == null)
+			throw new IllegalArgumentException("screen cannot be null");
+		byte[] buf = screen.getBytes(StandardCharsets.ISO_8859_1);
+		return parse(buf, 0, buf.length, null);
+	}
+
+	/**
+	 * Parse a screen from part of a byte buffer into a board (on a new level)
+	 *
+	 * @param buf the bytes (cannot be null)
+	 * @param from the position of the first byte of the screen
+	 * @param to the position just after the last byte of the screen
+	 * @param source where the screen came from, for error messages (or null)
+	 * @return the starting board
+	 */
+	static Board parse(byte[] buf, int from, int to, String source) {
+		return parse(buf, from, to, source, 1);
+	}
+
+	/**
+	 * Parse a screen from part of a byte buffer into a board (on a new level)
+	 *
+	 * @param buf the bytes (cannot be null)
+	 * @param from the position of the first byte of the screen
+	 * @param to the position just after the last byte of the screen
+	 * @param source where the screen came from, for error messages (or null)
+	 * @param firstLine the line number of the first byte, for error messages
+	 * @return the starting board
+	 */
+	static Board parse(byte[] buf, int from, int to, String source, int firstLine) {
+		if (buf == null)
+			throw new IllegalArgumentException("buf cannot be null");
+		if ((from < 0) || (to > buf.length) || (from > to))
+			throw new IllegalArgumentException("invalid range");
+		int[]  rows      = new int[64];
+		int[]  cols      = new int[64];
+		byte[] kinds     = new byte[64];
+		int    num       = 0;
+		int    line      = firstLine;
+		int    row       = 0;
+		int    col       = 0;
+		int    numCols   = 0;
+		int    actor     = -1;
+		int    numBoxes  = 0;
+		int    numTarget = 0;
+		for (int pos=from; pos<to; pos++) {
+			byte b = buf[pos];
+			if ((b == '\n') || (b == '\r')) {
+				if ((b == '\r') && (pos + 1 < to) && (buf[pos + 1] == '\n'))
+					pos++;
+				if (col > 0) {
+					numCols = Math.max(numCols, col);
+					row++;
+				}
+				col = 0;
+				line++;
+				continue;
+			}
+			byte kind;
+			switch (b) {
+				case Sokoban.EMPTY:
+				case '-':  // floor in XSB collections
+				case '_':                  kind = 0;                           break;
+				case Sokoban.WALL:         kind = WALL;                        break;
+				case Sokoban.TARGET:       kind = TARGET;        numTarget++;  break;
+				case Sokoban.BOX:          kind = BOX;           numBoxes++;   break;
+				case Sokoban.TARGET_BOX:   kind = TARGET | BOX;  numTarget++; numBoxes++; break;
+				case Sokoban.ACTOR:        kind = ACTOR;                       break;
+				case Sokoban.TARGET_ACTOR: kind = TARGET | ACTOR; numTarget++; break;
+				default:
+					throw new LevelFormatException(source, line, col + 1, "not valid display character '" + (char) (b & 0xff) + "'");
+			}
+			if ((kind & ACTOR) != 0) {
+				if (actor >= 0)
+					throw new LevelFormatException(source, line, col + 1, "must be exactly one actor");
+				actor = num;
+			}
+			if (kind != 0) {
+				if (num == kinds.length) {
+					rows  = Arrays.copyOf(rows, num * 2);
+					cols  = Arrays.copyOf(cols, num * 2);
+					kinds = Arrays.copyOf(kinds, num * 2);
+				}
+				rows[num]  = row;
+				cols[num]  = col;
+				kinds[num] = kind;
+				num++;
+			}
+			col++;
+		}
+		if (col > 0) {
+			numCols = Math.max(numCols, col);
+			row++;
+		}
+		int numRows = row;
+		if (numRows == 0)
+			throw new LevelFormatException(source, line, 0, "no rows in screen");
+		if (actor < 0)
+			throw new LevelFormatException(source, line, 0, "must be exactly one actor");
+		if (numBoxes != numTarget)
+			throw new LevelFormatException(source, line, 0, "number of boxes (" + numBoxes + ") and targets (" + numTarget + ") must be equal");
+
+		int    words   = Level.words(numRows * numCols);
+		long[] walls   = new long[words];
+		long[] targets = new long[words];
+		long[] boxes   = new long[words];
+		for (int i=0; i<num; i++) {
+			int idx = rows[i] * numCols + cols[i];
+			if ((kinds[i] & WALL) != 0)
+				Level.set(walls, idx);
+			if ((kinds[i] & TARGET) != 0)
+				Level.set(targets, idx);
+			if ((kinds[i] & BOX) != 0)
+				Level.set(boxes, idx);
+		}
+		Level level = new Level(numRows, numCols, walls, targets);
+		return new Board(level, boxes, rows[actor] * numCols + cols[actor]);
+	}
+
+	// what a display character puts in a cell (bit flags)
+	private static final byte WALL   = 1;
+	private static final byte TARGET = 2;
+	private static final byte BOX    = 4;
+	private static final byte ACTOR  = 8;
+}
@@ -0,0 +1,411 @@
+package sokoban;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A collection of levels in a single .sok/.xsb text file.
+ * The pack file is memory-mapped, and an index of where each level starts is built
+ * the first time it is opened and kept next to it (as pack.idx). Later opens map the
+ * index too, so any level is found by number without reading the rest of the file.
+ * The index is rebuilt if the pack's size or modification time no longer match.
+ *
+ * A level is a run of consecutive board lines (lines of "#@+$*.-_ " holding at least
+ * one wall). Its title is taken from a "Title:" line after the board, or else from
+ * the last other non-blank line before it (with any leading ';' removed); other
+ * "Key: value" lines are ignored. Levels are numbered from 1.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class LevelPack {
+	/**
+	 * Open a pack, using its index if it is up to date and building it otherwise
+	 *
+	 * @param file the pack file (cannot be null)
+	 */
+	public LevelPack(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		this.file = file;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new SokobanException("Pack too large to map: " + file);
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (IOException e) {
+			throw new SokobanException("Cannot open pack " + file + ": " + e);
+		}
+		ByteBuffer idx = readIndex();
+		if (idx == null) {
+			idx = buildIndex();
+			writeIndex(idx);
+		}
+		index = idx;
+		count = index.getInt(COUNT_AT);
+	}
+
+	/**
+	 * Gets the pack file
+	 *
+	 * @return the pack file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the number of levels in the pack
+	 *
+	 * @return the number of levels
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Gets the title of a level
+	 *
+	 * @param number the level number (1 to size())
+	 * @return the title (empty if the level has none)
+	 */
+	public String getTitle(int number) {
+		int at = record(number);
+		return text(index.getInt(at + TITLE_AT), index.getInt(at + TITLE_LENGTH_AT));
+	}
+
+	/**
+	 * Find a level by its title (the first, if several share it)
+	 *
+	 * @param title the title (cannot be null; leading and trailing spaces are ignored)
+	 * @return the level number (or -1 if no level has that title)
+	 */
+	public int find(String title) {
+		if (title == null)
+			throw new IllegalArgumentException("title cannot be null");
+		if (titles == null) {
+			HashMap<String,Integer> map = new HashMap<String,Integer>();
+			for (int number=count; number>=1; number--)
+				map.put(getTitle(number), number);
+			titles = map;
+		}
+		Integer number = titles.get(title.trim());
+		return (number == null) ? -1 : number;
+	}
+
+	/**
+	 * Load a level by number, with the pattern database kept next to the pack for it
+	 * (see {@link PatternDatabase#fileFor(File, int)}) if there is one
+	 *
+	 * @param number the level number (1 to size())
+	 * @return the puzzle
+	 */
+	public Sokoban load(int number) {
+		int    at     = record(number);
+		int    offset = index.getInt(at + OFFSET_AT);
+		int    length = index.getInt(at + LENGTH_AT);
+		byte[] buf    = new byte[length];
+		data.get(offset, buf);
+		Sokoban puzzle = new Sokoban(LevelLoader.parse(buf, 0, length, file.getPath(), index.getInt(at + LINE_AT)));
+		puzzle.setPatternDatabase(PatternDatabase.find(file, number, puzzle.getLevel()));
+		return puzzle;
+	}
+
+	/**
+	 * Load a level by title
+	 *
+	 * @param title the title (cannot be null)
+	 * @return the puzzle
+	 */
+	public Sokoban load(String title) {
+		int number = find(title);
+		if (number < 0)
+			throw new SokobanException("No level titled '" + title + "' in " + file);
+		return load(number);
+	}
+
+	/**
+	 * Describe a level for display
+	 *
+	 * @param number the level number (1 to size())
+	 * @return the pack name, level number and title
+	 */
+	public String describe(int number) {
+		String title = getTitle(number);
+		return file.getName() + " level " + number + (title.isEmpty() ? "" : " (" + title + ")");
+	}
+
+	/**
+	 * Gets the index file kept next to a pack
+	 *
+	 * @param pack the pack file
+	 * @return the index file
+	 */
+	static File indexFile(File pack) {
+		return new File(pack.getPath() + ".idx");
+	}
+
+	/**
+	 * Gets the position of a level's record in the index
+	 *
+	 * @param number the level number (1 to size())
+	 * @return the position of the record
+	 */
+	private int record(int number) {
+		if ((number < 1) || (number > count))
+			throw new IllegalArgumentException("level number must be from 1 to " + count);
+		return HEADER + (number - 1) * RECORD;
+	}
+
+	/**
+	 * Decode part of the pack as text
+	 *
+	 * @param offset where the text starts
+	 * @param length the number of bytes
+	 * @return the text
+	 */
+	private String text(int offset, int length) {
+		byte[] buf = new byte[length];
+		data.get(offset, buf);
+		return new String(buf, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Map the index file, if it exists and matches the pack
+	 *
+	 * @return the index (null if there is no usable index)
+	 */
+	private ByteBuffer readIndex() {
+		File idxFile = indexFile(file);
+		if (!idxFile.isFile())
+			return null;
+		try (FileChannel channel = FileChannel.open(idxFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if ((size < HEADER) || (size > Integer.MAX_VALUE))
+				return null;
+			ByteBuffer idx = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if ((idx.getInt(0) != MAGIC) || (idx.getInt(4) != VERSION)
+					|| (idx.getLong(8) != data.capacity()) || (idx.getLong(16) != file.lastModified()))
+				return null;
+			if (size != HEADER + (long) idx.getInt(COUNT_AT) * RECORD)
+				return null;
+			return idx;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write the index next to the pack (quietly skipped if that is not possible,
+	 * for instance in a read-only directory)
+	 *
+	 * @param idx the index
+	 */
+	private void writeIndex(ByteBuffer idx) {
+		File idxFile = indexFile(file);
+		File tmpFile = new File(idxFile.getPath() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmpFile.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer out = idx.duplicate();
+			out.clear();
+			while (out.hasRemaining())
+				channel.write(out);
+		} catch (IOException e) {
+			trace("cannot write index " + idxFile + ": " + e);
+			tmpFile.delete();
+			return;
+		}
+		try {
+			Files.move(tmpFile.toPath(), idxFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			trace("cannot write index " + idxFile + ": " + e);
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Scan the whole pack once, noting where each level and its title are
+	 *
+	 * @return the index
+	 */
+	private ByteBuffer buildIndex() {
+		int   n       = data.capacity();
+		int[] records = new int[16 * 5];
+		int   num     = 0;
+		int   line    = 1;
+		int   start   = -1;   // first byte of the level being read (or -1)
+		int   end     = 0;    // just after the last board line read
+		int   first   = 0;    // line number of the level being read
+		int   candAt  = 0;    // possible title for the next level
+		int   candLen = 0;
+		boolean tagged = false; // has the last level had its title from a Title: line?
+		for (int pos=0; pos<n; line++) {
+			int e = pos;
+			while ((e < n) && (data.get(e) != '\n') && (data.get(e) != '\r'))
+				e++;
+			int next = e;
+			if (next < n)
+				next += ((data.get(next) == '\r') && (next + 1 < n) && (data.get(next + 1) == '\n')) ? 2 : 1;
+			if (isBoardLine(pos, e)) {
+				if (start < 0) {
+					start   = pos;
+					first   = line;
+					if (num * 5 == records.length)
+						records = Arrays.copyOf(records, records.length * 2);
+					records[num * 5 + 3] = candAt;
+					records[num * 5 + 4] = candLen;
+					candLen = 0;
+				}
+				end = next;
+			} else {
+				if (start >= 0) {
+					records[num * 5]     = start;
+					records[num * 5 + 1] = end - start;
+					records[num * 5 + 2] = first;
+					num++;
+					start  = -1;
+					tagged = false;
+				}
+				int s = pos;
+				int t = e;
+				while ((s < t) && (data.get(s) <= ' '))
+					s++;
+				while ((t > s) && (data.get(t - 1) <= ' '))
+					t--;
+				int key = keyLength(s, t);
+				if (key == TITLE.length() && startsWithIgnoreCase(s, TITLE)) {
+					int v = s + key + 1;
+					while ((v < t) && (data.get(v) <= ' '))
+						v++;
+					if ((num > 0) && !tagged) {
+						records[(num - 1) * 5 + 3] = v;
+						records[(num - 1) * 5 + 4] = t - v;
+						tagged = true;
+					} else {
+						candAt  = v;
+						candLen = t - v;
+					}
+				} else if ((key < 0) && (s < t)) {
+					if (data.get(s) == ';') {
+						s++;
+						while ((s < t) && (data.get(s) <= ' '))
+							s++;
+					}
+					candAt  = s;
+					candLen = t - s;
+				}
+			}
+			pos = next;
+		}
+		if (start >= 0) {
+			records[num * 5]     = start;
+			records[num * 5 + 1] = end - start;
+			records[num * 5 + 2] = first;
+			num++;
+		}
+
+		ByteBuffer idx = ByteBuffer.allocate(HEADER + num * RECORD);
+		idx.putInt(0, MAGIC);
+		idx.putInt(4, VERSION);
+		idx.putLong(8, n);
+		idx.putLong(16, file.lastModified());
+		idx.putInt(COUNT_AT, num);
+		for (int i=0; i<num; i++) {
+			int at = HEADER + i * RECORD;
+			idx.putInt(at + OFFSET_AT,       records[i * 5]);
+			idx.putInt(at + LENGTH_AT,       records[i * 5 + 1]);
+			idx.putInt(at + LINE_AT,         records[i * 5 + 2]);
+			idx.putInt(at + TITLE_AT,        records[i * 5 + 3]);
+			idx.putInt(at + TITLE_LENGTH_AT, records[i * 5 + 4]);
+		}
+		return idx;
+	}
+
+	/**
+	 * Is a line part of a board? (only board characters, with at least one wall)
+	 *
+	 * @param from the first byte of the line
+	 * @param to just after the last byte of the line
+	 * @return is the line a board line?
+	 */
+	private boolean isBoardLine(int from, int to) {
+		boolean wall = false;
+		for (int i=from; i<to; i++) {
+			byte b = data.get(i);
+			if (b == Sokoban.WALL)
+				wall = true;
+			else if (BOARD_CHARS.indexOf(b) < 0)
+				return false;
+		}
+		return wall;
+	}
+
+	/**
+	 * Gets the length of the key of a "Key: value" line
+	 *
+	 * @param from the first byte of the (trimmed) line
+	 * @param to just after the last byte of the line
+	 * @return the length of the key (or -1 if the line is not of that form)
+	 */
+	private int keyLength(int from, int to) {
+		for (int i=from; i<to; i++) {
+			byte b = data.get(i);
+			if (b == ':')
+				return (i > from) ? i - from : -1;
+			if (!Character.isLetter(b))
+				return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Does the pack hold a given ASCII word at a position (ignoring case)?
+	 *
+	 * @param from the position
+	 * @param word the word
+	 * @return does the word appear there?
+	 */
+	private boolean startsWithIgnoreCase(int from, String word) {
+		for (int i=0; i<word.length(); i++)
+			if (Character.toLowerCase(data.get(from + i)) != Character.toLowerCase(word.charAt(i)))
+				return false;
+		return true;
+	}
+
+	/**
+	 * A trace method for debugging (active when traceOn is true)
+	 *
+	 * @param s the string to output
+	 */
+	public static void trace(String s) {
+		if (traceOn)
+			System.out.println("trace: " + s);
+	}
+
+	private final File       file;
+	private final ByteBuffer data;
+	private final ByteBuffer index;
+	private final int        count;
+	private HashMap<String,Integer> titles = null;
+
+	// index layout: header, then one fixed-size record per level
+	private static final int MAGIC           = 0x534B4958; // "SKIX"
+	private static final int VERSION         = 1;
+	private static final int COUNT_AT        = 24;
+	private static final int HEADER          = 28;
+	private static final int OFFSET_AT       = 0;
+	private static final int LENGTH_AT       = 4;
+	private static final int LINE_AT         = 8;
+	private static final int TITLE_AT        = 12;
+	private static final int TITLE_LENGTH_AT = 16;
+	private static final int RECORD          = 20;
+
+	private static final String TITLE       = "Title";
+	private static final String BOARD_CHARS = "#@+$*.-_ ";
+
+	private static boolean traceOn = false; // for debugging
+}
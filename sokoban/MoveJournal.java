@@ -0,0 +1,243 @@
+package sokoban;
+
+/**
+ * An undo/redo journal of actor moves in a Sokoban puzzle.
+ * Each move is recorded as a single byte: the direction in the low two bits
+ * and whether a box was pushed in the next bit. The journal can be unlimited
+ * or capped, in which case the oldest moves are forgotten once the cap is reached.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+class MoveJournal {
+	/**
+	 * Default constructor (unlimited depth)
+	 */
+	MoveJournal() {
+		this(0);
+	}
+
+	/**
+	 * Constructor with a memory cap
+	 *
+	 * @param maxMoves the maximum number of moves to keep (0 for unlimited)
+	 */
+	MoveJournal(int maxMoves) {
+		setMaxMoves(maxMoves);
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the journal to copy (cannot be null)
+	 */
+	MoveJournal(MoveJournal other) {
+		if (other == null)
+			throw new IllegalArgumentException("other cannot be null");
+		this.buf      = other.buf.clone();
+		this.head     = other.head;
+		this.size     = other.size;
+		this.cursor   = other.cursor;
+		this.maxMoves = other.maxMoves;
+	}
+
+	/**
+	 * Changes the maximum number of moves kept, forgetting the oldest if necessary
+	 *
+	 * @param maxMoves the maximum number of moves to keep (0 for unlimited)
+	 */
+	void setMaxMoves(int maxMoves) {
+		if (maxMoves < 0)
+			throw new IllegalArgumentException("maxMoves cannot be negative");
+		byte[] old    = toArray(0, size);
+		int    keep   = ((maxMoves > 0) && (size > maxMoves)) ? maxMoves : size;
+		int    drop   = size - keep;
+		this.maxMoves = maxMoves;
+		this.buf      = new byte[Math.max(INITIAL_CAPACITY, keep)];
+		System.arraycopy(old, drop, buf, 0, keep);
+		this.head     = 0;
+		this.size     = keep;
+		this.cursor   = Math.max(0, cursor - drop);
+	}
+
+	/**
+	 * Gets the maximum number of moves kept
+	 *
+	 * @return the maximum number of moves kept (0 for unlimited)
+	 */
+	int getMaxMoves() {
+		return maxMoves;
+	}
+
+	/**
+	 * Record a new move, discarding anything available for redo
+	 *
+	 * @param dir the direction moved
+	 * @param push was a box pushed?
+	 */
+	void record(Direction dir, boolean push) {
+		size = cursor;
+		if ((maxMoves > 0) && (size == maxMoves)) {
+			// full: forget the oldest move
+			buf[(head + size) % buf.length] = encode(dir, push);
+			head = (head + 1) % buf.length;
+			return;
+		}
+		if (size == buf.length)
+			grow();
+		buf[(head + size) % buf.length] = encode(dir, push);
+		size++;
+		cursor++;
+	}
+
+	/**
+	 * Is there a move to undo?
+	 *
+	 * @return is there a move to undo?
+	 */
+	boolean canUndo() {
+		return cursor > 0;
+	}
+
+	/**
+	 * Is there a move to redo?
+	 *
+	 * @return is there a move to redo?
+	 */
+	boolean canRedo() {
+		return cursor < size;
+	}
+
+	/**
+	 * Step back over the last move
+	 *
+	 * @return the encoded move stepped back over
+	 */
+	byte undo() {
+		if (!canUndo())
+			throw new IllegalStateException("no move to undo");
+		cursor--;
+		return buf[(head + cursor) % buf.length];
+	}
+
+	/**
+	 * Step forward over the next undone move
+	 *
+	 * @return the encoded move stepped forward over
+	 */
+	byte redo() {
+		if (!canRedo())
+			throw new IllegalStateException("no move to redo");
+		byte move = buf[(head + cursor) % buf.length];
+		cursor++;
+		return move;
+	}
+
+	/**
+	 * Forget all moves
+	 */
+	void clear() {
+		head   = 0;
+		size   = 0;
+		cursor = 0;
+	}
+
+	/**
+	 * Gets the number of moves that can be undone
+	 *
+	 * @return the number of moves that can be undone
+	 */
+	int getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Gets the number of moves held (including those available for redo)
+	 *
+	 * @return the number of moves held
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets an encoded move, counting from the oldest held
+	 *
+	 * @param i the position of the move (0 to size()-1)
+	 * @return the encoded move
+	 */
+	byte get(int i) {
+		if ((i < 0) || (i >= size))
+			throw new IndexOutOfBoundsException("no move at "+i);
+		return buf[(head + i) % buf.length];
+	}
+
+	/**
+	 * Copy out a range of encoded moves, counting from the oldest held
+	 *
+	 * @param from the first position to copy
+	 * @param to one past the last position to copy
+	 * @return the encoded moves
+	 */
+	byte[] toArray(int from, int to) {
+		byte[] moves = new byte[to - from];
+		for (int i=from; i<to; i++)
+			moves[i - from] = buf[(head + i) % buf.length];
+		return moves;
+	}
+
+	/**
+	 * Double the capacity of the buffer (never beyond maxMoves, if set)
+	 */
+	private void grow() {
+		int capacity = buf.length * 2;
+		if ((maxMoves > 0) && (capacity > maxMoves))
+			capacity = maxMoves;
+		byte[] bigger = new byte[capacity];
+		for (int i=0; i<size; i++)
+			bigger[i] = buf[(head + i) % buf.length];
+		buf  = bigger;
+		head = 0;
+	}
+
+	/**
+	 * Encode a move as a byte
+	 *
+	 * @param dir the direction moved
+	 * @param push was a box pushed?
+	 * @return the encoded move
+	 */
+	static byte encode(Direction dir, boolean push) {
+		return (byte) (dir.ordinal() | (push ? PUSH : 0));
+	}
+
+	/**
+	 * Decode the direction of an encoded move
+	 *
+	 * @param move the encoded move
+	 * @return the direction moved
+	 */
+	static Direction direction(byte move) {
+		return DIRECTIONS[move & 3];
+	}
+
+	/**
+	 * Decode whether an encoded move pushed a box
+	 *
+	 * @param move the encoded move
+	 * @return was a box pushed?
+	 */
+	static boolean isPush(byte move) {
+		return (move & PUSH) != 0;
+	}
+
+	private byte[] buf      = new byte[INITIAL_CAPACITY];
+	private int    head     = 0;
+	private int    size     = 0;
+	private int    cursor   = 0;
+	private int    maxMoves = 0;
+
+	private static final int         PUSH             = 4;
+	private static final int         INITIAL_CAPACITY = 64;
+	private static final Direction[] DIRECTIONS       = Direction.values();
+}
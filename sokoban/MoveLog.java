@@ -0,0 +1,361 @@
+package sokoban;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An append-only log of the moves made in a puzzle, for autosave.
+ * The log starts with a {@link Snapshot} of the puzzle when logging began, and
+ * then has one byte for each move, undo, redo or restart (never a zero byte), so
+ * nothing more than a byte is written per move. Bytes are gathered in memory and
+ * written out in groups on a background thread: the first byte of a group schedules
+ * a write a short while later (or at once, if the group fills up), and the whole
+ * group is then forced to disk with a single fsync. The group being written is
+ * swapped out for an empty one first, so moves are never held up waiting for the disk.
+ *
+ * If the program stops without the log being discarded, {@link #recover(File)}
+ * rebuilds the game by replaying the log onto its snapshot. A torn or damaged
+ * tail (a byte that is not an operation, such as the zeros a file system leaves in
+ * a group that did not reach the disk, or a move that cannot be made) ends the
+ * replay there, so at most the last group of moves is lost.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class MoveLog implements Closeable {
+	/**
+	 * Constructor (use {@link #start(Sokoban, File)})
+	 *
+	 * @param file the log file
+	 */
+	private MoveLog(File file) {
+		this.file    = file;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "MoveLog " + file.getName());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Start logging a puzzle, replacing any log already in the file. The puzzle's
+	 * moves are logged until the log is closed or discarded.
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 * @param file the log file (cannot be null)
+	 * @return the log
+	 */
+	public static MoveLog start(Sokoban puzzle, File file) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		MoveLog log = new MoveLog(file);
+		log.rebase(puzzle);
+		puzzle.setMoveLog(log);
+		log.puzzle = puzzle;
+		return log;
+	}
+
+	/**
+	 * Rebuild a game from a log left behind by an interrupted session
+	 *
+	 * @param file the log file (cannot be null)
+	 * @return the puzzle, as it was after the last move that reached the disk
+	 */
+	public static Sokoban recover(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			throw new SokobanException("Cannot read " + file + ": " + e);
+		}
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		if ((bytes.length < HEADER) || (buf.getInt(0) != MAGIC))
+			throw new SokobanException(file + ": not a move log");
+		if (buf.getShort(4) != VERSION)
+			throw new SokobanException(file + ": unsupported move log version " + buf.getShort(4));
+		int length = buf.getInt(6);
+		if ((length < 0) || (length > bytes.length - HEADER))
+			throw new SokobanException(file + ": move log is truncated");
+		byte[] snap = new byte[length];
+		System.arraycopy(bytes, HEADER, snap, 0, length);
+		Sokoban puzzle = Snapshot.fromBytes(snap, file.getPath());
+		for (int pos=HEADER+length; pos<bytes.length; pos++) {
+			if (!replay(puzzle, bytes[pos])) {
+				trace("replay of " + file + " stopped at byte " + pos);
+				break;
+			}
+		}
+		return puzzle;
+	}
+
+	/**
+	 * Apply one logged operation to a puzzle
+	 *
+	 * @param puzzle the puzzle
+	 * @param op the operation
+	 * @return could the operation be applied?
+	 */
+	private static boolean replay(Sokoban puzzle, byte op) {
+		switch (op) {
+			case UNDO:
+				if (!puzzle.canUndo())
+					return false;
+				puzzle.undo();
+				return true;
+			case REDO:
+				if (!puzzle.canRedo())
+					return false;
+				puzzle.redo();
+				return true;
+			case CLEAR:
+				puzzle.clear();
+				return true;
+			default:
+				if ((op < MOVE) || (op >= MOVE + DIRECTIONS.length) || !puzzle.canMove(DIRECTIONS[op - MOVE]))
+					return false;
+				puzzle.move(DIRECTIONS[op - MOVE]);
+				return true;
+		}
+	}
+
+	/**
+	 * Gets the log file
+	 *
+	 * @return the log file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Changes how long the first byte of a group waits before the group is written
+	 *
+	 * @param millis the delay in milliseconds (0 to write and fsync every operation as it comes)
+	 */
+	public void setCommitDelay(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("millis cannot be negative");
+		commitDelay = millis;
+	}
+
+	/**
+	 * Log a move
+	 *
+	 * @param dir the direction moved
+	 */
+	void move(Direction dir) {
+		append((byte) (MOVE + dir.ordinal()));
+	}
+
+	/**
+	 * Log an undo
+	 */
+	void undo() {
+		append(UNDO);
+	}
+
+	/**
+	 * Log a redo
+	 */
+	void redo() {
+		append(REDO);
+	}
+
+	/**
+	 * Log a restart
+	 */
+	void clear() {
+		append(CLEAR);
+	}
+
+	/**
+	 * Start the log again from the puzzle's current state (for when it jumps to a
+	 * position that cannot be expressed as moves). The new log is written to a
+	 * temporary file and moved into place, so there is always a complete log on disk.
+	 *
+	 * @param puzzle the puzzle
+	 */
+	void rebase(Sokoban puzzle) {
+		synchronized (writeLock) {
+			synchronized (this) {
+				if (closed)
+					return;
+				pending = 0;
+				closeChannel();
+				byte[]     snap   = Snapshot.toBytes(puzzle);
+				ByteBuffer header = ByteBuffer.allocate(HEADER + snap.length);
+				header.putInt(MAGIC).putShort(VERSION).putInt(snap.length).put(snap).flip();
+				Path path = file.toPath();
+				Path tmp  = path.resolveSibling(path.getFileName() + ".tmp");
+				try {
+					try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+							StandardOpenOption.TRUNCATE_EXISTING)) {
+						while (header.hasRemaining())
+							out.write(header);
+						out.force(true);
+					}
+					Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add an operation to the group being gathered, scheduling the group to be written
+	 * (on the flusher thread, so the caller never waits for the disk)
+	 *
+	 * @param op the operation
+	 */
+	private synchronized void append(byte op) {
+		if (closed || (channel == null))
+			return;
+		if (pending == buf.length) {
+			// the group is full and the last one is still being written: grow it
+			buf = Arrays.copyOf(buf, buf.length * 2);
+		}
+		buf[pending++] = op;
+		if ((commitDelay == 0) || (pending == GROUP_SIZE)) {
+			scheduled = true;
+			flusher.execute(this::flush);
+		} else if (!scheduled) {
+			scheduled = true;
+			flusher.schedule(this::flush, commitDelay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Write the group gathered so far and force it to disk
+	 */
+	public void flush() {
+		synchronized (writeLock) {
+			byte[]      group;
+			int         size;
+			FileChannel out;
+			synchronized (this) {
+				scheduled = false;
+				if ((pending == 0) || (channel == null))
+					return;
+				group   = buf;
+				size    = pending;
+				out     = channel;
+				buf     = spare;
+				spare   = group;
+				pending = 0;
+			}
+			try {
+				ByteBuffer bytes = ByteBuffer.wrap(group, 0, size);
+				while (bytes.hasRemaining())
+					out.write(bytes);
+				out.force(false);
+			} catch (IOException e) {
+				synchronized (this) {
+					fail(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop logging, writing out anything gathered; the log is left on disk
+	 */
+	@Override
+	public void close() {
+		flush();
+		synchronized (writeLock) {
+			synchronized (this) {
+				if (closed)
+					return;
+				closeChannel();
+				closed = true;
+			}
+		}
+		flusher.shutdown();
+		if (puzzle != null)
+			puzzle.setMoveLog(null);
+	}
+
+	/**
+	 * Stop logging and delete the log (the session ended cleanly, so there is nothing to recover)
+	 */
+	public void discard() {
+		close();
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException e) {
+			trace("cannot delete " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Close the file, if it is open
+	 */
+	private void closeChannel() {
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			trace("cannot close " + file + ": " + e);
+		}
+		channel = null;
+	}
+
+	/**
+	 * Give up logging after a write fails (the game carries on without autosave)
+	 *
+	 * @param e the failure
+	 */
+	private void fail(IOException e) {
+		System.out.println("Autosave to " + file + " stopped: " + e);
+		closeChannel();
+		pending = 0;
+	}
+
+	/**
+	 * A trace method for debugging (active when traceOn is true)
+	 *
+	 * @param s the string to output
+	 */
+	public static void trace(String s) {
+		if (traceOn)
+			System.out.println("trace: " + s);
+	}
+
+	private final File                     file;
+	private final ScheduledExecutorService flusher;
+	private Sokoban     puzzle      = null;
+	private FileChannel channel     = null;
+	private final Object writeLock  = new Object();
+	private byte[]      buf         = new byte[GROUP_SIZE];
+	private byte[]      spare       = new byte[GROUP_SIZE];
+	private int         pending     = 0;
+	private boolean     scheduled   = false;
+	private boolean     closed      = false;
+	private long        commitDelay = 200;
+
+	// operations (a move is MOVE plus the direction's ordinal); zero is never written
+	private static final byte MOVE  = 1;
+	private static final byte UNDO  = 5;
+	private static final byte REDO  = 6;
+	private static final byte CLEAR = 7;
+
+	private static final int   MAGIC      = 0x534B4D4C; // "SKML"
+	private static final short VERSION    = 2;
+	private static final int   HEADER     = 10;
+	private static final int   GROUP_SIZE = 4096;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private static boolean traceOn = false; // for debugging
+}
@@ -4,6 +4,8 @@ package sokoban;
 
 /**
  * An abstract cell occupant in a Sokoban puzzle.
+ * Occupants are views created on demand by their cell; the puzzle's board is the
+ * single record of where the boxes and actor are.
  *
  * @author Dr Mark C. Sinclair
  * @version September 2021
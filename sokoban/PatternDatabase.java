@@ -0,0 +1,906 @@
+package sokoban;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Deadlocks and push costs for small groups of boxes, worked out in advance for a level.
+ * A group is two to four boxes that fit in a 3x3 square and touch one another (sideways
+ * or diagonally). For each such group the builder searches the moves of just those
+ * boxes, with the actor free to walk anywhere, and records the group as a deadlock if
+ * they can never all reach targets, or else the fewest pushes they need if that is more
+ * than the sum of their distances to their nearest targets. A box pushed more than a
+ * cell outside the group's square no longer counts as part of the group (it is charged
+ * its distance to the nearest target), which keeps each search small; this only makes
+ * a group easier, so every deadlock recorded is a real one and every cost is a lower bound.
+ * Groups that take more than a bounded number of nodes to decide are left out.
+ *
+ * The table is an open-addressed hash from the sorted cells of a group to its entry,
+ * so a lookup is a single probe. Checking a push looks up only the groups that include
+ * the pushed box's new cell, as any new deadlock must involve it.
+ *
+ * Building takes a while, so tables are built offline ({@link #main(String[])}) and
+ * kept next to the screen file (as screen.N.pdb), or for a level of a pack, next to
+ * the pack (as pack.sok.N.pdb for level N). Every way of loading a puzzle looks for
+ * its table there. A table is only used with the level it was built for, which is
+ * checked by the level's fingerprint.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public final class PatternDatabase {
+	/**
+	 * Constructor for an empty table
+	 *
+	 * @param level the level the table is for
+	 * @param expected the number of entries expected
+	 */
+	private PatternDatabase(Level level, int expected) {
+		int capacity = 16;
+		while (capacity < 2 * expected)
+			capacity <<= 1;
+		this.level    = level;
+		this.keys     = new long[capacity];
+		this.values   = new byte[capacity];
+		this.involved = new long[Level.words(level.getNumCells())];
+	}
+
+	/**
+	 * Build the table for a level
+	 *
+	 * @param level the level (cannot be null)
+	 * @return the table
+	 */
+	public static PatternDatabase build(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		if (level.getNumCells() >= MAX_CELLS)
+			return new PatternDatabase(level, 0); // cells do not fit in a key
+		return new Builder(level).run();
+	}
+
+	/**
+	 * Gets the file a screen's table is kept in
+	 *
+	 * @param screen the screen file (cannot be null)
+	 * @return the table file
+	 */
+	public static File fileFor(File screen) {
+		if (screen == null)
+			throw new IllegalArgumentException("screen cannot be null");
+		return new File(screen.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Gets the file the table of a level of a pack is kept in
+	 *
+	 * @param pack the pack file (cannot be null)
+	 * @param number the level number (from 1)
+	 * @return the table file
+	 */
+	public static File fileFor(File pack, int number) {
+		if (pack == null)
+			throw new IllegalArgumentException("pack cannot be null");
+		return new File(pack.getPath() + "." + number + SUFFIX);
+	}
+
+	/**
+	 * Find the table kept next to a screen file, if there is a usable one
+	 *
+	 * @param screen the screen file
+	 * @param level the level read from it
+	 * @return the table (or null if there is none, or it is damaged or for another level)
+	 */
+	static PatternDatabase find(File screen, Level level) {
+		return open(fileFor(screen), level);
+	}
+
+	/**
+	 * Find the table kept next to a pack for one of its levels, if there is a usable one
+	 *
+	 * @param pack the pack file
+	 * @param number the level number (from 1)
+	 * @param level the level read from the pack
+	 * @return the table (or null if there is none, or it is damaged or for another level)
+	 */
+	static PatternDatabase find(File pack, int number, Level level) {
+		return open(fileFor(pack, number), level);
+	}
+
+	/**
+	 * Load a table if the file exists and holds a usable one
+	 *
+	 * @param file the table file
+	 * @param level the level the table should be for
+	 * @return the table (or null if there is none, or it is damaged or for another level)
+	 */
+	private static PatternDatabase open(File file, Level level) {
+		if (!file.isFile())
+			return null;
+		try {
+			return load(file, level);
+		} catch (SokobanException e) {
+			trace("ignoring " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the level the table is for
+	 *
+	 * @return the level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the number of groups in the table
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of groups in the table that are deadlocks
+	 *
+	 * @return the number of deadlocks
+	 */
+	public int numDeadlocks() {
+		return numDeadlocks;
+	}
+
+	/**
+	 * Look up the groups a box would be part of after a push
+	 *
+	 * @param board the position before the push (must be on this table's level)
+	 * @param from the cell the box is pushed from (treated as empty)
+	 * @param to the cell the box is pushed to
+	 * @return DEADLOCK if the box would complete a deadlocked group, or else the largest
+	 * push cost of a group it would be part of (0 if none)
+	 */
+	int lookup(Board board, int from, int to) {
+		if (!Level.get(involved, to))
+			return 0;
+		int numCols = level.getNumCols();
+		int row     = level.rowOf(to);
+		int col     = level.colOf(to);
+		// the other boxes within two cells, as bits of the 5x5 square centred on the pushed box
+		int near = 0;
+		for (int i=0; i<25; i++) {
+			int idx = level.index(row + i / 5 - 2, col + i % 5 - 2);
+			if ((idx >= 0) && (idx != to) && (idx != from) && Level.get(involved, idx) && board.hasBox(idx))
+				near |= 1 << i;
+		}
+		if (near == 0)
+			return 0;
+		int best = 0;
+		for (int w=0; w<9; w++) {
+			// each 3x3 square holding the pushed box: its other boxes, and the pushed box's place in it
+			int top    = w / 3;
+			int left   = w % 3;
+			int others = 0;
+			for (int i=0; i<9; i++)
+				if ((near & (1 << ((top + i / 3) * 5 + left + i % 3))) != 0)
+					others |= 1 << i;
+			int toBit = 1 << ((2 - top) * 3 + 2 - left);
+			for (int sub=others; sub!=0; sub=(sub-1)&others) {
+				int group = sub | toBit;
+				// each group is looked up only in the square it fills the top and left of
+				if ((Integer.bitCount(sub) > 3) || ((group & TOP_ROW) == 0) || ((group & LEFT_COL) == 0))
+					continue;
+				long key = 0;
+				for (int i=0; i<9; i++)
+					if ((group & (1 << i)) != 0)
+						key = (key << 16) | ((row - 2 + top + i / 3) * numCols + col - 2 + left + i % 3 + 1);
+				int value = get(key);
+				if (value == DEADLOCK_VALUE)
+					return DEADLOCK;
+				best = Math.max(best, value);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Save the table to a file (written to a temporary file, then moved into place)
+	 *
+	 * @param file the file (cannot be null)
+	 */
+	public void save(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		ByteBuffer buf = ByteBuffer.allocate(HEADER + size * 9 + 4);
+		buf.putInt(MAGIC);
+		buf.putShort(VERSION);
+		buf.putLong(level.fingerprint());
+		buf.putInt(size);
+		for (int i=0; i<keys.length; i++) {
+			if (keys[i] != 0) {
+				buf.putLong(keys[i]);
+				buf.put(values[i]);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 0, buf.position());
+		buf.putInt((int) crc.getValue());
+		Path path = file.toPath();
+		Path tmp  = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			Files.write(tmp, buf.array());
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException ignored) {
+			}
+			throw new SokobanException("Cannot save " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Load a table from a file
+	 *
+	 * @param file the file (cannot be null)
+	 * @param level the level the table should be for (cannot be null)
+	 * @return the table
+	 */
+	public static PatternDatabase load(File file, Level level) {
+		if ((file == null) || (level == null))
+			throw new IllegalArgumentException("file and level cannot be null");
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			throw new SokobanException("Cannot read " + file + ": " + e);
+		}
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		if ((bytes.length < HEADER + 4) || (buf.getInt(0) != MAGIC))
+			throw new SokobanException(file + ": not a pattern database");
+		if (buf.getShort(4) != VERSION)
+			throw new SokobanException(file + ": unsupported pattern database version " + buf.getShort(4));
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		if (buf.getInt(bytes.length - 4) != (int) crc.getValue())
+			throw new SokobanException(file + ": pattern database checksum does not match");
+		if (buf.getLong(6) != level.fingerprint())
+			throw new SokobanException(file + ": pattern database is for a different level");
+		int count = buf.getInt(14);
+		if ((count < 0) || ((long) count * 9 != bytes.length - HEADER - 4))
+			throw new SokobanException(file + ": pattern database is truncated");
+		PatternDatabase table = new PatternDatabase(level, count);
+		buf.position(HEADER);
+		for (int i=0; i<count; i++) {
+			long key   = buf.getLong();
+			int  value = buf.get() & 0xff;
+			if ((value == 0) || !table.isValidKey(key))
+				throw new SokobanException(file + ": invalid pattern in pattern database");
+			table.put(key, value);
+		}
+		return table;
+	}
+
+	/**
+	 * Does a key hold two to four distinct cells of the level, in increasing order?
+	 *
+	 * @param key the key
+	 * @return is it a valid key?
+	 */
+	private boolean isValidKey(long key) {
+		int num  = 0;
+		int last = Integer.MAX_VALUE;
+		for (; key!=0; key>>>=16) {
+			int idx = (int) (key & 0xffff) - 1;
+			if ((idx < 0) || (idx >= last) || level.isWall(idx))
+				return false;
+			last = idx;
+			num++;
+		}
+		return (num >= 2) && (num <= 4);
+	}
+
+	/**
+	 * Add an entry to the table
+	 *
+	 * @param key the sorted cells of the group (each cell index + 1, 16 bits each)
+	 * @param value DEADLOCK_VALUE or the push cost
+	 */
+	private void put(long key, int value) {
+		if (2 * (size + 1) > keys.length)
+			grow();
+		int mask = keys.length - 1;
+		int i    = slot(key) & mask;
+		while ((keys[i] != 0) && (keys[i] != key))
+			i = (i + 1) & mask;
+		if (keys[i] == 0) {
+			size++;
+			for (long k=key; k!=0; k>>>=16)
+				Level.set(involved, (int) (k & 0xffff) - 1);
+		} else if ((values[i] & 0xff) == DEADLOCK_VALUE)
+			numDeadlocks--;
+		keys[i]   = key;
+		values[i] = (byte) value;
+		if (value == DEADLOCK_VALUE)
+			numDeadlocks++;
+	}
+
+	/**
+	 * Look up an entry in the table
+	 *
+	 * @param key the sorted cells of the group
+	 * @return DEADLOCK_VALUE, the push cost, or 0 if the group is not in the table
+	 */
+	private int get(long key) {
+		int mask = keys.length - 1;
+		for (int i=slot(key)&mask; keys[i]!=0; i=(i+1)&mask)
+			if (keys[i] == key)
+				return values[i] & 0xff;
+		return 0;
+	}
+
+	/**
+	 * Double the size of the hash arrays
+	 */
+	private void grow() {
+		long[] oldKeys   = keys;
+		byte[] oldValues = values;
+		keys   = new long[oldKeys.length * 2];
+		values = new byte[oldKeys.length * 2];
+		int mask = keys.length - 1;
+		for (int j=0; j<oldKeys.length; j++) {
+			if (oldKeys[j] == 0)
+				continue;
+			int i = slot(oldKeys[j]) & mask;
+			while (keys[i] != 0)
+				i = (i + 1) & mask;
+			keys[i]   = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	/**
+	 * Hash a key (the SplitMix64 finaliser, folded to an int)
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	private static int slot(long key) {
+		key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+		key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+		return (int) (key ^ (key >>> 31));
+	}
+
+	/**
+	 * Make the key for a group of cells
+	 *
+	 * @param cells the cell indices, in increasing order
+	 * @param num the number of cells
+	 * @return the key
+	 */
+	private static long keyOf(int[] cells, int num) {
+		long key = 0;
+		for (int i=0; i<num; i++)
+			key = (key << 16) | (cells[i] + 1);
+		return key;
+	}
+
+	/**
+	 * Build the tables for screen files, saving each next to its screen.
+	 *
+	 * Usage: java sokoban.PatternDatabase screen files
+	 *
+	 * @param args the screen files
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("Usage: java sokoban.PatternDatabase [-p pack] screen files");
+			System.exit(1);
+		}
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-p") && (i + 1 < args.length)) {
+				File pack = new File(args[++i]);
+				try {
+					LevelPack levels = new LevelPack(pack);
+					for (int number=1; number<=levels.size(); number++)
+						buildAndSave(levels.load(number).getLevel(), fileFor(pack, number));
+				} catch (SokobanException e) {
+					System.out.println(pack + ": " + e.getMessage());
+				}
+				continue;
+			}
+			File screen = new File(args[i]);
+			try {
+				buildAndSave(LevelLoader.read(screen.toPath()).getLevel(), fileFor(screen));
+			} catch (SokobanException e) {
+				System.out.println(args[i] + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Build a level's table and save it, reporting what it holds
+	 *
+	 * @param level the level
+	 * @param file the file to save the table in
+	 */
+	private static void buildAndSave(Level level, File file) {
+		long            started = System.nanoTime();
+		PatternDatabase table   = build(level);
+		table.save(file);
+		System.out.println(String.format("%s: %d deadlocks, %d costs in %d ms", file,
+			table.numDeadlocks(), table.size() - table.numDeadlocks(), (System.nanoTime() - started) / 1000000L));
+	}
+
+	/**
+	 * A trace method for debugging (active when traceOn is true)
+	 *
+	 * @param s the string to output
+	 */
+	public static void trace(String s) {
+		if (traceOn)
+			System.out.println("trace: " + s);
+	}
+
+	/**
+	 * Works out the table for a level: enumerates the groups, smallest first, and
+	 * searches each one that is not already known to contain a deadlocked group.
+	 * The scratch arrays are allocated once and reused for every search.
+	 */
+	private static final class Builder {
+		/**
+		 * Constructor
+		 *
+		 * @param level the level
+		 */
+		Builder(Level level) {
+			int numCells = level.getNumCells();
+			this.level   = level;
+			this.table   = new PatternDatabase(level, 256);
+			this.boxAt   = new boolean[numCells];
+			this.reached = new int[numCells];
+			this.marked  = new int[numCells];
+			this.queue   = new int[numCells];
+			this.nearest = nearestTargets(level, queue);
+		}
+
+		/**
+		 * Build the table
+		 *
+		 * @return the table
+		 */
+		PatternDatabase run() {
+			int   numRows = level.getNumRows();
+			int   numCols = level.getNumCols();
+			int[] group   = new int[4];
+			for (int num=2; num<=4; num++) {
+				for (int top=0; top<numRows; top++) {
+					for (int left=0; left<numCols; left++) {
+						// the cells of the square a box could usefully be on
+						int usable = 0;
+						for (int i=0; i<9; i++) {
+							int idx = level.index(top + i / 3, left + i % 3);
+							if ((idx >= 0) && !level.isWall(idx) && !level.isDead(idx))
+								usable |= 1 << i;
+						}
+						if (((usable & TOP_ROW) == 0) || ((usable & LEFT_COL) == 0))
+							continue;
+						for (int set=usable; set!=0; set=(set-1)&usable) {
+							if ((Integer.bitCount(set) != num) || ((set & TOP_ROW) == 0) || ((set & LEFT_COL) == 0)
+									|| !isConnected(set))
+								continue;
+							int k = 0;
+							for (int i=0; i<9; i++)
+								if ((set & (1 << i)) != 0)
+									group[k++] = (top + i / 3) * numCols + left + i % 3;
+							if (allOnTargets(group, num) || hasDeadlockedPart(group, num))
+								continue;
+							record(group, num, search(group, num, top, left));
+						}
+					}
+				}
+			}
+			return table;
+		}
+
+		/**
+		 * Record the outcome of a search, if it is worth keeping
+		 *
+		 * @param group the cells of the group, in increasing order
+		 * @param num the number of boxes in the group
+		 * @param result DEADLOCK, UNKNOWN or the fewest pushes needed
+		 */
+		private void record(int[] group, int num, int result) {
+			if (result == UNKNOWN)
+				return;
+			long key = keyOf(group, num);
+			if (result == DEADLOCK) {
+				table.put(key, DEADLOCK_VALUE);
+				return;
+			}
+			int sum = 0;
+			for (int i=0; i<num; i++)
+				sum += nearest[group[i]];
+			if (result > sum)
+				table.put(key, Math.min(result, MAX_COST));
+		}
+
+		/**
+		 * Is some smaller group made from these boxes already a deadlock?
+		 *
+		 * @param group the cells of the group, in increasing order
+		 * @param num the number of boxes in the group
+		 * @return does the group contain a deadlocked group?
+		 */
+		private boolean hasDeadlockedPart(int[] group, int num) {
+			int[] part = new int[num];
+			for (int sub=1; sub<(1<<num)-1; sub++) {
+				if (Integer.bitCount(sub) < 2)
+					continue;
+				int k = 0;
+				for (int i=0; i<num; i++)
+					if ((sub & (1 << i)) != 0)
+						part[k++] = group[i];
+				if (table.get(keyOf(part, k)) == DEADLOCK_VALUE)
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Find the fewest pushes that get a group's boxes onto targets (or out of the
+		 * area round the group), by A* search from every region the actor could start in
+		 *
+		 * @param group the cells of the group, in increasing order
+		 * @param num the number of boxes in the group
+		 * @param top the top row of the group's square
+		 * @param left the left column of the group's square
+		 * @return DEADLOCK, UNKNOWN (if the node limit was reached) or the fewest pushes
+		 */
+		private int search(int[] group, int num, int top, int left) {
+			areaTop  = top - 1;
+			areaLeft = left - 1;
+			int[] boxes = Arrays.copyOf(group, num);
+			PriorityQueue<State> open = new PriorityQueue<State>(ORDER);
+			HashMap<Long,Integer> seen = new HashMap<Long,Integer>();
+
+			// one start for every region of the level the actor might be in
+			for (int box : boxes)
+				boxAt[box] = true;
+			nextEpoch();
+			for (int idx=0; idx<level.getNumCells(); idx++) {
+				if (level.isWall(idx) || boxAt[idx] || (marked[idx] == epoch))
+					continue;
+				int  norm = fill(idx, marked);
+				long key  = stateKey(boxes, norm);
+				seen.put(key, 0);
+				open.add(new State(boxes, idx, key, 0, estimate(boxes)));
+			}
+			for (int box : boxes)
+				boxAt[box] = false;
+
+			int expanded = 0;
+			while (!open.isEmpty()) {
+				State state = open.poll();
+				if (seen.get(state.key) < state.g)
+					continue; // reached again with fewer pushes
+				if (allOnTargets(state.boxes, state.boxes.length))
+					return state.g;
+				if (++expanded > NODE_LIMIT)
+					return UNKNOWN;
+				expand(state, open, seen);
+			}
+			return DEADLOCK;
+		}
+
+		/**
+		 * Generate every push the actor can make from a state
+		 *
+		 * @param state the state
+		 * @param open the states waiting to be expanded
+		 * @param seen the fewest pushes found so far to each state
+		 */
+		private void expand(State state, PriorityQueue<State> open, HashMap<Long,Integer> seen) {
+			int[] boxes = state.boxes;
+			for (int box : boxes)
+				boxAt[box] = true;
+			nextEpoch();
+			int reachedEpoch = epoch;
+			fill(state.actor, reached);
+			for (int i=0; i<boxes.length; i++) {
+				int box = boxes[i];
+				for (Direction dir : DIRECTIONS) {
+					int behind = level.step(box, dir.reverse());
+					int dest   = level.step(box, dir);
+					if ((behind < 0) || (reached[behind] != reachedEpoch) || (dest < 0) || level.isWall(dest)
+							|| boxAt[dest] || level.isDead(dest))
+						continue;
+					int[] child;
+					int   g;
+					if (inArea(dest)) {
+						child = moveBox(boxes, i, dest);
+						g     = state.g + 1;
+					} else {
+						// the box has left the group: charge what it still needs at least
+						child = removeBox(boxes, i);
+						g     = state.g + 1 + nearest[dest];
+					}
+					boxAt[box] = false;
+					for (int c : child)
+						boxAt[c] = true;
+					nextEpoch();
+					int norm = fill(box, marked);
+					for (int c : child)
+						boxAt[c] = false;
+					for (int b : boxes)
+						boxAt[b] = true;
+					long    key   = stateKey(child, norm);
+					Integer known = seen.get(key);
+					if ((known != null) && (known <= g))
+						continue;
+					seen.put(key, g);
+					open.add(new State(child, box, key, g, g + estimate(child)));
+				}
+			}
+			for (int box : boxes)
+				boxAt[box] = false;
+		}
+
+		/**
+		 * Flood fill from a cell, treating walls and boxes as blocked, stamping the cells
+		 * reached with the current epoch
+		 *
+		 * @param start the cell to start from
+		 * @param stamp the stamps to mark
+		 * @return the smallest cell index reached
+		 */
+		private int fill(int start, int[] stamp) {
+			int head = 0;
+			int tail = 0;
+			int min  = start;
+			stamp[start]  = epoch;
+			queue[tail++] = start;
+			while (head < tail) {
+				int idx = queue[head++];
+				if (idx < min)
+					min = idx;
+				for (Direction dir : DIRECTIONS) {
+					int to = level.step(idx, dir);
+					if ((to < 0) || (stamp[to] == epoch) || level.isWall(to) || boxAt[to])
+						continue;
+					stamp[to]     = epoch;
+					queue[tail++] = to;
+				}
+			}
+			return min;
+		}
+
+		/**
+		 * Start a new flood fill, resetting the stamps if the epoch wraps
+		 */
+		private void nextEpoch() {
+			if (++epoch == 0) {
+				Arrays.fill(reached, 0);
+				Arrays.fill(marked, 0);
+				epoch = 1;
+			}
+		}
+
+		/**
+		 * Is a cell in the area round the group's square (one cell wider on every side)?
+		 *
+		 * @param idx the cell index
+		 * @return is the cell in the area?
+		 */
+		private boolean inArea(int idx) {
+			int row = level.rowOf(idx) - areaTop;
+			int col = level.colOf(idx) - areaLeft;
+			return (row >= 0) && (row < AREA) && (col >= 0) && (col < AREA);
+		}
+
+		/**
+		 * Make the key of a search state: the boxes' places in the area, 5 bits each,
+		 * their number, and the normalised actor position
+		 *
+		 * @param boxes the box cell indices, in increasing order
+		 * @param norm the smallest cell index the actor can reach
+		 * @return the key
+		 */
+		private long stateKey(int[] boxes, int norm) {
+			long key = boxes.length;
+			for (int box : boxes)
+				key = (key << 5) | ((level.rowOf(box) - areaTop) * AREA + level.colOf(box) - areaLeft);
+			return (key << 32) | norm;
+		}
+
+		/**
+		 * Sum of the boxes' distances to their nearest targets
+		 *
+		 * @param boxes the box cell indices
+		 * @return the estimate
+		 */
+		private int estimate(int[] boxes) {
+			int sum = 0;
+			for (int box : boxes)
+				sum += nearest[box];
+			return sum;
+		}
+
+		/**
+		 * Copy a sorted box array with one box moved, keeping it sorted
+		 *
+		 * @param boxes the box cell indices, in increasing order
+		 * @param i the position of the box that moves
+		 * @param dest the cell the box moves to
+		 * @return the new box cell indices, in increasing order
+		 */
+		private static int[] moveBox(int[] boxes, int i, int dest) {
+			int[] moved = boxes.clone();
+			moved[i] = dest;
+			Arrays.sort(moved);
+			return moved;
+		}
+
+		/**
+		 * Copy a box array with one box left out
+		 *
+		 * @param boxes the box cell indices, in increasing order
+		 * @param i the position of the box to leave out
+		 * @return the other box cell indices, in increasing order
+		 */
+		private static int[] removeBox(int[] boxes, int i) {
+			int[] rest = new int[boxes.length - 1];
+			System.arraycopy(boxes, 0, rest, 0, i);
+			System.arraycopy(boxes, i + 1, rest, i, rest.length - i);
+			return rest;
+		}
+
+		/**
+		 * Are all the boxes of a group on targets?
+		 *
+		 * @param boxes the box cell indices
+		 * @param num the number of boxes
+		 * @return are they all on targets?
+		 */
+		private boolean allOnTargets(int[] boxes, int num) {
+			for (int i=0; i<num; i++)
+				if (!level.isTarget(boxes[i]))
+					return false;
+			return true;
+		}
+
+		/**
+		 * Is a set of cells of a 3x3 square joined up (sideways or diagonally)?
+		 *
+		 * @param set the cells, as bits 0 to 8 of the square in row order
+		 * @return is the set connected?
+		 */
+		private static boolean isConnected(int set) {
+			int joined = set & -set;
+			while (true) {
+				int grown = joined;
+				for (int i=0; i<9; i++)
+					if ((joined & (1 << i)) != 0)
+						grown |= NEIGHBOURS[i] & set;
+				if (grown == joined)
+					return joined == set;
+				joined = grown;
+			}
+		}
+
+		/**
+		 * Work out each cell's push distance to its nearest target, for a box on its own
+		 * and ignoring where the actor is (pulling a box backwards from every target)
+		 *
+		 * @param level the level
+		 * @param queue scratch space for the search
+		 * @return the distances (a large value for dead squares and walls)
+		 */
+		private static int[] nearestTargets(Level level, int[] queue) {
+			int[] nearest = new int[level.getNumCells()];
+			int   head    = 0;
+			int   tail    = 0;
+			Arrays.fill(nearest, FAR);
+			for (int idx=0; idx<nearest.length; idx++) {
+				if (level.isTarget(idx) && !level.isWall(idx)) {
+					nearest[idx]  = 0;
+					queue[tail++] = idx;
+				}
+			}
+			while (head < tail) {
+				int box = queue[head++];
+				for (Direction dir : DIRECTIONS) {
+					int to    = level.step(box, dir);
+					int actor = (to < 0) ? -1 : level.step(to, dir);
+					if ((actor < 0) || level.isWall(to) || level.isWall(actor) || (nearest[to] != FAR))
+						continue;
+					nearest[to]   = nearest[box] + 1;
+					queue[tail++] = to;
+				}
+			}
+			return nearest;
+		}
+
+		private final Level           level;
+		private final PatternDatabase table;
+		private final boolean[]       boxAt;
+		private final int[]           reached;  // stamps: cells the actor can reach from the state being expanded
+		private final int[]           marked;   // stamps: cells reached by other flood fills
+		private final int[]           queue;
+		private final int[]           nearest;
+		private int                   epoch    = 0;
+		private int                   areaTop  = 0;
+		private int                   areaLeft = 0;
+
+		private static final int AREA = 5;          // the side of the area round a group's square
+		private static final int FAR  = 1 << 20;    // the distance of a cell no box can get to a target from
+		private static final int[] NEIGHBOURS = new int[9];
+		static {
+			for (int i=0; i<9; i++)
+				for (int j=0; j<9; j++)
+					if ((i != j) && (Math.abs(i / 3 - j / 3) <= 1) && (Math.abs(i % 3 - j % 3) <= 1))
+						NEIGHBOURS[i] |= 1 << j;
+		}
+	}
+
+	/**
+	 * A search state of the builder: the group's boxes still in the area, and the actor
+	 */
+	private static final class State {
+		/**
+		 * Constructor
+		 *
+		 * @param boxes the box cell indices, in increasing order
+		 * @param actor the actor cell index
+		 * @param key the state's key (boxes and normalised actor position)
+		 * @param g the pushes made so far (including charges for boxes that left)
+		 * @param f g plus the estimate of the pushes still needed
+		 */
+		State(int[] boxes, int actor, long key, int g, int f) {
+			this.boxes = boxes;
+			this.actor = actor;
+			this.key   = key;
+			this.g     = g;
+			this.f     = f;
+		}
+
+		final int[] boxes;
+		final int   actor;
+		final long  key;
+		final int   g;
+		final int   f;
+	}
+
+	/** The result of a lookup when the push would complete a deadlock */
+	static final int DEADLOCK = Integer.MAX_VALUE;
+
+	/** The suffix added to a screen file's name for its table */
+	public static final String SUFFIX = ".pdb";
+
+	private final Level  level;
+	private long[]       keys;      // the sorted cells of each group, cell index + 1, 16 bits each (0 if empty)
+	private byte[]       values;    // DEADLOCK_VALUE or the push cost
+	private final long[] involved;  // bitset of the cells in at least one group
+	private int          size         = 0;
+	private int          numDeadlocks = 0;
+
+	private static final int   UNKNOWN        = -1;
+	private static final int   DEADLOCK_VALUE = 0xff;
+	private static final int   MAX_COST       = 254;
+	private static final int   NODE_LIMIT     = 2000;
+	private static final int   MAX_CELLS      = 0xffff;
+	private static final int   TOP_ROW        = 0007;  // bits of the top row of a 3x3 square
+	private static final int   LEFT_COL       = 0111;  // bits of the left column of a 3x3 square
+	private static final int   MAGIC          = 0x534B5044; // "SKPD"
+	private static final short VERSION        = 1;
+	private static final int   HEADER         = 18;
+
+	private static final Comparator<State> ORDER = (a, b) -> (a.f != b.f) ? Integer.compare(a.f, b.f) : Integer.compare(b.g, a.g);
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private static boolean traceOn = false; // for debugging
+}
@@ -1,5 +1,6 @@
 package sokoban;
 
+import java.io.*;
 import java.util.*;
 
 /**
@@ -19,6 +20,17 @@ public class PlaySokoban  {
 		gUI   = new GUI();
 	}
 
+	/**
+	 * Constructor playing levels from a level pack
+	 *
+	 * @param pack the level pack (cannot be null)
+	 */
+	public PlaySokoban(LevelPack pack) {
+		scnr  = new Scanner(System.in);
+		tUI   = new TUI(pack);
+		gUI   = new GUI(pack);
+	}
+
 	/**
 	 * Generate game ui per user preference
 	 */
@@ -38,20 +50,85 @@ public class PlaySokoban  {
 			System.out.println("Program shutting down.");
 			System.exit(0);
 		} else if (command.equalsIgnoreCase("T")) {
-			tUI.newGame();
+			if (askRecover()) {
+				tUI.recoverAutosave(autosave);
+			} else {
+				tUI.newGame();
+				if (autosave != null)
+					tUI.setAutosave(autosave);
+			}
 			tUI.menu();
 		} else if (command.equalsIgnoreCase("G")) {
+			boolean recover = askRecover();
 			gUI.newGame();
+			if (recover)
+				gUI.recoverAutosave(autosave);
+			else if (autosave != null)
+				gUI.setAutosave(autosave);
 		} else {
 			System.out.println("Unknown command (" + command + ")");
 		}
 	}
 
+	/**
+	 * Turn on autosave: every move is appended to a log, and a game left in the log
+	 * by an interrupted session can be recovered at the next start
+	 *
+	 * @param logFile the log file (cannot be null)
+	 */
+	public void setAutosave(File logFile) {
+		if (logFile == null)
+			throw new IllegalArgumentException("logFile cannot be null");
+		autosave = logFile;
+	}
+
+	/**
+	 * If autosave is on and an interrupted session left a log, ask whether to recover it
+	 *
+	 * @return should the game in the log be recovered?
+	 */
+	private boolean askRecover() {
+		if ((autosave == null) || !autosave.isFile())
+			return false;
+		System.out.println(String.join(
+			"\n",
+			"An interrupted game was found. Recover it?",
+			"Options:",
+			"	Yes      [Y]",
+			"	No       [N]"
+		));
+		return scnr.nextLine().equalsIgnoreCase("Y");
+	}
+
 	/**
 	 * Main entry point into app
+	 *
+	 * @param args [-a] to autosave (and recover an interrupted game), [-ansi] to draw the
+	 *             text UI on an ANSI terminal, [-r] for a computer player that moves at
+	 *             random instead of following the solver, and an optional level pack
+	 *             (.sok/.xsb) to play instead of the screens directory
 	 */
 	public static void main(String[] args) {
-		PlaySokoban play = new PlaySokoban();
+		boolean autosave = false;
+		boolean ansi     = false;
+		boolean random   = false;
+		String  pack     = null;
+		for (String arg : args) {
+			if (arg.equals("-a"))
+				autosave = true;
+			else if (arg.equals("-ansi"))
+				ansi = true;
+			else if (arg.equals("-r"))
+				random = true;
+			else
+				pack = arg;
+		}
+		PlaySokoban play = (pack != null) ? new PlaySokoban(new LevelPack(new File(pack))) : new PlaySokoban();
+		if (autosave)
+			play.setAutosave(new File(System.getProperty("user.dir"), AUTOSAVE_FILE));
+		play.tUI.setAnsi(ansi);
+		play.tUI.setSolverPlayer(!random);
+		play.gUI.setSolverPlayer(!random);
 		play.genPlayOptions();
 	}
 
@@ -65,8 +142,11 @@ public class PlaySokoban  {
 			System.out.println("trace: " + s);
 	}
 
-	private TUI     tUI   = null;
-	private GUI     gUI   = null;
-	private Scanner scnr  = null;
+	private TUI     tUI      = null;
+	private GUI     gUI      = null;
+	private Scanner scnr     = null;
+	private File    autosave = null;
 	private static  boolean traceOn       = true; // for debugging
+
+	private static final String AUTOSAVE_FILE = "autosave.sklog";
 }
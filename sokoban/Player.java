@@ -18,4 +18,17 @@ public interface Player {
 	 * @return the chosen direction
 	 */
 	public Direction move(Vector<Direction> choices);
+
+	/**
+	 * In which direction should the actor move, given a bitmask of choices
+	 * (see {@link Sokoban#legalMoves()})? By default this builds the vector of
+	 * choices and asks {@link #move(Vector)}; players that can choose straight from
+	 * the bitmask should override it to avoid the allocation.
+	 *
+	 * @param choices bitmask of possible directions for the player to choose from
+	 * @return the chosen direction
+	 */
+	public default Direction move(int choices) {
+		return move(Direction.toVector(choices));
+	}
 }
@@ -0,0 +1,182 @@
+package sokoban;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless engine for running large numbers of random playouts of a puzzle, to
+ * estimate how hard it is. Each worker thread plays its own copy of the puzzle
+ * (sharing the immutable {@link Level}) with a {@link RandomPlayer} on its own
+ * {@link SplittableRandom} stream. Moves are chosen from {@link Sokoban#legalMoves()}
+ * and made straight on the board, without the undo journal or observers, and each
+ * playout starts again by copying the start position back over the board.
+ *
+ * Usage: java sokoban.PlayoutEngine [-n playouts] [-s max steps] [-p threads] [-r seed] screen file
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class PlayoutEngine {
+	/**
+	 * Constructor
+	 *
+	 * @param puzzle the puzzle to play out, from its current position (cannot be null)
+	 */
+	public PlayoutEngine(Sokoban puzzle) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		this.puzzle = (Sokoban) puzzle.clone();
+		this.start  = new Board(puzzle.getBoard());
+	}
+
+	/**
+	 * Changes the step limit of each playout
+	 *
+	 * @param maxSteps the step limit (at least 1)
+	 */
+	public void setMaxSteps(int maxSteps) {
+		if (maxSteps < 1)
+			throw new IllegalArgumentException("maxSteps must be at least 1");
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Changes the number of worker threads
+	 *
+	 * @param threads the number of worker threads (at least 1)
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+		this.threads = threads;
+	}
+
+	/**
+	 * Changes the seed, so that runs can be repeated
+	 *
+	 * @param seed the seed for the workers' random streams
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Changes the number of step histogram buckets
+	 *
+	 * @param numBuckets the number of buckets (at least 1)
+	 */
+	public void setNumBuckets(int numBuckets) {
+		if (numBuckets < 1)
+			throw new IllegalArgumentException("numBuckets must be at least 1");
+		this.numBuckets = numBuckets;
+	}
+
+	/**
+	 * Run a number of playouts, shared out over the worker threads
+	 *
+	 * @param playouts the number of playouts (cannot be negative)
+	 * @return the tally of the playouts
+	 */
+	public PlayoutStats run(long playouts) {
+		if (playouts < 0)
+			throw new IllegalArgumentException("playouts cannot be negative");
+		SplittableRandom         root    = new SplittableRandom(seed);
+		ExecutorService          pool    = Executors.newFixedThreadPool(threads);
+		ArrayList<Callable<PlayoutStats>> workers = new ArrayList<Callable<PlayoutStats>>();
+		for (int i=0; i<threads; i++) {
+			long             share = playouts / threads + ((i < playouts % threads) ? 1 : 0);
+			SplittableRandom rnd   = root.split();
+			workers.add(() -> playOut(share, rnd));
+		}
+		long started = System.nanoTime();
+		try {
+			PlayoutStats total = new PlayoutStats(maxSteps, numBuckets);
+			for (Future<PlayoutStats> future : pool.invokeAll(workers))
+				total.merge(future.get());
+			total.setElapsedNanos(System.nanoTime() - started);
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SokobanException("Playouts interrupted");
+		} catch (ExecutionException e) {
+			throw new SokobanException("Playouts failed: " + e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * One worker's share of the playouts, on its own copy of the puzzle
+	 *
+	 * @param playouts the number of playouts
+	 * @param rnd the worker's random stream
+	 * @return the worker's tally
+	 */
+	private PlayoutStats playOut(long playouts, SplittableRandom rnd) {
+		Sokoban      game   = (Sokoban) puzzle.clone();
+		Board        board  = game.getBoard();
+		Player       player = new RandomPlayer(rnd);
+		PlayoutStats stats  = new PlayoutStats(maxSteps, numBuckets);
+		for (long n=0; n<playouts; n++) {
+			board.copyFrom(start);
+			int     steps  = 0;
+			boolean solved = game.onTarget();
+			boolean stuck  = false;
+			while (!solved && (steps < maxSteps)) {
+				int legal = game.legalMoves();
+				if (legal == 0) {
+					stuck = true;
+					break;
+				}
+				game.play(player.move(legal));
+				steps++;
+				solved = game.onTarget();
+			}
+			stats.record(steps, solved, stuck);
+		}
+		return stats;
+	}
+
+	/**
+	 * Main entry point for running playouts of a screen file
+	 *
+	 * @param args the command line options (see the class comment)
+	 */
+	public static void main(String[] args) {
+		long   playouts = 100000;
+		int    maxSteps = 1000;
+		int    threads  = Runtime.getRuntime().availableProcessors();
+		long   seed     = System.nanoTime();
+		String screen   = null;
+		try {
+			for (int i=0; i<args.length; i++) {
+				switch (args[i]) {
+					case "-n": playouts = Long.parseLong(args[++i]);   break;
+					case "-s": maxSteps = Integer.parseInt(args[++i]); break;
+					case "-p": threads  = Integer.parseInt(args[++i]); break;
+					case "-r": seed     = Long.parseLong(args[++i]);   break;
+					default:   screen   = args[i];                     break;
+				}
+			}
+			if (screen == null)
+				throw new IllegalArgumentException("no screen file");
+		} catch (RuntimeException e) {
+			System.out.println("Usage: java sokoban.PlayoutEngine [-n playouts] [-s max steps] [-p threads] [-r seed] screen file");
+			System.exit(1);
+		}
+		PlayoutEngine engine = new PlayoutEngine(new Sokoban(new File(screen)));
+		engine.setMaxSteps(maxSteps);
+		engine.setThreads(threads);
+		engine.setSeed(seed);
+		System.out.println(screen + " (seed " + seed + ", " + threads + " threads)");
+		System.out.print(engine.run(playouts));
+	}
+
+	private final Sokoban puzzle;
+	private final Board   start;
+	private int           maxSteps   = 1000;
+	private int           threads    = Runtime.getRuntime().availableProcessors();
+	private long          seed       = System.nanoTime();
+	private int           numBuckets = 20;
+}
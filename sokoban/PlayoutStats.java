@@ -0,0 +1,237 @@
+package sokoban;
+
+import java.util.*;
+
+/**
+ * The tally of a batch of random playouts: how many solved the puzzle, how many got
+ * stuck (no legal move) and how many ran out of steps, with a histogram of the
+ * number of steps each playout took.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class PlayoutStats {
+	/**
+	 * Constructor for an empty tally
+	 *
+	 * @param maxSteps the step limit of each playout (at least 1)
+	 * @param numBuckets the number of histogram buckets (at least 1)
+	 */
+	public PlayoutStats(int maxSteps, int numBuckets) {
+		if (maxSteps < 1)
+			throw new IllegalArgumentException("maxSteps must be at least 1");
+		if (numBuckets < 1)
+			throw new IllegalArgumentException("numBuckets must be at least 1");
+		this.maxSteps    = maxSteps;
+		this.bucketWidth = (maxSteps + numBuckets) / numBuckets;
+		this.counts      = new long[numBuckets];
+		this.solvedAt    = new long[numBuckets];
+	}
+
+	/**
+	 * Record a finished playout
+	 *
+	 * @param steps the number of steps taken
+	 * @param solvedIt did the playout solve the puzzle?
+	 * @param stuckIt did the playout end with no legal move?
+	 */
+	void record(int steps, boolean solvedIt, boolean stuckIt) {
+		int bucket = Math.min(steps / bucketWidth, counts.length - 1);
+		counts[bucket]++;
+		playouts++;
+		totalSteps += steps;
+		if (solvedIt) {
+			solvedAt[bucket]++;
+			solved++;
+			solvedSteps += steps;
+		} else if (stuckIt)
+			stuck++;
+	}
+
+	/**
+	 * Add another tally (with the same limits) into this one
+	 *
+	 * @param other the tally to add (cannot be null)
+	 */
+	void merge(PlayoutStats other) {
+		if ((other == null) || (other.maxSteps != maxSteps) || (other.counts.length != counts.length))
+			throw new IllegalArgumentException("other must have the same limits");
+		for (int i=0; i<counts.length; i++) {
+			counts[i]   += other.counts[i];
+			solvedAt[i] += other.solvedAt[i];
+		}
+		playouts    += other.playouts;
+		solved      += other.solved;
+		stuck       += other.stuck;
+		totalSteps  += other.totalSteps;
+		solvedSteps += other.solvedSteps;
+	}
+
+	/**
+	 * Set the wall time the playouts took
+	 *
+	 * @param nanos the wall time in nanoseconds
+	 */
+	void setElapsedNanos(long nanos) {
+		elapsedNanos = nanos;
+	}
+
+	/**
+	 * Gets the number of playouts
+	 *
+	 * @return the number of playouts
+	 */
+	public long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * Gets the number of playouts that solved the puzzle
+	 *
+	 * @return the number of solving playouts
+	 */
+	public long getSolved() {
+		return solved;
+	}
+
+	/**
+	 * Gets the number of playouts that ended with no legal move
+	 *
+	 * @return the number of stuck playouts
+	 */
+	public long getStuck() {
+		return stuck;
+	}
+
+	/**
+	 * Gets the number of playouts that reached the step limit
+	 *
+	 * @return the number of playouts cut off by the step limit
+	 */
+	public long getCutOff() {
+		return playouts - solved - stuck;
+	}
+
+	/**
+	 * Gets the fraction of playouts that solved the puzzle
+	 *
+	 * @return the solve rate (0 if there were no playouts)
+	 */
+	public double getSolveRate() {
+		return (playouts == 0) ? 0 : (double) solved / playouts;
+	}
+
+	/**
+	 * Gets the mean number of steps per playout
+	 *
+	 * @return the mean steps (0 if there were no playouts)
+	 */
+	public double getMeanSteps() {
+		return (playouts == 0) ? 0 : (double) totalSteps / playouts;
+	}
+
+	/**
+	 * Gets the mean number of steps of the playouts that solved the puzzle
+	 *
+	 * @return the mean steps to solve (0 if none solved)
+	 */
+	public double getMeanSolvedSteps() {
+		return (solved == 0) ? 0 : (double) solvedSteps / solved;
+	}
+
+	/**
+	 * Gets the total number of steps taken
+	 *
+	 * @return the total steps
+	 */
+	public long getTotalSteps() {
+		return totalSteps;
+	}
+
+	/**
+	 * Gets the wall time the playouts took
+	 *
+	 * @return the wall time in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000L;
+	}
+
+	/**
+	 * Gets the throughput
+	 *
+	 * @return playouts per second of wall time
+	 */
+	public double getPlayoutsPerSecond() {
+		return (elapsedNanos == 0) ? 0 : playouts * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Gets the step throughput
+	 *
+	 * @return steps per second of wall time
+	 */
+	public double getStepsPerSecond() {
+		return (elapsedNanos == 0) ? 0 : totalSteps * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Gets the width of each histogram bucket
+	 *
+	 * @return the number of steps covered by each bucket
+	 */
+	public int getBucketWidth() {
+		return bucketWidth;
+	}
+
+	/**
+	 * Gets the histogram of steps over all playouts (bucket i covers
+	 * i*bucketWidth to (i+1)*bucketWidth-1 steps; the last bucket also takes the rest)
+	 *
+	 * @return a copy of the bucket counts
+	 */
+	public long[] getHistogram() {
+		return counts.clone();
+	}
+
+	/**
+	 * Gets the histogram of steps over the playouts that solved the puzzle
+	 *
+	 * @return a copy of the bucket counts
+	 */
+	public long[] getSolvedHistogram() {
+		return solvedAt.clone();
+	}
+
+	/**
+	 * Summary and histogram as text
+	 *
+	 * @return the report
+	 */
+	@Override
+	public String toString() {
+		StringBuffer b = new StringBuffer();
+		b.append(String.format("playouts=%d solved=%d (%.4f%%) stuck=%d cutoff=%d%n",
+			playouts, solved, 100 * getSolveRate(), stuck, getCutOff()));
+		b.append(String.format("mean steps=%.1f mean steps to solve=%.1f time=%dms rate=%.0f playouts/s (%.0f steps/s)%n",
+			getMeanSteps(), getMeanSolvedSteps(), getElapsedMillis(), getPlayoutsPerSecond(), getStepsPerSecond()));
+		b.append(String.format("%15s %12s %12s%n", "steps", "playouts", "solved"));
+		for (int i=0; i<counts.length; i++) {
+			int    lo    = i * bucketWidth;
+			String range = (i == counts.length - 1) ? lo + "-" + maxSteps : lo + "-" + (lo + bucketWidth - 1);
+			b.append(String.format("%15s %12d %12d%n", range, counts[i], solvedAt[i]));
+		}
+		return b.toString();
+	}
+
+	private final int    maxSteps;
+	private final int    bucketWidth;
+	private final long[] counts;
+	private final long[] solvedAt;
+	private long         playouts     = 0;
+	private long         solved       = 0;
+	private long         stuck        = 0;
+	private long         totalSteps   = 0;
+	private long         solvedSteps  = 0;
+	private long         elapsedNanos = 0;
+}
@@ -15,7 +15,19 @@ public class RandomPlayer implements Player {
 	 * Default constructor
 	 */
 	public RandomPlayer() {
-		rnd = new Random();
+		rnd = new SplittableRandom();
+	}
+
+	/**
+	 * Constructor with a given random number stream (for reproducible or parallel play,
+	 * give each player its own stream, for instance from {@link SplittableRandom#split()})
+	 *
+	 * @param rnd the random number stream (cannot be null)
+	 */
+	public RandomPlayer(SplittableRandom rnd) {
+		if (rnd == null)
+			throw new IllegalArgumentException("rnd cannot be null");
+		this.rnd = rnd;
 	}
 
 	/**
@@ -35,5 +47,21 @@ public class RandomPlayer implements Player {
 		return choices.get(idx);
 	}
 
-	private Random rnd = null;
+	/**
+	 * Select a random direction from a bitmask of choices, without allocating
+	 *
+	 * @param choices bitmask of possible directions for the player to choose from
+	 * @return a random direction
+	 */
+	@Override
+	public Direction move(int choices) {
+		if (choices == 0)
+			throw new IllegalArgumentException("cannot have empty choices");
+		int idx = rnd.nextInt(Integer.bitCount(choices));
+		for (int i=0; i<idx; i++)
+			choices &= choices - 1; // drop the lowest choice
+		return Direction.of(Integer.numberOfTrailingZeros(choices));
+	}
+
+	private SplittableRandom rnd = null;
 }
@@ -0,0 +1,339 @@
+package sokoban;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and loads puzzles in a compact, versioned binary format that keeps the
+ * whole game: the level, the starting position and the undo/redo journal, so that
+ * Restart and Undo still work after a load. The level is stored as bitsets, so
+ * loading needs no parsing of screen text.
+ *
+ * The format (big-endian) is:
+ * <pre>
+ *   int    magic "SKSN"
+ *   short  format version
+ *   long   level fingerprint (see {@link Level#fingerprint()})
+ *   int    rows, int columns
+ *   long[] walls, long[] targets, long[] starting boxes (one bit per cell)
+ *   int    starting actor cell
+ *   byte   1 if the journal starts after the starting position (a capped journal
+ *          that has forgotten its oldest moves), followed by long[] boxes and int actor
+ *   int    number of moves held, int number of those that are done (the rest can be redone)
+ *   byte[] the moves, 2 bits each (the direction), four to a byte
+ *   int    CRC32 of everything before it
+ * </pre>
+ * Whether a move pushed a box is not stored; it is found again when the moves are
+ * replayed. Saves in the old text format (a screen) can still be loaded with
+ * {@link #open(File)}.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public final class Snapshot {
+	/**
+	 * No instances; everything is static
+	 */
+	private Snapshot() {
+	}
+
+	/**
+	 * Save a puzzle to a snapshot file (written to a temporary file, then moved into place)
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 * @param file the file to write (cannot be null)
+	 */
+	public static void save(Sokoban puzzle, File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		write(toBytes(puzzle), file);
+	}
+
+	/**
+	 * Write an encoded snapshot to a file (to a temporary file, then moved into place).
+	 * Encoding and writing are separate so that a puzzle can be encoded where it is
+	 * played and written out on another thread.
+	 *
+	 * @param bytes the snapshot bytes (from {@link #toBytes(Sokoban)}; cannot be null)
+	 * @param file the file to write (cannot be null)
+	 */
+	static void write(byte[] bytes, File file) {
+		if ((bytes == null) || (file == null))
+			throw new IllegalArgumentException("bytes and file cannot be null");
+		Path   path  = file.toPath();
+		Path   tmp   = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			Files.write(tmp, bytes);
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException ignored) {
+			}
+			throw new SokobanException("Cannot save " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Load a puzzle from a snapshot file
+	 *
+	 * @param file the snapshot file (cannot be null)
+	 * @return the puzzle, at the saved position and with its journal
+	 */
+	public static Sokoban load(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		return withPatterns(fromBytes(readAll(file), file.getPath()), file);
+	}
+
+	/**
+	 * Load a puzzle from either a snapshot or a text screen file
+	 *
+	 * @param file the file (cannot be null)
+	 * @return the puzzle
+	 */
+	public static Sokoban open(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		byte[] bytes = readAll(file);
+		if (isSnapshot(bytes))
+			return withPatterns(fromBytes(bytes, file.getPath()), file);
+		return withPatterns(new Sokoban(LevelLoader.parse(bytes, 0, bytes.length, file.getPath())), file);
+	}
+
+	/**
+	 * Attach the pattern database kept next to a file to the puzzle loaded from it
+	 * (see {@link PatternDatabase#find(File, Level)})
+	 *
+	 * @param puzzle the puzzle
+	 * @param file the file it was loaded from
+	 * @return the puzzle
+	 */
+	private static Sokoban withPatterns(Sokoban puzzle, File file) {
+		puzzle.setPatternDatabase(PatternDatabase.find(file, puzzle.getLevel()));
+		return puzzle;
+	}
+
+	/**
+	 * Is a file a snapshot (rather than a text screen)?
+	 *
+	 * @param file the file (cannot be null)
+	 * @return does the file start with the snapshot magic number?
+	 */
+	public static boolean isSnapshot(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Encode a puzzle as a snapshot
+	 *
+	 * @param puzzle the puzzle (cannot be null)
+	 * @return the snapshot bytes
+	 */
+	static byte[] toBytes(Sokoban puzzle) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		Level       level   = puzzle.getLevel();
+		Board       start   = puzzle.getStartBoard();
+		MoveJournal journal = puzzle.getJournal();
+		int         words   = Level.words(level.getNumCells());
+		int         moves   = journal.size();
+
+		// the position the journal starts from: normally the start, unless it is capped
+		Board base = new Board(puzzle.getBoard());
+		for (int i=journal.getCursor()-1; i>=0; i--)
+			unplay(base, journal.get(i));
+		boolean fromStart = base.equals(start);
+
+		int size = 4 + 2 + 8 + 4 + 4 + 3 * words * 8 + 4 + 1 + (fromStart ? 0 : words * 8 + 4)
+			+ 4 + 4 + (moves + 3) / 4 + 4;
+		ByteBuffer buf = ByteBuffer.allocate(size);
+		buf.putInt(MAGIC);
+		buf.putShort(VERSION);
+		buf.putLong(level.fingerprint());
+		buf.putInt(level.getNumRows());
+		buf.putInt(level.getNumCols());
+		putBits(buf, level.getWalls());
+		putBits(buf, level.getTargets());
+		putBits(buf, start.getBoxes());
+		buf.putInt(start.getActor());
+		buf.put((byte) (fromStart ? 0 : 1));
+		if (!fromStart) {
+			putBits(buf, base.getBoxes());
+			buf.putInt(base.getActor());
+		}
+		buf.putInt(moves);
+		buf.putInt(journal.getCursor());
+		int packed = 0;
+		for (int i=0; i<moves; i++) {
+			packed |= (journal.get(i) & 3) << ((i & 3) << 1);
+			if (((i & 3) == 3) || (i == moves - 1)) {
+				buf.put((byte) packed);
+				packed = 0;
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 0, buf.position());
+		buf.putInt((int) crc.getValue());
+		return buf.array();
+	}
+
+	/**
+	 * Decode a snapshot into a puzzle
+	 *
+	 * @param bytes the snapshot bytes (cannot be null)
+	 * @param source where the snapshot came from, for error messages
+	 * @return the puzzle, at the saved position and with its journal
+	 */
+	static Sokoban fromBytes(byte[] bytes, String source) {
+		if (bytes == null)
+			throw new IllegalArgumentException("bytes cannot be null");
+		if (!isSnapshot(bytes))
+			throw new SokobanException(source + ": not a snapshot");
+		if (bytes.length < 10)
+			throw new SokobanException(source + ": snapshot is truncated");
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		if (buf.getInt(bytes.length - 4) != (int) crc.getValue())
+			throw new SokobanException(source + ": snapshot checksum does not match");
+		try {
+			buf.position(4);
+			short version = buf.getShort();
+			if (version != VERSION)
+				throw new SokobanException(source + ": unsupported snapshot version " + version);
+			long fingerprint = buf.getLong();
+			int  numRows     = buf.getInt();
+			int  numCols     = buf.getInt();
+			if ((numRows < 1) || (numCols < 1) || ((long) numRows * numCols > bytes.length * 8L))
+				throw new SokobanException(source + ": invalid snapshot dimensions");
+			int   words   = Level.words(numRows * numCols);
+			Level level   = new Level(numRows, numCols, getBits(buf, words), getBits(buf, words));
+			if (level.fingerprint() != fingerprint)
+				throw new SokobanException(source + ": snapshot level does not match its fingerprint");
+			Board start   = board(level, buf, source);
+			Board base    = (buf.get() != 0) ? board(level, buf, source) : null;
+			int   moves   = buf.getInt();
+			int   cursor  = buf.getInt();
+			if ((moves < 0) || (cursor < 0) || (cursor > moves) || ((moves + 3) / 4 > buf.remaining() - 4))
+				throw new SokobanException(source + ": invalid snapshot journal");
+
+			Sokoban puzzle = new Sokoban(start);
+			if (base != null)
+				puzzle.getBoard().copyFrom(base);
+			int packed = 0;
+			for (int i=0; i<moves; i++) {
+				if ((i & 3) == 0)
+					packed = buf.get() & 0xff;
+				Direction dir = DIRECTIONS[(packed >>> ((i & 3) << 1)) & 3];
+				if (!puzzle.canMove(dir))
+					throw new SokobanException(source + ": move " + (i + 1) + " (" + dir + ") in snapshot cannot be made");
+				puzzle.move(dir);
+			}
+			for (int i=cursor; i<moves; i++)
+				puzzle.undo();
+			return puzzle;
+		} catch (BufferUnderflowException e) {
+			throw new SokobanException(source + ": snapshot is truncated");
+		}
+	}
+
+	/**
+	 * Does a buffer start with the snapshot magic number?
+	 *
+	 * @param bytes the buffer
+	 * @return does it look like a snapshot?
+	 */
+	private static boolean isSnapshot(byte[] bytes) {
+		return (bytes.length >= 4) && (ByteBuffer.wrap(bytes).getInt(0) == MAGIC);
+	}
+
+	/**
+	 * Read a board (boxes, then actor) and check it fits the level
+	 *
+	 * @param level the level
+	 * @param buf the buffer to read from
+	 * @param source where the snapshot came from, for error messages
+	 * @return the board
+	 */
+	private static Board board(Level level, ByteBuffer buf, String source) {
+		long[] boxes = getBits(buf, Level.words(level.getNumCells()));
+		int    actor = buf.getInt();
+		if ((actor < 0) || (actor >= level.getNumCells()) || level.isWall(actor) || Level.get(boxes, actor))
+			throw new SokobanException(source + ": invalid actor cell in snapshot");
+		if (Level.bitCount(boxes) != level.numTargets())
+			throw new SokobanException(source + ": number of boxes and targets in snapshot must be equal");
+		return new Board(level, boxes, actor);
+	}
+
+	/**
+	 * Step a board back over an encoded move (no checks; the move must have been made)
+	 *
+	 * @param board the board
+	 * @param move the encoded move (as held in a {@link MoveJournal})
+	 */
+	private static void unplay(Board board, byte move) {
+		Direction dir   = MoveJournal.direction(move);
+		Level     level = board.getLevel();
+		int       actor = board.getActor();
+		board.setActor(level.step(actor, dir.reverse()));
+		if (MoveJournal.isPush(move)) {
+			board.setBox(level.step(actor, dir), false);
+			board.setBox(actor, true);
+		}
+	}
+
+	/**
+	 * Read a whole file
+	 *
+	 * @param file the file
+	 * @return its bytes
+	 */
+	private static byte[] readAll(File file) {
+		try {
+			return Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			throw new SokobanException("Cannot read " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Write a bitset
+	 *
+	 * @param buf the buffer to write to
+	 * @param bits the bitset
+	 */
+	private static void putBits(ByteBuffer buf, long[] bits) {
+		for (long word : bits)
+			buf.putLong(word);
+	}
+
+	/**
+	 * Read a bitset
+	 *
+	 * @param buf the buffer to read from
+	 * @param words the number of longs in the bitset
+	 * @return the bitset
+	 */
+	private static long[] getBits(ByteBuffer buf, int words) {
+		long[] bits = new long[words];
+		for (int i=0; i<words; i++)
+			bits[i] = buf.getLong();
+		return bits;
+	}
+
+	/** The suffix given to snapshot files */
+	public static final String SUFFIX = ".sks";
+
+	private static final int         MAGIC      = 0x534B534E; // "SKSN"
+	private static final short       VERSION    = 1;
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
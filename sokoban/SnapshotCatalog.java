@@ -0,0 +1,467 @@
+package sokoban;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * A sorted catalog of the saved games in a directory, newest first.
+ * The directory is listed once; after that the catalog is kept up to date from a
+ * {@link WatchService}, whose events are picked up (without blocking) whenever
+ * the catalog is used, so each change costs one file lookup and one sorted insert
+ * or removal rather than a new listing. If the watch service reports that it
+ * lost events, the directory is listed again.
+ *
+ * The details of each save (level size, progress, moves made) are read only when
+ * they are first asked for, typically when the save is shown on a page, and are
+ * kept until the file changes. A missing directory gives an empty catalog, which
+ * fills up once the directory appears.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class SnapshotCatalog implements Closeable {
+	/**
+	 * Constructor
+	 *
+	 * @param dir the directory of saved games (cannot be null; need not exist yet)
+	 */
+	public SnapshotCatalog(File dir) {
+		if (dir == null)
+			throw new IllegalArgumentException("dir cannot be null");
+		this.dir = dir.toPath();
+	}
+
+	/**
+	 * Gets the directory of saved games
+	 *
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return dir.toFile();
+	}
+
+	/**
+	 * Gets the number of saved games
+	 *
+	 * @return the number of saved games
+	 */
+	public synchronized int size() {
+		sync();
+		return sorted.size();
+	}
+
+	/**
+	 * Gets a saved game by its position in the catalog
+	 *
+	 * @param i the position (0 is the newest)
+	 * @return the saved game
+	 */
+	public synchronized Entry get(int i) {
+		sync();
+		if ((i < 0) || (i >= sorted.size()))
+			throw new IndexOutOfBoundsException("no saved game at " + i);
+		return sorted.get(i);
+	}
+
+	/**
+	 * Gets the number of pages of saved games
+	 *
+	 * @param pageSize the number of saved games per page (at least 1)
+	 * @return the number of pages (0 if there are no saved games)
+	 */
+	public synchronized int numPages(int pageSize) {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("pageSize must be at least 1");
+		sync();
+		return (sorted.size() + pageSize - 1) / pageSize;
+	}
+
+	/**
+	 * Gets one page of saved games
+	 *
+	 * @param page the page number (from 0)
+	 * @param pageSize the number of saved games per page (at least 1)
+	 * @return the saved games on the page (empty if the page is past the end)
+	 */
+	public synchronized List<Entry> page(int page, int pageSize) {
+		if ((page < 0) || (pageSize < 1))
+			throw new IllegalArgumentException("page cannot be negative and pageSize must be at least 1");
+		sync();
+		int from = (int) Math.min((long) page * pageSize, sorted.size());
+		int to   = Math.min(from + pageSize, sorted.size());
+		return new ArrayList<Entry>(sorted.subList(from, to));
+	}
+
+	/**
+	 * Stop watching the directory
+	 */
+	@Override
+	public synchronized void close() {
+		stopWatching();
+		closed = true;
+	}
+
+	/**
+	 * Bring the catalog up to date: start watching the directory if it has appeared,
+	 * then apply any changes the watch service has seen
+	 */
+	private void sync() {
+		if (closed)
+			return;
+		Object current = directoryKey();
+		if ((key != null) && !Objects.equals(current, dirKey)) {
+			// the directory has been removed (and perhaps made again) since it was listed
+			stopWatching();
+		}
+		if (key == null) {
+			if (current == null) {
+				clearEntries();
+				return;
+			}
+			dirKey = current;
+			try {
+				watcher = dir.getFileSystem().newWatchService();
+				key     = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			} catch (IOException e) {
+				trace("cannot watch " + dir + ": " + e);
+				stopWatching();
+			}
+			rescan();
+			return;
+		}
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+				overflow = true;
+			else if (!overflow)
+				update(((Path) event.context()).toString());
+		}
+		if (!key.reset()) {
+			// the directory has gone
+			stopWatching();
+			clearEntries();
+		} else if (overflow)
+			rescan();
+	}
+
+	/**
+	 * Gets what identifies the directory on disk (its inode, where there is one)
+	 *
+	 * @return the key (or null if the directory does not exist)
+	 */
+	private Object directoryKey() {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(dir, BasicFileAttributes.class);
+			if (!attrs.isDirectory())
+				return null;
+			Object fileKey = attrs.fileKey();
+			return (fileKey != null) ? fileKey : attrs.creationTime();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * List the whole directory again
+	 */
+	private void rescan() {
+		HashMap<String,Entry> old = entries;
+		clearEntries();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				if (!isSave(name))
+					continue;
+				Entry entry = read(name, old.get(name));
+				if (entry != null) {
+					entries.put(name, entry);
+					sorted.add(entry);
+				}
+			}
+		} catch (IOException e) {
+			trace("cannot list " + dir + ": " + e);
+		}
+		Collections.sort(sorted, ORDER);
+	}
+
+	/**
+	 * Bring one saved game up to date after a change to its file
+	 *
+	 * @param name the file name
+	 */
+	private void update(String name) {
+		if (!isSave(name))
+			return;
+		Entry old = entries.remove(name);
+		if (old != null) {
+			int i = Collections.binarySearch(sorted, old, ORDER);
+			if (i >= 0)
+				sorted.remove(i);
+		}
+		Entry entry = read(name, old);
+		if (entry != null) {
+			entries.put(name, entry);
+			int i = Collections.binarySearch(sorted, entry, ORDER);
+			sorted.add((i < 0) ? -i - 1 : i, entry);
+		}
+	}
+
+	/**
+	 * Look up a saved game's file
+	 *
+	 * @param name the file name
+	 * @param old the catalog entry it had before (reused if the file has not changed), or null
+	 * @return the entry (or null if the file is gone or is not a regular file)
+	 */
+	private Entry read(String name, Entry old) {
+		Path path = dir.resolve(name);
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			if (!attrs.isRegularFile())
+				return null;
+			long modified = attrs.lastModifiedTime().toMillis();
+			if ((old != null) && (old.modified == modified) && (old.length == attrs.size()))
+				return old;
+			return new Entry(name, path.toFile(), modified, attrs.size());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Is a file name one that can hold a saved game? (not hidden, nor a save or
+	 * autosave still being written)
+	 *
+	 * @param name the file name
+	 * @return could it be a saved game?
+	 */
+	private static boolean isSave(String name) {
+		return !name.startsWith(".") && !name.endsWith(".tmp");
+	}
+
+	/**
+	 * Forget all saved games
+	 */
+	private void clearEntries() {
+		entries = new HashMap<String,Entry>();
+		sorted.clear();
+	}
+
+	/**
+	 * Stop watching the directory (it can be watched again later)
+	 */
+	private void stopWatching() {
+		if (key != null)
+			key.cancel();
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				trace("cannot close watch service: " + e);
+			}
+		}
+		key     = null;
+		watcher = null;
+		dirKey  = null;
+	}
+
+	/**
+	 * A trace method for debugging (active when traceOn is true)
+	 *
+	 * @param s the string to output
+	 */
+	public static void trace(String s) {
+		if (traceOn)
+			System.out.println("trace: " + s);
+	}
+
+	/**
+	 * One saved game in the catalog. Its file name, time and size are known from the
+	 * directory; the rest is read from the file the first time it is asked for.
+	 */
+	public static final class Entry {
+		/**
+		 * Constructor
+		 *
+		 * @param name the file name
+		 * @param file the file
+		 * @param modified when the file was last changed (ms since the epoch)
+		 * @param length the file size in bytes
+		 */
+		private Entry(String name, File file, long modified, long length) {
+			this.name     = name;
+			this.file     = file;
+			this.modified = modified;
+			this.length   = length;
+		}
+
+		/**
+		 * Gets the file name
+		 *
+		 * @return the file name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the file
+		 *
+		 * @return the file
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets when the game was saved
+		 *
+		 * @return the time the file was last changed (ms since the epoch)
+		 */
+		public long getModified() {
+			return modified;
+		}
+
+		/**
+		 * Is the save a binary snapshot (rather than an old text save)?
+		 *
+		 * @return is it a snapshot?
+		 */
+		public boolean isSnapshot() {
+			load();
+			return snapshot;
+		}
+
+		/**
+		 * Could the save be read?
+		 *
+		 * @return is the save a valid game?
+		 */
+		public boolean isValid() {
+			load();
+			return error == null;
+		}
+
+		/**
+		 * Gets the fingerprint of the saved game's level
+		 *
+		 * @return the level fingerprint (0 if the save could not be read)
+		 */
+		public long getFingerprint() {
+			load();
+			return fingerprint;
+		}
+
+		/**
+		 * Gets the size of the saved game's level
+		 *
+		 * @return "rows x columns" (empty if the save could not be read)
+		 */
+		public String getLevelSize() {
+			load();
+			return (error == null) ? numRows + "x" + numCols : "";
+		}
+
+		/**
+		 * Gets the number of boxes on targets in the saved game
+		 *
+		 * @return the number of boxes on targets
+		 */
+		public int getOnTarget() {
+			load();
+			return onTarget;
+		}
+
+		/**
+		 * Gets the number of targets in the saved game
+		 *
+		 * @return the number of targets
+		 */
+		public int getTargets() {
+			load();
+			return targets;
+		}
+
+		/**
+		 * Gets the number of moves made in the saved game (0 for an old text save)
+		 *
+		 * @return the number of moves made
+		 */
+		public int getMoves() {
+			load();
+			return moves;
+		}
+
+		/**
+		 * One line description of the save, for menus
+		 *
+		 * @return the description
+		 */
+		@Override
+		public String toString() {
+			load();
+			String when = DATE_FORMAT.format(Instant.ofEpochMilli(modified));
+			if (error != null)
+				return String.format("%-30s %s  (unreadable)", name, when);
+			return String.format("%-30s %s  %7s  %3d/%-3d on target  %5d moves", name, when,
+				getLevelSize(), onTarget, targets, moves);
+		}
+
+		/**
+		 * Read the details of the saved game, once
+		 */
+		private synchronized void load() {
+			if (loaded)
+				return;
+			loaded = true;
+			try {
+				snapshot = Snapshot.isSnapshot(file);
+				Sokoban puzzle = Snapshot.open(file);
+				fingerprint = puzzle.getLevel().fingerprint();
+				numRows     = puzzle.getNumRows();
+				numCols     = puzzle.getNumCols();
+				onTarget    = puzzle.numOnTarget();
+				targets     = puzzle.numTargets();
+				moves       = puzzle.getJournal().getCursor();
+			} catch (SokobanException e) {
+				error = e.getMessage();
+			}
+		}
+
+		private final String name;
+		private final File   file;
+		private final long   modified;
+		private final long   length;
+		private boolean      loaded      = false;
+		private boolean      snapshot    = false;
+		private String       error       = null;
+		private long         fingerprint = 0;
+		private int          numRows     = 0;
+		private int          numCols     = 0;
+		private int          onTarget    = 0;
+		private int          targets     = 0;
+		private int          moves       = 0;
+	}
+
+	private final Path             dir;
+	private HashMap<String,Entry>  entries = new HashMap<String,Entry>();
+	private final ArrayList<Entry> sorted  = new ArrayList<Entry>();
+	private WatchService           watcher = null;
+	private WatchKey               key     = null;
+	private Object                 dirKey  = null;
+	private boolean                closed  = false;
+
+	// newest first, then by name
+	private static final Comparator<Entry> ORDER = (a, b) ->
+		(a.modified != b.modified) ? Long.compare(b.modified, a.modified) : a.name.compareTo(b.name);
+
+	private static final DateTimeFormatter DATE_FORMAT =
+		DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+	private static boolean traceOn = false; // for debugging
+}
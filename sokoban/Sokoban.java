@@ -16,11 +16,26 @@ import java.util.*;
 public class Sokoban extends Observable implements Cloneable {
 	/**
 	 * Construct a Sokoban puzzle from a standard Sokoban screen file
+	 * (see {@link LevelLoader} for how it is read), using the level's pattern
+	 * database if one has been built next to it
 	 *
 	 * @param file the file
 	*/
 	public Sokoban(File file) {
-		this(fileAsString(file));
+		this(LevelLoader.read(pathOf(file)));
+		patterns = PatternDatabase.find(file, level);
+	}
+
+	/**
+	 * Gets the path of a screen file
+	 *
+	 * @param file the file (cannot be null)
+	 * @return the path
+	 */
+	private static java.nio.file.Path pathOf(File file) {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+		return file.toPath();
 	}
 
 	/**
@@ -29,91 +44,180 @@ public class Sokoban extends Observable implements Cloneable {
 	 * @param screen the screen file as a String
 	 */
 	public Sokoban(String screen) {
-		fromScreen(screen);
-		startScreen = screen;
+		this(LevelLoader.parseScreen(screen));
 	}
 
 	/**
-	 * Edit the content of Sokoban puzzle from a given
-	 * screen file passed as a String
+	 * Construct a copy of a puzzle (see {@link #clone()})
 	 *
-	 * @param screen the screen file as a String
+	 * @param other the puzzle to copy
 	 */
-	private void fromScreen(String screen) {
-		if (screen == null)
-			throw new IllegalArgumentException("screen cannot be null");
+	private Sokoban(Sokoban other) {
+		level      = other.level;
+		board      = new Board(other.board);
+		numRows    = other.numRows;
+		numCols    = other.numCols;
+		startBoard = other.startBoard;
+		journal    = new MoveJournal(other.journal);
+		patterns   = other.patterns;
+	}
 
-		ArrayList<String> lines = Helpers.listFromString(screen);
-		numRows  = lines.size();
-		numCols  = 0;
-		for (String s: lines){
-			if (s.length() > numCols) {
-				numCols = s.length();
-			}
-		}
-		cells    = new Cell[numRows][numCols];
-		for (int row=0; row<numRows; row++) {
-			String line = lines.get(row);
-			for (int col=0; col<numCols; col++) {
-				char display = (col < line.length()) ? line.charAt(col) : Sokoban.EMPTY;
-				cells[row][col] = new Cell(display, this, row, col);
-				if (display == ACTOR || display == TARGET_ACTOR)
-					actorCell = cells[row][col];
-			}
-		}
+	/**
+	 * Construct a Sokoban puzzle starting from a given board
+	 *
+	 * @param start the starting board (taken over, not copied)
+	 */
+	Sokoban(Board start) {
+		if (start == null)
+			throw new IllegalArgumentException("start cannot be null");
+		level      = start.getLevel();
+		board      = start;
+		numRows    = level.getNumRows();
+		numCols    = level.getNumCols();
 		checkValid();
+		startBoard = new Board(board);
+		journal    = new MoveJournal();
 	}
 
-
 	/**
 	 * Some basic validity checks
 	 */
 	private void checkValid() {
 		assert numBoxes() == numTargets() : "number of boxes and targets must be equal";
 		assert numActors() == 1 : "must be exactly one actor";
-		assert actorCell.hasActor() : "actorCell must be valid";
+		assert board.getActor() >= 0 : "actor must be valid";
 	}
 
 	/**
-	 * Reset game to a given state
-	 * @param lines an ArrayList of strings corresponding to the game state
+	 * Reset game to a given state, notifying observers of each cell that changes
+	 * (the solver's guard puzzle has none, so it skips working out which cells changed)
+	 *
+	 * @param target the board to reset to (must share this puzzle's level)
 	 */
-	private void resetToPoint(ArrayList<String> lines) {
-		for (int row=0; row<numRows; row++) {
-			String line = lines.get(row);
-			for (int col=0; col<numCols; col++) {
-				char display = (col < line.length()) ? line.charAt(col) : Sokoban.EMPTY;
-				if (cells[row][col].getDisplay() != display) {
-					cells[row][col].setDisplay(display);
-					if (display == ACTOR || display == TARGET_ACTOR)
-						actorCell = cells[row][col];
-					trace("clear: changing display in ("+row+","+col+")");
-					setChanged();
-					notifyObservers(cells[row][col]);
-				}
+	private void resetToPoint(Board target) {
+		if (countObservers() == 0) {
+			board.copyFrom(target);
+			checkValid();
+			return;
+		}
+		long[] boxes    = board.getBoxes().clone();
+		long[] newBoxes = target.getBoxes();
+		int    oldActor = board.getActor();
+		int    newActor = target.getActor();
+		board.copyFrom(target);
+		for (int word=0; word<boxes.length; word++) {
+			long diff = boxes[word] ^ newBoxes[word];
+			while (diff != 0) {
+				int idx = (word << 6) + Long.numberOfTrailingZeros(diff);
+				diff &= diff - 1;
+				if ((idx != oldActor) && (idx != newActor))
+					notifyCell(idx);
 			}
 		}
+		if (oldActor != newActor) {
+			notifyCell(oldActor);
+			notifyCell(newActor);
+		}
 		checkValid();
 	}
 
 	/**
-	 * Reset to the starting state
+	 * Notify observers that a cell has changed
+	 *
+	 * @param idx the cell index (ignored if -1, or if nobody is observing)
+	 */
+	private void notifyCell(int idx) {
+		if ((idx < 0) || (countObservers() == 0))
+			return;
+		if (traceOn)
+			trace("changing display in ("+level.rowOf(idx)+","+level.colOf(idx)+")");
+		setChanged();
+		notifyObservers(getCell(idx));
+	}
+
+	/**
+	 * Reset to the starting state (the undo/redo journal is emptied)
 	 */
 	public void clear() {
-		if (startScreen == null)
-			throw new IllegalStateException("startScreen cannot be null");
-		ArrayList<String> lines = Helpers.listFromString(startScreen);
-		resetToPoint(lines);
+		if (startBoard == null)
+			throw new IllegalStateException("startBoard cannot be null");
+		resetToPoint(startBoard);
+		journal.clear();
+		if (log != null)
+			log.clear();
 	}
 
 	/**
-	 * Undo player move
+	 * Is there a move to undo?
+	 *
+	 * @return is there a move to undo?
+	 */
+	public boolean canUndo() {
+		return journal.canUndo();
+	}
+
+	/**
+	 * Is there an undone move to redo?
+	 *
+	 * @return is there an undone move to redo?
+	 */
+	public boolean canRedo() {
+		return journal.canRedo();
+	}
+
+	/**
+	 * Undo the last player move (any number of moves can be undone in turn)
 	 */
 	public void undo() {
-		if (prevScreen == null)
-			throw new IllegalStateException("Previous screen cannot be null");
-		ArrayList<String> lines = Helpers.listFromString(prevScreen);
-		resetToPoint(lines);
+		if (!journal.canUndo())
+			throw new IllegalStateException("No previous moves available");
+		byte      move   = journal.undo();
+		Direction dir    = MoveJournal.direction(move);
+		int       actor  = board.getActor();
+		int       back   = level.step(actor, dir.reverse());
+		int       ahead  = level.step(actor, dir);
+		board.setActor(back);
+		if (MoveJournal.isPush(move)) {
+			board.setBox(ahead, false);
+			board.setBox(actor, true);
+			notifyCell(ahead);
+		}
+		if (log != null)
+			log.undo();
+		notifyCell(actor);
+		notifyCell(back);
+	}
+
+	/**
+	 * Redo the last undone player move
+	 */
+	public void redo() {
+		if (!journal.canRedo())
+			throw new IllegalStateException("No undone moves available");
+		byte      move   = journal.redo();
+		Direction dir    = MoveJournal.direction(move);
+		int       actor  = board.getActor();
+		int       next   = level.step(actor, dir);
+		if (MoveJournal.isPush(move)) {
+			int ahead = level.step(next, dir);
+			board.setBox(next, false);
+			board.setBox(ahead, true);
+			notifyCell(ahead);
+		}
+		board.setActor(next);
+		if (log != null)
+			log.redo();
+		notifyCell(actor);
+		notifyCell(next);
+	}
+
+	/**
+	 * Limit the number of moves kept for undo/redo (the oldest are forgotten first)
+	 *
+	 * @param maxMoves the maximum number of moves to keep (0 for unlimited, the default)
+	 */
+	public void setUndoLimit(int maxMoves) {
+		journal.setMaxMoves(maxMoves);
 	}
 
 	/**
@@ -135,16 +239,263 @@ public class Sokoban extends Observable implements Cloneable {
 	}
 
 	/**
-	 * Get a cell from the Sokoban puzzle
+	 * Gets the static layout (walls and targets) of the Sokoban puzzle
+	 *
+	 * @return the level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the pattern database used to spot deadlocked groups of boxes
+	 *
+	 * @return the pattern database (or null if there is none)
+	 */
+	public PatternDatabase getPatternDatabase() {
+		return patterns;
+	}
+
+	/**
+	 * Changes the pattern database used to spot deadlocked groups of boxes
+	 *
+	 * @param patterns the pattern database (or null for none; must be for this level)
+	 */
+	public void setPatternDatabase(PatternDatabase patterns) {
+		if ((patterns != null) && (patterns.getLevel().fingerprint() != level.fingerprint()))
+			throw new IllegalArgumentException("pattern database is for a different level");
+		this.patterns = patterns;
+	}
+
+	/**
+	 * Gets a lower bound on the pushes still needed by the group of boxes the box in a
+	 * given cell would be part of after being pushed, from the pattern database
+	 *
+	 * @param box the box cell index
+	 * @param dir the direction to push
+	 * @return the pushes the group needs (0 if nothing is known, Integer.MAX_VALUE if it is a deadlock)
+	 */
+	public int patternCost(int box, Direction dir) {
+		int next = level.step(box, dir);
+		if ((patterns == null) || (next < 0) || !board.hasBox(box))
+			return 0;
+		return patterns.lookup(board, box, next);
+	}
+
+	/**
+	 * Gets the index of the actor cell (see {@link Level#index(int, int)})
+	 *
+	 * @return the actor cell index
+	 */
+	public int getActorIndex() {
+		return board.getActor();
+	}
+
+	/**
+	 * Gets the indices of the box cells, in increasing order
+	 *
+	 * @return the box cell indices
+	 */
+	public int[] getBoxIndices() {
+		int[]  boxes = new int[board.numBoxes()];
+		long[] bits  = board.getBoxes();
+		int    num   = 0;
+		for (int word=0; word<bits.length; word++) {
+			long w = bits[word];
+			while (w != 0) {
+				boxes[num++] = (word << 6) + Long.numberOfTrailingZeros(w);
+				w &= w - 1;
+			}
+		}
+		return boxes;
+	}
+
+	/**
+	 * Changes the autosave log that this puzzle's moves are written to
+	 *
+	 * @param log the log (or null for none)
+	 */
+	void setMoveLog(MoveLog log) {
+		this.log = log;
+	}
+
+	/**
+	 * Gets the starting board (shared, must not be modified)
+	 *
+	 * @return the starting board
+	 */
+	Board getStartBoard() {
+		return startBoard;
+	}
+
+	/**
+	 * Gets the undo/redo journal (shared, must not be modified)
+	 *
+	 * @return the journal
+	 */
+	MoveJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Jump straight to a position on this puzzle's level, notifying observers of each
+	 * cell that changes. The undo/redo journal is emptied.
+	 *
+	 * @param boxes the box cell indices (must be as many as there are targets)
+	 * @param actor the actor cell index
+	 */
+	public void setPosition(int[] boxes, int actor) {
+		if (boxes == null)
+			throw new IllegalArgumentException("boxes cannot be null");
+		if (boxes.length != level.numTargets())
+			throw new IllegalArgumentException("number of boxes and targets must be equal");
+		if ((actor < 0) || (actor >= level.getNumCells()) || level.isWall(actor))
+			throw new IllegalArgumentException("invalid actor cell");
+		long[] bits = new long[Level.words(level.getNumCells())];
+		for (int box : boxes) {
+			if ((box < 0) || (box >= level.getNumCells()) || level.isWall(box) || (box == actor) || Level.get(bits, box))
+				throw new IllegalArgumentException("invalid box cell "+box);
+			Level.set(bits, box);
+		}
+		resetToPoint(new Board(level, bits, actor));
+		journal.clear();
+		if (log != null)
+			log.rebase(this);
+	}
+
+	/**
+	 * Checks if the box in a given cell could be pushed in a given direction,
+	 * assuming the actor can get behind it. This applies the same safety rules as
+	 * {@link #canMove(Direction)}.
+	 *
+	 * @param box the box cell index
+	 * @param dir the direction to push
+	 * @return could the box be pushed in the given direction?
+	 */
+	public boolean canPush(int box, Direction dir) {
+		if ((box < 0) || (box >= level.getNumCells()) || !board.hasBox(box))
+			return false;
+		int behind = level.step(box, dir.reverse());
+		if ((behind < 0) || level.isWall(behind) || board.hasBox(behind))
+			return false;
+		int actor = board.getActor();
+		board.setActor(behind);
+		boolean canPush = getBoxMobility().canPush(box, dir);
+		board.setActor(actor);
+		return canPush;
+	}
+
+	/**
+	 * Gets a 64-bit Zobrist hash of the current state: the boxes and the region the
+	 * actor can walk to (so positions that differ only by walking hash the same).
+	 * The box part is kept up to date as boxes move; the actor's region is only
+	 * worked out again after a push.
+	 *
+	 * @return the state hash
+	 */
+	public long stateHash() {
+		return board.stateHash();
+	}
+
+	/**
+	 * Gets the high 64 bits of a 128-bit state hash, for searches large enough
+	 * that 64-bit collisions matter (see {@link #setWideHash(boolean)})
+	 *
+	 * @return the high 64 bits of the state hash
+	 */
+	public long stateHashHigh() {
+		return board.stateHashHigh();
+	}
+
+	/**
+	 * Turn 128-bit state hashing on or off (off by default)
+	 *
+	 * @param wide should {@link #stateHashHigh()} be kept up to date?
+	 */
+	public void setWideHash(boolean wide) {
+		board.setWide(wide);
+	}
+
+	/**
+	 * Is 128-bit state hashing turned on?
+	 *
+	 * @return is 128-bit state hashing turned on?
+	 */
+	public boolean isWideHash() {
+		return board.isWide();
+	}
+
+	/**
+	 * Make a move already known to be legal straight on the board, without recording
+	 * it for undo/redo or notifying observers (for headless playouts)
+	 *
+	 * @param dir the direction to move (must be legal)
+	 */
+	void play(Direction dir) {
+		int actor = board.getActor();
+		int next  = level.step(actor, dir);
+		if (board.hasBox(next)) {
+			board.setBox(next, false);
+			board.setBox(level.step(next, dir), true);
+		}
+		board.setActor(next);
+	}
+
+	/**
+	 * Gets the mutable state (boxes and actor) of the Sokoban puzzle
+	 *
+	 * @return the board
+	 */
+	Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Gets the reusable scratch space for box mobility checks (created on first use)
+	 *
+	 * @return the box mobility checker for this puzzle
+	 */
+	BoxMobility getBoxMobility() {
+		if (mobility == null)
+			mobility = new BoxMobility(this);
+		return mobility;
+	}
+
+	/**
+	 * Gets the reusable scratch space for freeze deadlock checks (created on first use)
+	 *
+	 * @return the freeze detector for this puzzle
+	 */
+	FreezeDetector getFreezeDetector() {
+		if (freeze == null)
+			freeze = new FreezeDetector(this);
+		return freeze;
+	}
+
+	/**
+	 * Get a cell from the Sokoban puzzle.
+	 * Cells are lightweight views over the board, so a new one is returned each time.
 	 *
 	 * @param row row number (starts from 0)
 	 * @param col column number (starts from 0)
-	 * @return the requested cell
+	 * @return the requested cell (or null if off the grid)
 	 */
 	Cell getCell(int row, int col) {
 		if ((row < 0) || (row >= numRows) || (col < 0) || (col >= numCols))
 			return null;
-		return cells[row][col];
+		return new Cell(this, row, col);
+	}
+
+	/**
+	 * Get a cell from the Sokoban puzzle by index
+	 *
+	 * @param idx the cell index (or -1 if off the grid)
+	 * @return the requested cell (or null if off the grid)
+	 */
+	Cell getCell(int idx) {
+		if (idx < 0)
+			return null;
+		return new Cell(this, level.rowOf(idx), level.colOf(idx));
 	}
 
 	/**
@@ -153,35 +504,27 @@ public class Sokoban extends Observable implements Cloneable {
 	 * @return the requested cell
 	 */
 	Cell getActorCell() {
-		return actorCell;
+		return getCell(board.getActor());
 	}
 
 	/**
-	 * Count the number of targets in the Sokoban puzzle
+	 * Count the number of targets in the Sokoban puzzle.
+	 * The count is fixed when the level is built.
 	 *
 	 * @return the number of targets
 	 */
 	public int numTargets() {
-		int num = 0;
-		for (int row=0; row<numRows; row++)
-			for (int col=0; col<numCols; col++)
-				if (cells[row][col].isTarget())
-					num++;
-		return num;
+		return level.numTargets();
 	}
 
 	/**
-	 * Count the number of boxes in the Sokoban puzzle
+	 * Count the number of boxes in the Sokoban puzzle.
+	 * The count is kept up to date by the board as boxes move.
 	 *
 	 * @return the number of boxes
 	 */
 	public int numBoxes() {
-		int num = 0;
-		for (int row=0; row<numRows; row++)
-			for (int col=0; col<numCols; col++)
-				if (cells[row][col].hasBox())
-					num++;
-		return num;
+		return board.numBoxes();
 	}
 
 	/**
@@ -190,30 +533,21 @@ public class Sokoban extends Observable implements Cloneable {
 	 * @return the number of actors
 	 */
 	public int numActors() {
-		int num = 0;
-		for (int row=0; row<numRows; row++)
-			for (int col=0; col<numCols; col++)
-				if (cells[row][col].hasActor())
-					num++;
-		return num;
+		return (board.getActor() >= 0) ? 1 : 0;
 	}
 
 	/**
-	 * Count the number of boxes on target cells in the Sokoban puzzle
+	 * Count the number of boxes on target cells in the Sokoban puzzle.
+	 * The count is kept up to date by the board as boxes move.
 	 *
 	 * @return the number of boxes on target cells
 	 */
 	public int numOnTarget() {
-		int num = 0;
-		for (int row=0; row<numRows; row++)
-			for (int col=0; col<numCols; col++)
-				if (cells[row][col].onTarget())
-					num++;
-		return num;
+		return board.numOnTarget();
 	}
 
 	/**
-	 * Are all the boxes on target in the Sokoban puzzle?
+	 * Are all the boxes on target in the Sokoban puzzle?  (O(1) per call)
 	 *
 	 * @return are all the boxes on target?
 	 */
@@ -228,7 +562,24 @@ public class Sokoban extends Observable implements Cloneable {
 	 * @return can the actor move to the next cell in a given direction?
 	 */
 	public boolean canMove(Direction dir) {
-		return actorCell.canMove(dir);
+		int next = level.step(board.getActor(), dir);
+		if ((next < 0) || level.isWall(next))
+			return false;
+		return !board.hasBox(next) || getBoxMobility().canPush(next, dir);
+	}
+
+	/**
+	 * In which directions can the actor move? Allocates nothing.
+	 *
+	 * @return a bitmask of available directions (bit {@link Direction#mask()} set for each)
+	 */
+	public int legalMoves() {
+		int legal = 0;
+		for (Direction dir : DIRECTIONS) {
+			if (canMove(dir))
+				legal |= dir.mask();
+		}
+		return legal;
 	}
 
 	/**
@@ -237,12 +588,7 @@ public class Sokoban extends Observable implements Cloneable {
 	 * @return a vector of available directions
 	 */
 	public Vector<Direction> canMove() {
-		Vector<Direction> dirs = new Vector<>();
-		for (Direction dir : Direction.values()) {
-			if (canMove(dir))
-				dirs.add(dir);
-		}
-		return dirs;
+		return Direction.toVector(legalMoves());
 	}
 
 	/**
@@ -251,15 +597,18 @@ public class Sokoban extends Observable implements Cloneable {
 	 * @param dir the direction to move
 	 */
 	public void move(Direction dir) {
-		prevScreen = toString();
 		if (!canMove(dir))
 			throw new IllegalArgumentException("cannot move "+dir);
-		Cell oldActorCell = actorCell;
-		actorCell.move(dir);
-		actorCell = actorCell.getCell(dir);
+		Cell    oldActorCell = getActorCell();
+		boolean push         = board.hasBox(level.step(board.getActor(), dir));
+		oldActorCell.move(dir);
+		Cell actorCell = getActorCell();
 		Cell next = actorCell.getCell(dir);
 		if (!actorCell.hasActor())
 			throw new IllegalStateException("actorCell must have Actor");
+		journal.record(dir, push);
+		if (log != null)
+			log.move(dir);
 		setChanged();
 		notifyObservers(oldActorCell); // where actor was
 		setChanged();
@@ -277,10 +626,10 @@ public class Sokoban extends Observable implements Cloneable {
 	 */
 	@Override
 	public String toString() {
-		StringBuffer b = new StringBuffer();
+		StringBuffer b = new StringBuffer(numRows * (numCols + 1));
 		for (int row=0; row<numRows; row++) {
 			for (int col=0; col<numCols; col++)
-				b.append(""+cells[row][col]);
+				b.append(Cell.displayOf(level, board, row * numCols + col));
 			b.append("\n");
 		}
 		return b.toString();
@@ -308,15 +657,12 @@ public class Sokoban extends Observable implements Cloneable {
 	}
 
 	/**
-	 * Allows cloning of class object
+	 * Allows cloning of class object.
+	 * The clone shares the (immutable) level but has its own board and journal. It starts
+	 * with no observers and no move log, so moving it never repaints or logs the original.
 	 */
 	public Object clone() {
-		try {
-			return super.clone();
-		} catch (CloneNotSupportedException err) {
-			System.out.println("Puzzle object cannot be cloned");
-			return new Object();
-		}
+		return new Sokoban(this);
 	}
 
 	/**
@@ -339,10 +685,16 @@ public class Sokoban extends Observable implements Cloneable {
 
 	private int      numRows     = 0;
 	private int      numCols     = 0;
-	private Cell     actorCell   = null;
-	private String   startScreen = null;
-	private String   prevScreen  = null;
-	private Cell[][]    cells      = null;
+	private Board    startBoard  = null;
+	private MoveJournal journal  = null;
+	private BoxMobility mobility = null;
+	private FreezeDetector freeze = null;
+	private MoveLog  log         = null;
+	private PatternDatabase patterns = null;
+	private Level    level       = null;
+	private Board    board       = null;
 
 	private static boolean traceOn = false; // for debugging
+
+	private static final Direction[] DIRECTIONS = Direction.values();
 }
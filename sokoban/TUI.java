@@ -7,6 +7,8 @@ import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
 import static java.util.Map.entry;
 
+import sokoban.solver.SolverPlayer;
+
 /**
  * A text-based user interface for a Sokoban puzzle.
  *
@@ -32,6 +34,18 @@ public class TUI {
 		commonInitSteps();
 	}
 
+	/**
+	 * Constructor playing levels from a level pack rather than the screens directory
+	 * @param pack the level pack (cannot be null)
+	 */
+	public TUI(LevelPack pack) {
+		if (pack == null)
+			throw new IllegalArgumentException("pack cannot be null");
+		this.pack = pack;
+		getScreenFile();
+		commonInitSteps();
+	}
+
 	/**
 	 * Define commands for initialising class
 	 */
@@ -43,10 +57,12 @@ public class TUI {
 			entry("S", "South"),
 			entry("P", "Player Move"),
 			entry("U", "Undo"),
+			entry("D", "Redo"),
 			entry("A", "New Game"),
 			entry("R", "Restart"),
 			entry("V", "Save"),
 			entry("L", "Load Saved Game"),
+			entry("C", "Choose Level"),
 			entry("Q", "Quit Game")
 		);
 		scnr = new Scanner(System.in);
@@ -59,6 +75,10 @@ public class TUI {
 	 * if further moves are possible
 	 */
 	public void menu() {
+		if (ansi != null) {
+			ansiMenu();
+			return;
+		}
 		String command = "";
 		System.out.println("Loading game from the file: " + screenPath);
 		System.out.print(puzzle);
@@ -71,6 +91,70 @@ public class TUI {
 				System.out.println("puzzle is complete");
 			trace("onTarget: "+puzzle.numOnTarget());
 		}
+		endAutosave();
+	}
+
+	/**
+	 * The main game control loop for an ANSI terminal. The board and a short menu are
+	 * drawn once; after each command only the cells that changed are redrawn, and the
+	 * messages from the command replace those from the one before. The whole screen
+	 * is drawn again for a new puzzle, after commands that list files or levels, or
+	 * when the command is empty (to tidy up a scrolled screen).
+	 */
+	private void ansiMenu() {
+		String command = "";
+		ansi.setPuzzle(puzzle);
+		ansi.drawFull(ANSI_MENU, "Loading game from: " + screenPath);
+		while (!command.equalsIgnoreCase("Q") && !puzzle.onTarget())  {
+			command = getCommand();
+			Sokoban before = puzzle;
+			if (!command.isEmpty()) {
+				ansi.clearMessages();
+				execute(command);
+			}
+			if ((puzzle != before) || command.isEmpty() || command.equalsIgnoreCase("L") || command.equalsIgnoreCase("C")) {
+				ansi.setPuzzle(puzzle);
+				ansi.drawFull(ANSI_MENU, "Playing: " + screenPath);
+			} else
+				ansi.drawChanges();
+			if (puzzle.onTarget())
+				System.out.println("puzzle is complete");
+		}
+		ansi.setPuzzle(null);
+		endAutosave();
+	}
+
+	/**
+	 * Changes whether the text UI draws on an ANSI terminal, redrawing only what
+	 * changes, or prints the whole puzzle and menu after every command
+	 *
+	 * @param on use ANSI terminal drawing?
+	 */
+	public void setAnsi(boolean on) {
+		if (ansi != null)
+			ansi.setPuzzle(null);
+		ansi = on ? new AnsiRenderer(System.out) : null;
+	}
+
+	/**
+	 * Choose the computer player for the Player Move command, for this and later games
+	 *
+	 * @param useSolver follow the solver's plan (the default), or make random moves?
+	 */
+	public void setSolverPlayer(boolean useSolver) {
+		this.useSolver = useSolver;
+		if (puzzle != null)
+			player = newPlayer();
+	}
+
+	/**
+	 * A computer player for the current puzzle. The text UI waits for the solver's plan,
+	 * so the solver gets a shorter time limit here than in the GUI (which plans in the background).
+	 *
+	 * @return the player
+	 */
+	private Player newPlayer() {
+		return useSolver ? new SolverPlayer(puzzle, planMillis) : new RandomPlayer();
 	}
 
 	/**
@@ -87,10 +171,12 @@ public class TUI {
 			"     Move West             [W]",
 			"     Player Move           [P]",
 			"     Undo Move             [U]",
+			"     Redo Move             [D]",
 			"     New Game              [A]",
 			"     Restart Game          [R]",
 			"     Save Game             [V]",
 			"     Load Saved Game       [L]",
+			"     Choose Level          [C]",
 			"     Quit Game             [Q]"
 		));
 	}
@@ -139,12 +225,13 @@ public class TUI {
 			/**
 			 * Move the actor according to the computer player's choice
 			 */
-			Vector<Direction> choices = puzzle.canMove();
-			Direction         choice  = player.move(choices);
+			Direction choice = player.move(puzzle.legalMoves());
 			validity.add(true);
 			move(choice);
 		} else if (command.equalsIgnoreCase("U")) {
 			undoMove();
+		} else if (command.equalsIgnoreCase("D")) {
+			redoMove();
 		} else if (command.equalsIgnoreCase("R")) {
 			clearPuzzle();
 		} else if (command.equalsIgnoreCase("A")) {
@@ -153,6 +240,8 @@ public class TUI {
 			returnVal = savePuzzle();
 		} else if (command.equalsIgnoreCase("L")) {
 			loadSavedPuzzle();
+		} else if (command.equalsIgnoreCase("C")) {
+			chooseLevel();
 		} else {
 			System.out.println("Unknown command (" + command + ")");
 		}
@@ -181,9 +270,13 @@ public class TUI {
 	}
 
 	/**
-	 * Initialising screen file randomly
+	 * Initialising screen file randomly (or a random level of the pack, if there is one)
 	 */
 	private void getScreenFile() {
+		if (pack != null) {
+			setPackLevel(ThreadLocalRandom.current().nextInt(1, pack.size() + 1));
+			return;
+		}
 		Integer randomNum = ThreadLocalRandom.current()
 			.nextInt(minScreen, maxScreen + 1);
 		screenPath = workDir + "/screens/" + "screen." + randomNum.toString();
@@ -194,16 +287,28 @@ public class TUI {
 	 */
 	private void setScreenFile(String filename) {
 		screenPath = filename;
+		packLevel  = 0;
+	}
+
+	/**
+	 * Set the level of the pack to play
+	 *
+	 * @param number the level number (1 to the size of the pack)
+	 */
+	private void setPackLevel(int number) {
+		screenPath = pack.describe(number);
+		packLevel  = number;
 	}
 
 	/**
 	 * Generate game board from currently available class variables
 	 */
 	private void genGame() {
-		puzzle = new Sokoban(new File(screenPath));
-		player = new RandomPlayer();
+		puzzle = (packLevel > 0) ? pack.load(packLevel) : Snapshot.open(new File(screenPath));
+		player = newPlayer();
 		commands = new ArrayList<String>();
 		validity = new ArrayList<Boolean>();
+		startAutosave();
 	}
 
 
@@ -217,32 +322,101 @@ public class TUI {
 	}
 
 	/**
-	 * Undo last player move if move is E, W, N, S, P
+	 * Autosave this and later games to a move log, so an interrupted session can be recovered
+	 *
+	 * @param logFile the log file (cannot be null)
+	 */
+	public void setAutosave(File logFile) {
+		if (logFile == null)
+			throw new IllegalArgumentException("logFile cannot be null");
+		autosave = logFile;
+		startAutosave();
+	}
+
+	/**
+	 * Recover the game left in a move log by an interrupted session, and carry on autosaving to it
+	 *
+	 * @param logFile the log file (cannot be null)
+	 */
+	public void recoverAutosave(File logFile) {
+		if (logFile == null)
+			throw new IllegalArgumentException("logFile cannot be null");
+		puzzle     = MoveLog.recover(logFile);
+		player     = newPlayer();
+		commands   = new ArrayList<String>();
+		validity   = new ArrayList<Boolean>();
+		screenPath = logFile.getPath();
+		packLevel  = 0;
+		autosave   = logFile;
+		startAutosave();
+	}
+
+	/**
+	 * Start a fresh move log for the current game (if autosave is on)
+	 */
+	private void startAutosave() {
+		if (autosave == null)
+			return;
+		if (moveLog != null)
+			moveLog.close();
+		moveLog = MoveLog.start(puzzle, autosave);
+	}
+
+	/**
+	 * Stop autosaving and delete the move log, as the session has ended cleanly
+	 */
+	private void endAutosave() {
+		if (moveLog != null)
+			moveLog.discard();
+		moveLog = null;
+	}
+
+	/**
+	 * Choose a level of the pack to play, by number or title
+	 */
+	public void chooseLevel() {
+		if (pack == null) {
+			System.out.println("No level pack in use.");
+			return;
+		}
+		System.out.println("Enter a level number (1-" + pack.size() + ") or title from " + pack.getFile().getName());
+		String response = getCommand().trim();
+		int number;
+		try {
+			number = Integer.parseInt(response);
+		} catch (NumberFormatException ex) {
+			number = pack.find(response);
+		}
+		if ((number < 1) || (number > pack.size())) {
+			System.out.println("No such level (" + response + ")");
+			return;
+		}
+		setPackLevel(number);
+		genGame();
+		System.out.println("Loading game from the pack: " + screenPath);
+	}
+
+	/**
+	 * Undo the last player move (repeat to undo further back)
 	 */
 	public void undoMove() {
-		if (commands.size() >= 2){
-			String lastCommand = commands.get(commands.size()-2).toUpperCase();
-			if (
-				validity.size() >= 1 && validity.get(validity.size()-1) &&
-				(
-					lastCommand.equalsIgnoreCase("N") ||
-					lastCommand.equalsIgnoreCase("S") ||
-					lastCommand.equalsIgnoreCase("E") ||
-					lastCommand.equalsIgnoreCase("W") ||
-					lastCommand.equalsIgnoreCase("P")
-				)
-			) {
-				try {
-					puzzle.undo();
-					System.out.println("Command '" + commandMap.get(lastCommand) + "' undone.");
-				} catch (IllegalStateException ex) {
-					System.out.println("No previous moves available!");
-				}
-			} else {
-				System.out.println("Command '" + commandMap.get(lastCommand) + "' cannot be undone.");
-			}
+		if (puzzle.canUndo()) {
+			puzzle.undo();
+			System.out.println("Command '" + commandMap.get("U") + "' done.");
 		} else {
-			System.out.println("Not enough commands to undo move.");
+			System.out.println("No previous moves available!");
+		}
+	}
+
+	/**
+	 * Redo the last undone player move
+	 */
+	public void redoMove() {
+		if (puzzle.canRedo()) {
+			puzzle.redo();
+			System.out.println("Command '" + commandMap.get("D") + "' done.");
+		} else {
+			System.out.println("No undone moves available!");
 		}
 	}
 
@@ -268,79 +442,76 @@ public class TUI {
 		} else {
 			DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss");
 			LocalDateTime now     = LocalDateTime.now();
-			filepath   =  workDir + "/snapshot/" + "puzzle-" + dtf.format(now);
-
-			try (PrintStream out = new PrintStream(new FileOutputStream(filepath))) {
-				out.print(puzzle.toString());
-				System.out.println("Puzzle saved in: " + filepath + "\n");
+			filepath   =  workDir + "/snapshot/" + "puzzle-" + dtf.format(now) + Snapshot.SUFFIX;
 
-			} catch (FileNotFoundException e){
-				throw new SokobanException("File not found" + e);
-			}
+			Snapshot.save(puzzle, new File(filepath));
+			System.out.println("Puzzle saved in: " + filepath + "\n");
 		}
 		return filepath;
 	}
 
 	/**
-	 * Choose saved puzzle from file options
+	 * Choose saved puzzle from file options, a page at a time (newest first)
+	 *
+	 * @return the file name of the chosen save (empty if none was chosen)
 	 */
 	public String chooseSavedPuzzle() {
 		System.out.println("\n\nLocating saved game files.");
-		String   retPath     =   "";
-		File     f           =   new File(workDir + "/snapshot");
-		String[] filePaths   =   f.list();
-
-		if (filePaths.length == 0){
-			/**
-			 * If no saved file available, generate game using saved file
-			 */
+		SnapshotCatalog saves = getCatalog();
+		if (saves.size() == 0) {
 			System.out.println("No saved game files available.");
-		} else {
-			/**
-			 * If saved file available, print options for user
-			 */
-			System.out.println("Select a saved game file from the options below:");
-			Integer optionInt = 0;
-			for (String filepath: filePaths){
-				optionInt++;
-				String formattedPath   =  "    " + String.format("%-30s", filepath);
-				String formattedOption =  String.format("[%d]", optionInt);
-				System.out.println(formattedPath + formattedOption);
+			return "";
+		}
+		int page = 0;
+		while (true) {
+			int numPages = saves.numPages(pageSize);
+			page = Math.max(0, Math.min(page, numPages - 1));
+			List<SnapshotCatalog.Entry> entries = saves.page(page, pageSize);
+			System.out.println("Select a saved game file from the options below (page "
+				+ (page + 1) + " of " + numPages + "):");
+			for (int i=0; i<entries.size(); i++)
+				System.out.println("    " + entries.get(i) + String.format("  [%d]", page * pageSize + i + 1));
+			if (numPages > 1)
+				System.out.println("    Next page [>]    Previous page [<]");
+			String response = getCommand().trim();
+			if (response.equals(">")) {
+				page++;
+				continue;
+			}
+			if (response.equals("<")) {
+				page--;
+				continue;
 			}
-			/**
-			 * Use reponse to retrieve saved file and display file
-			 */
-			String response = getCommand();
 			try {
-				Integer gameIndex = Integer.parseInt(response);
-				if (gameIndex > 0 && gameIndex <= filePaths.length)
-				{
-					/**
-					 * If valid integer was provided, generate game using saved file
-					 */
-					retPath = filePaths[gameIndex-1];
-				} else {
-					/**
-					 * If invalid integer was provided, generate new game
-					 */
-					System.out.println("Invalid option selected (" + response + ")");
-				}
-			} catch (NumberFormatException ex){
-				/**
-				 * If invalid input was provided, generate new game
-				 */
-				System.out.println("Invalid option selected (" + response + ")");
+				int gameIndex = Integer.parseInt(response);
+				if ((gameIndex > 0) && (gameIndex <= saves.size()))
+					return saves.get(gameIndex - 1).getName();
+			} catch (NumberFormatException ex) {
+				// falls through to the message below
 			}
+			System.out.println("Invalid option selected (" + response + ")");
+			return "";
 		}
-		return retPath;
+	}
+
+	/**
+	 * Gets the catalog of saved games (made on first use)
+	 *
+	 * @return the catalog
+	 */
+	private SnapshotCatalog getCatalog() {
+		if (catalog == null)
+			catalog = new SnapshotCatalog(new File(workDir + "/snapshot"));
+		return catalog;
 	}
 
 	/**
 	 * Load saved puzzle from file
 	 */
 	public void loadSavedPuzzle() {
-		System.out.println("\n\nLocating saved game files.");
 		String filename = chooseSavedPuzzle();
+		if (filename.isEmpty())
+			return;
 		String filepath = workDir + "/snapshot/" + filename;
 		setScreenFile(filepath);
 		genGame();
@@ -367,9 +538,131 @@ public class TUI {
 			System.out.println("Unknown option provided ("+ response + ").");
 		}
 		System.out.println("Program shutting down.");
+		endAutosave();
 		System.exit(0);
 	}
 
+	/**
+	 * Run a whole script of moves in one go, without printing anything between moves.
+	 * Moves are LURD or NSEW letters (either case; in LURD an upper case letter marks a
+	 * push, which is not checked), each optionally preceded by a repeat count, as in
+	 * "3r". White space and lines starting with ';' are ignored. A move that cannot be
+	 * made is skipped and counted as rejected.
+	 *
+	 * @param script the moves (cannot be null)
+	 * @return a one-line summary of the run
+	 */
+	public String runScript(CharSequence script) {
+		if (script == null)
+			throw new IllegalArgumentException("script cannot be null");
+		long started  = System.nanoTime();
+		int  moves    = 0;
+		int  pushes   = 0;
+		int  rejected = 0;
+		int  firstBad = -1;
+		int  repeat   = 0;
+		int  len      = script.length();
+		for (int pos=0; pos<len; pos++) {
+			char c = script.charAt(pos);
+			if ((c == ';') && ((pos == 0) || (script.charAt(pos - 1) == '\n'))) {
+				while ((pos < len) && (script.charAt(pos) != '\n'))
+					pos++;
+				continue;
+			}
+			if (Character.isWhitespace(c))
+				continue;
+			if ((c >= '0') && (c <= '9')) {
+				repeat = repeat * 10 + (c - '0');
+				continue;
+			}
+			Direction dir = scriptDirection(c);
+			if (dir == null)
+				throw new IllegalArgumentException("invalid move '" + c + "' at position " + (pos + 1) + " of the script");
+			for (int n=Math.max(repeat, 1); n>0; n--) {
+				if (!puzzle.canMove(dir)) {
+					rejected++;
+					if (firstBad < 0)
+						firstBad = moves + rejected;
+					continue;
+				}
+				if (puzzle.getBoard().hasBox(puzzle.getLevel().step(puzzle.getActorIndex(), dir)))
+					pushes++;
+				puzzle.move(dir);
+				moves++;
+			}
+			repeat = 0;
+		}
+		long micros = (System.nanoTime() - started) / 1000;
+		return "moves=" + moves + " pushes=" + pushes + " rejected=" + rejected
+			+ ((firstBad > 0) ? " (first at move " + firstBad + ")" : "")
+			+ " on target=" + puzzle.numOnTarget() + "/" + puzzle.numTargets()
+			+ " solved=" + (puzzle.onTarget() ? "yes" : "no") + " time=" + micros + "us";
+	}
+
+	/**
+	 * The direction of a script move letter
+	 *
+	 * @param c the letter
+	 * @return the direction (or null if the letter is not a move)
+	 */
+	private static Direction scriptDirection(char c) {
+		switch (Character.toLowerCase(c)) {
+			case 'u': case 'n': return Direction.NORTH;
+			case 'd': case 's': return Direction.SOUTH;
+			case 'r': case 'e': return Direction.EAST;
+			case 'l': case 'w': return Direction.WEST;
+			default:            return null;
+		}
+	}
+
+	/**
+	 * Batch entry point: play a script of moves on a screen (or saved game) and print
+	 * just the final board and a summary. The script comes from -m, from a file
+	 * given with -f, or otherwise from standard input.
+	 *
+	 * Usage: java sokoban.TUI [-m moves | -f script file] screen file
+	 *
+	 * @param args the command line options
+	 */
+	public static void main(String[] args) {
+		String moves  = null;
+		String script = null;
+		String screen = null;
+		try {
+			for (int i=0; i<args.length; i++) {
+				switch (args[i]) {
+					case "-m": moves  = args[++i]; break;
+					case "-f": script = args[++i]; break;
+					default:   screen = args[i];   break;
+				}
+			}
+			if (screen == null)
+				throw new IllegalArgumentException("no screen file");
+		} catch (RuntimeException e) {
+			System.out.println("Usage: java sokoban.TUI [-m moves | -f script file] screen file");
+			System.exit(1);
+		}
+		try {
+			if (moves == null) {
+				byte[] bytes = (script != null) ? java.nio.file.Files.readAllBytes(new File(script).toPath())
+					: System.in.readAllBytes();
+				moves = new String(bytes, java.nio.charset.StandardCharsets.ISO_8859_1);
+			}
+		} catch (IOException e) {
+			System.out.println("Cannot read script: " + e);
+			System.exit(1);
+		}
+		TUI tui = new TUI(screen);
+		try {
+			String summary = tui.runScript(moves);
+			System.out.print(tui.getPuzzleState() + summary + "\n");
+			System.out.flush();
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
 	/**
 	 * Get puzzle state
 	 */
@@ -390,7 +683,14 @@ public class TUI {
 	private Scanner scnr      = null;
 	private Sokoban puzzle    = null;
 	private Player  player    = null;
+	private boolean useSolver = true;
 	private String  screenPath   = null;
+	private LevelPack pack       = null;
+	private int     packLevel    = 0;
+	private File    autosave     = null;
+	private MoveLog moveLog      = null;
+	private SnapshotCatalog catalog = null;
+	private AnsiRenderer ansi    = null;
 	private ArrayList<String>   commands  = null;
 	private ArrayList<Boolean>  validity  = null;
 
@@ -398,6 +698,12 @@ public class TUI {
 	private static String  workDir      = System.getProperty("user.dir");
 	private static Integer minScreen    = 1;
 	private static Integer maxScreen    = 90;
+	private static long    planMillis   = 1000;
+	private static int     pageSize     = 10;
+	private static final String[] ANSI_MENU = {
+		"Move [N]orth [S]outh [E]ast [W]est   [P]layer move   [U]ndo   Re[D]o   [R]estart",
+		"New g[A]me   Sa[V]e   [L]oad saved game   [C]hoose level   [Q]uit   (Enter redraws)"
+	};
 	private static boolean traceOn      = false; // for debugging
 	private static Map<String,String> commandMap  =  null;
 }
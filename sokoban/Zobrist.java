@@ -0,0 +1,156 @@
+package sokoban;
+
+import java.util.*;
+
+/**
+ * Zobrist keys for hashing Sokoban positions on a level.
+ * Every cell has a random key for "a box is here" and another for "the actor's
+ * region starts here"; the hash of a position is the exclusive-or of the keys of
+ * its box cells and the key of its normalised actor cell (the smallest cell index
+ * the actor can walk to). Moving a box changes the hash by two exclusive-ors.
+ *
+ * The keys are generated from a fixed seed and the level's dimensions, so hashes of
+ * the same position agree between runs. A second, independent set of keys can be
+ * generated on request for 128-bit hashes in very large searches.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public final class Zobrist {
+	/**
+	 * Constructor
+	 *
+	 * @param numCells the number of cells to generate keys for
+	 */
+	Zobrist(int numCells) {
+		if (numCells < 0)
+			throw new IllegalArgumentException("numCells cannot be negative");
+		this.numCells = numCells;
+		SplittableRandom rnd = new SplittableRandom(SEED ^ numCells);
+		this.boxKeys   = keys(rnd, numCells);
+		this.actorKeys = keys(rnd, numCells);
+	}
+
+	/**
+	 * Gets the (low 64-bit) key for a box in a cell
+	 *
+	 * @param idx the cell index
+	 * @return the key
+	 */
+	public long boxKey(int idx) {
+		return boxKeys[idx];
+	}
+
+	/**
+	 * Gets the (low 64-bit) key for the normalised actor in a cell
+	 *
+	 * @param idx the cell index
+	 * @return the key
+	 */
+	public long actorKey(int idx) {
+		return actorKeys[idx];
+	}
+
+	/**
+	 * Gets the high 64-bit key for a box in a cell
+	 *
+	 * @param idx the cell index
+	 * @return the key
+	 */
+	public long boxKeyHigh(int idx) {
+		return high()[0][idx];
+	}
+
+	/**
+	 * Gets the high 64-bit key for the normalised actor in a cell
+	 *
+	 * @param idx the cell index
+	 * @return the key
+	 */
+	public long actorKeyHigh(int idx) {
+		return high()[1][idx];
+	}
+
+	/**
+	 * Hash a set of boxes with the low keys
+	 *
+	 * @param boxes bitset of box cells
+	 * @return the exclusive-or of the box keys
+	 */
+	long hashBoxes(long[] boxes) {
+		return hashBoxes(boxes, boxKeys);
+	}
+
+	/**
+	 * Hash a set of boxes with the high keys
+	 *
+	 * @param boxes bitset of box cells
+	 * @return the exclusive-or of the high box keys
+	 */
+	long hashBoxesHigh(long[] boxes) {
+		return hashBoxes(boxes, high()[0]);
+	}
+
+	/**
+	 * Hash a set of boxes with a given set of keys
+	 *
+	 * @param boxes bitset of box cells
+	 * @param keys the keys to use
+	 * @return the exclusive-or of the box keys
+	 */
+	private static long hashBoxes(long[] boxes, long[] keys) {
+		long hash = 0;
+		for (int word=0; word<boxes.length; word++) {
+			long w = boxes[word];
+			while (w != 0) {
+				hash ^= keys[(word << 6) + Long.numberOfTrailingZeros(w)];
+				w &= w - 1;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Gets the high keys, generating them on first use
+	 *
+	 * @return the high box keys and high actor keys
+	 */
+	private long[][] high() {
+		long[][] keys = highKeys;
+		return (keys != null) ? keys : generateHigh();
+	}
+
+	/**
+	 * Generate the high keys (once, even if several threads ask at the same time)
+	 *
+	 * @return the high box keys and high actor keys
+	 */
+	private synchronized long[][] generateHigh() {
+		if (highKeys == null) {
+			SplittableRandom rnd = new SplittableRandom(~SEED ^ numCells);
+			highKeys = new long[][] { keys(rnd, numCells), keys(rnd, numCells) };
+		}
+		return highKeys;
+	}
+
+	/**
+	 * Generate a set of random keys
+	 *
+	 * @param rnd the random number generator
+	 * @param num the number of keys
+	 * @return the keys
+	 */
+	private static long[] keys(SplittableRandom rnd, int num) {
+		long[] keys = new long[num];
+		for (int i=0; i<num; i++)
+			keys[i] = rnd.nextLong();
+		return keys;
+	}
+
+	private final int      numCells;
+	private final long[]   boxKeys;
+	private final long[]   actorKeys;
+	private volatile long[][] highKeys = null;
+
+	private static final long SEED = 0x5D0C0BA5F00DL;
+}
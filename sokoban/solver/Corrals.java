@@ -0,0 +1,424 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+import sokoban.Sokoban;
+import sokoban.Zobrist;
+
+/**
+ * Finds corrals: areas the actor cannot walk to because boxes shut them off. The
+ * boxes bordering a corral are its fence (corrals that share a fence box count as
+ * one). A corral is a PI-corral if every push the actor can make on its fence takes
+ * a box into the corral (I), and the actor can get behind every fence box that could
+ * be pushed into the corral (P). Unless its fence boxes are all on targets and it
+ * has no empty target, such a corral has to be dealt with sooner or later, and
+ * nothing the actor does elsewhere opens it up, so the search only needs to try the
+ * pushes into it (when there are several, the one with the fewest such pushes).
+ *
+ * A PI-corral may also be a deadlock on its own. This is tested with a small search
+ * on the fence boxes alone, with every other box taken off the board (which can only
+ * help): if none of the positions it can reach has the fence boxes all on targets,
+ * neither has any position of the whole level. The search gives up, and the corral
+ * counts as no deadlock, as soon as the actor gets into the corral, or after a fixed
+ * number of positions. Results are cached by
+ * the fence boxes and the actor's region, so a corral is only searched once per run.
+ *
+ * The scratch arrays are allocated once per level and reused; an instance is not
+ * thread safe. The solver calls the index-based analyse() for every node it
+ * expands; analyse(Sokoban) looks at a puzzle's current position on its own.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public final class Corrals {
+	/**
+	 * Constructor
+	 *
+	 * @param level the level to explore (cannot be null)
+	 */
+	public Corrals(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		int numCells = level.getNumCells();
+		this.level     = level;
+		this.zobrist   = level.getZobrist();
+		this.stamp     = new int[numCells];
+		this.label     = new int[numCells];
+		this.queue     = new int[numCells];
+		this.root      = new int[numCells];
+		this.pushes    = new int[numCells];
+		this.flags     = new byte[numCells];
+		this.inner     = new Reachability(level);
+		this.innerNext = new Reachability(level);
+		this.innerAt   = new boolean[numCells];
+		this.cache     = new HashMap<Node,Boolean>();
+	}
+
+	/**
+	 * Look for PI-corrals in a puzzle's current position
+	 *
+	 * @param puzzle the puzzle (cannot be null; must be on this level)
+	 * @return NONE (no PI-corral to deal with), DEADLOCK (the position can never be
+	 * solved) or RESTRICT (only pushes into a PI-corral need be tried; see isInCorral)
+	 */
+	public int analyse(Sokoban puzzle) {
+		if ((puzzle == null) || (puzzle.getLevel() != level))
+			throw new IllegalArgumentException("puzzle must be on this level");
+		int[]        boxes = puzzle.getBoxIndices();
+		int          actor = puzzle.getActorIndex();
+		boolean[]    boxAt = new boolean[level.getNumCells()];
+		Reachability reach = new Reachability(level);
+		for (int box : boxes)
+			boxAt[box] = true;
+		reach.compute(boxAt, actor);
+		return analyse(boxes, actor, boxAt, reach, puzzle);
+	}
+
+	/**
+	 * Look for PI-corrals in a position
+	 *
+	 * @param boxes the box cell indices, in increasing order
+	 * @param actor the actor cell index
+	 * @param boxAt which cells hold boxes (matching boxes)
+	 * @param reach the actor's reachable cells in the position (already computed)
+	 * @param guard a puzzle set to the position, to check which pushes are allowed
+	 * @return NONE (no PI-corral to deal with), DEADLOCK (the position can never be
+	 * solved) or RESTRICT (only pushes into a PI-corral need be tried; see isInCorral)
+	 */
+	int analyse(int[] boxes, int actor, boolean[] boxAt, Reachability reach, Sokoban guard) {
+		if (++epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+		chosen = -1;
+
+		// label the areas the actor cannot reach (each one borders some box)
+		int numCorrals = 0;
+		for (int box : boxes) {
+			for (int d=0; d<4; d++) {
+				int side = reach.step(box, d);
+				if ((side < 0) || level.isWall(side) || boxAt[side] || reach.isReachable(side) || (stamp[side] == epoch))
+					continue;
+				fill(side, numCorrals, boxAt, reach);
+				numCorrals++;
+			}
+		}
+		if (numCorrals == 0)
+			return NONE;
+
+		// corrals sharing a fence box are one corral
+		for (int box : boxes) {
+			int first = -1;
+			for (int d=0; d<4; d++) {
+				int side = reach.step(box, d);
+				if ((side < 0) || (stamp[side] != epoch))
+					continue;
+				if (first < 0)
+					first = find(label[side]);
+				else
+					union(first, label[side]);
+			}
+		}
+
+		// check the I and P conditions on every fence
+		for (int box : boxes) {
+			int c = corralOf(box, reach);
+			if (c < 0)
+				continue;
+			if (!level.isTarget(box))
+				flags[c] |= UNSOLVED;
+			for (int d=0; d<4; d++) {
+				int behind = reach.step(box, REVERSE[d]);
+				int dest   = reach.step(box, d);
+				if ((dest < 0) || level.isWall(dest) || boxAt[dest] || level.isDead(dest))
+					continue;
+				boolean into = (stamp[dest] == epoch) && (find(label[dest]) == c);
+				if (into && (behind >= 0) && !level.isWall(behind) && !reach.isReachable(behind))
+					flags[c] |= NOT_PI; // P: a push into the corral the actor may not get to
+				else if (!reach.isReachable(behind) || ((flags[c] & NOT_PI) != 0) || !guard.canPush(box, DIRECTIONS[d]))
+					continue;
+				else if (into)
+					pushes[c]++;
+				else
+					flags[c] |= NOT_PI; // I: a push that leaves the corral shut
+			}
+		}
+
+		// test each PI-corral for deadlock, and pick the one with the fewest pushes
+		for (int c=0; c<numCorrals; c++) {
+			if ((root[c] != c) || ((flags[c] & NOT_PI) != 0) || ((flags[c] & UNSOLVED) == 0) || (pushes[c] == 0))
+				continue;
+			if (isDeadlock(c, boxes, actor, reach))
+				return DEADLOCK;
+			if ((chosen < 0) || (pushes[c] < pushes[chosen]))
+				chosen = c;
+		}
+		return (chosen < 0) ? NONE : RESTRICT;
+	}
+
+	/**
+	 * After analyse() returns RESTRICT, is a cell inside the chosen PI-corral?
+	 *
+	 * @param idx the cell index
+	 * @return is the cell in the corral whose pushes should be tried?
+	 */
+	public boolean isInCorral(int idx) {
+		return (chosen >= 0) && (idx >= 0) && (stamp[idx] == epoch) && (find(label[idx]) == chosen);
+	}
+
+	/**
+	 * Gets the number of corrals whose deadlock test result is cached
+	 *
+	 * @return the cache size
+	 */
+	public int cacheSize() {
+		return cache.size();
+	}
+
+	/**
+	 * Flood fill an area the actor cannot reach, labelling its cells
+	 *
+	 * @param start a cell of the area
+	 * @param id the corral number to give it
+	 * @param boxAt which cells hold boxes
+	 * @param reach the actor's reachable cells
+	 */
+	private void fill(int start, int id, boolean[] boxAt, Reachability reach) {
+		root[id]   = id;
+		pushes[id] = 0;
+		flags[id]  = 0;
+		int head = 0;
+		int tail = 0;
+		stamp[start]  = epoch;
+		label[start]  = id;
+		queue[tail++] = start;
+		while (head < tail) {
+			int idx = queue[head++];
+			if (level.isTarget(idx))
+				flags[id] |= UNSOLVED; // an empty target inside
+			for (int d=0; d<4; d++) {
+				int to = reach.step(idx, d);
+				if ((to < 0) || (stamp[to] == epoch) || level.isWall(to) || boxAt[to])
+					continue;
+				stamp[to]     = epoch;
+				label[to]     = id;
+				queue[tail++] = to;
+			}
+		}
+	}
+
+	/**
+	 * Gets the corral a box is part of the fence of
+	 *
+	 * @param box the box cell index
+	 * @param reach the actor's reachable cells
+	 * @return the corral number (-1 if the box borders no corral)
+	 */
+	private int corralOf(int box, Reachability reach) {
+		for (int d=0; d<4; d++) {
+			int side = reach.step(box, d);
+			if ((side >= 0) && (stamp[side] == epoch))
+				return find(label[side]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the corral a labelled area has been merged into
+	 *
+	 * @param c the corral number
+	 * @return the number of the merged corral
+	 */
+	private int find(int c) {
+		while (root[c] != c) {
+			root[c] = root[root[c]];
+			c       = root[c];
+		}
+		return c;
+	}
+
+	/**
+	 * Merge two corrals
+	 *
+	 * @param a a corral number
+	 * @param b another corral number
+	 */
+	private void union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a == b)
+			return;
+		if (b < a) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		root[b]   = a;
+		flags[a] |= flags[b];
+	}
+
+	/**
+	 * Is a corral a deadlock on its own? Looks in the cache first.
+	 *
+	 * @param c the corral number
+	 * @param boxes all the box cell indices, in increasing order
+	 * @param actor the actor cell index
+	 * @param reach the actor's reachable cells
+	 * @return can the fence boxes never all reach targets?
+	 */
+	private boolean isDeadlock(int c, int[] boxes, int actor, Reachability reach) {
+		int num = 0;
+		for (int box : boxes)
+			if (corralOf(box, reach) == c)
+				num++;
+		int[] fence = new int[num];
+		num = 0;
+		for (int box : boxes)
+			if (corralOf(box, reach) == c)
+				fence[num++] = box;
+		for (int box : fence)
+			innerAt[box] = true;
+		Node start = position(fence, actor, inner);
+		for (int box : fence)
+			innerAt[box] = false;
+		Boolean known = cache.get(start);
+		if (known == null) {
+			known = search(start, c);
+			if (cache.size() >= CACHE_LIMIT)
+				cache.clear();
+			cache.put(start, known);
+		}
+		return known;
+	}
+
+	/**
+	 * Search the positions of a few boxes alone for one with them all on targets.
+	 * Once the actor gets into the corral, the search gives up.
+	 *
+	 * @param start the starting position
+	 * @param c the corral number
+	 * @return was every position searched without finding one (a deadlock)?
+	 */
+	private boolean search(Node start, int c) {
+		ArrayDeque<Node> open = new ArrayDeque<Node>();
+		HashSet<Node>    seen = new HashSet<Node>();
+		open.add(start);
+		seen.add(start);
+		while (!open.isEmpty()) {
+			if (seen.size() > NODE_LIMIT)
+				return false;
+			Node  node  = open.poll();
+			int[] boxes = node.boxes;
+			if (onTargets(boxes))
+				return false;
+			for (int box : boxes)
+				innerAt[box] = true;
+			inner.compute(innerAt, node.actor);
+			if (hasEntered(c)) {
+				for (int box : boxes)
+					innerAt[box] = false;
+				return false;
+			}
+			for (int i=0; i<boxes.length; i++) {
+				int box = boxes[i];
+				for (int d=0; d<4; d++) {
+					int dest = inner.step(box, d);
+					if (!inner.isReachable(inner.step(box, REVERSE[d])) || (dest < 0) || level.isWall(dest) || innerAt[dest] || level.isDead(dest))
+						continue;
+					innerAt[box]  = false;
+					innerAt[dest] = true;
+					Node child = position(Solver.moveBox(boxes, i, dest), box, innerNext);
+					innerAt[dest] = false;
+					innerAt[box]  = true;
+					if (seen.add(child))
+						open.add(child);
+				}
+			}
+			for (int box : boxes)
+				innerAt[box] = false;
+		}
+		return true;
+	}
+
+	/**
+	 * Has the actor got into a corral in the deadlock search's last flood fill?
+	 *
+	 * @param c the corral number
+	 * @return can the actor reach any cell of the corral?
+	 */
+	private boolean hasEntered(int c) {
+		for (int i=0; i<inner.size(); i++) {
+			int idx = inner.get(i);
+			if ((stamp[idx] == epoch) && (find(label[idx]) == c))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Make a search position for some boxes (already marked in innerAt), working out
+	 * the actor's region
+	 *
+	 * @param boxes the box cell indices, in increasing order
+	 * @param actor the actor cell index
+	 * @param fill the reachability to use for the flood fill
+	 * @return the position
+	 */
+	private Node position(int[] boxes, int actor, Reachability fill) {
+		long boxHash = 0;
+		for (int box : boxes)
+			boxHash ^= zobrist.boxKey(box);
+		int norm = fill.compute(innerAt, actor);
+		return new Node(boxes, actor, norm, null, -1, -1, null, 0, 0, boxHash, boxHash ^ zobrist.actorKey(norm));
+	}
+
+	/**
+	 * Are all the boxes on targets?
+	 *
+	 * @param boxes the box cell indices
+	 * @return are all the boxes on targets?
+	 */
+	private boolean onTargets(int[] boxes) {
+		for (int box : boxes)
+			if (!level.isTarget(box))
+				return false;
+		return true;
+	}
+
+	/** No PI-corral needs dealing with: try every push */
+	public static final int NONE     = 0;
+	/** A PI-corral is a deadlock: the position can be dropped */
+	public static final int DEADLOCK = 1;
+	/** Only pushes into the chosen PI-corral need be tried */
+	public static final int RESTRICT = 2;
+
+	private final Level              level;
+	private final Zobrist            zobrist;
+	private final int[]              stamp;     // the cells labelled in this analysis
+	private final int[]              label;     // by cell: the corral number of the area
+	private final int[]              queue;
+	private final int[]              root;      // by corral: the corral it was merged into
+	private final int[]              pushes;    // by corral: pushes the actor can make into it
+	private final byte[]             flags;     // by corral: NOT_PI, UNSOLVED
+	private final Reachability       inner;     // scratch for the deadlock search
+	private final Reachability       innerNext;
+	private final boolean[]          innerAt;
+	private final HashMap<Node,Boolean> cache;  // deadlock test results
+	private int                      epoch  = 0;
+	private int                      chosen = -1;
+
+	private static final byte NOT_PI   = 1;
+	private static final byte UNSOLVED = 2;
+
+	private static final int NODE_LIMIT  = 2000;    // positions a deadlock search may visit
+	private static final int CACHE_LIMIT = 1 << 16; // cached results kept before starting afresh
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int[]       REVERSE    = new int[DIRECTIONS.length];
+	static {
+		for (Direction dir : DIRECTIONS)
+			REVERSE[dir.ordinal()] = dir.reverse().ordinal();
+	}
+}
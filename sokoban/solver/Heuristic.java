@@ -0,0 +1,44 @@
+package sokoban.solver;
+
+import sokoban.Level;
+
+/**
+ * A lower bound on the number of pushes still needed to solve a Sokoban position.
+ * The estimate must never exceed the true number of pushes (it must be admissible)
+ * for the solver's push counts to be optimal, although any estimate gives valid solutions.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public interface Heuristic {
+	/**
+	 * Prepare for a level (called once at the start of each solve)
+	 *
+	 * @param level the level to be solved
+	 */
+	public void init(Level level);
+
+	/**
+	 * Estimate the pushes still needed
+	 *
+	 * @param boxes the box cell indices, in increasing order
+	 * @return a lower bound on the pushes needed (Integer.MAX_VALUE if unsolvable)
+	 */
+	public int estimate(int[] boxes);
+
+	/**
+	 * Estimate the pushes still needed after one box of a position has been pushed.
+	 * A heuristic that keeps work from the parent position can override this to
+	 * update its estimate rather than start again; by default it just calls
+	 * {@link #estimate(int[])} on the new position.
+	 *
+	 * @param parent the box cell indices before the push, in increasing order
+	 * @param i the position in parent of the box that was pushed
+	 * @param dest the cell the box was pushed to
+	 * @param boxes the box cell indices after the push, in increasing order
+	 * @return a lower bound on the pushes needed (Integer.MAX_VALUE if unsolvable)
+	 */
+	public default int estimate(int[] parent, int i, int dest, int[] boxes) {
+		return estimate(boxes);
+	}
+}
@@ -0,0 +1,560 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+
+/**
+ * Works out, once per level, where a push can be carried on as a macro move: a run
+ * of pushes of the same box that the search takes as a single step.
+ *
+ * A tunnel is a one-wide corridor: a box in a tunnel cell, with the actor behind it
+ * (also between walls), can only be pushed on or left there, and leaving it there
+ * only blocks the corridor. So a box pushed into a tunnel is pushed on until it
+ * leaves the tunnel, reaches a target, or is blocked.
+ *
+ * A goal room is an area holding targets that can only be got into through one
+ * square, the entrance (an articulation square: one whose removal cuts the level in
+ * two). Working backwards from the full room, a packing order is found in which
+ * each box can be pushed from the entrance to its target past the boxes already
+ * packed, and the pushes for each are worked out. A box pushed onto the entrance
+ * while the room holds just the first few boxes of the order is then pushed straight
+ * on to the next target.
+ *
+ * The pushes of a macro are only suggestions: the solver still checks each one
+ * against the puzzle's rules. An instance is not thread safe.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+final class Macros {
+	/**
+	 * Constructor: analyse a level
+	 *
+	 * @param level the level (cannot be null)
+	 * @param start the actor's cell index, which tells the inside of the level from the outside
+	 */
+	Macros(Level level, int start) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		if ((start < 0) || (start >= level.getNumCells()) || level.isWall(start))
+			throw new IllegalArgumentException("invalid actor cell");
+		int numCells = level.getNumCells();
+		this.level      = level;
+		this.numCells   = numCells;
+		this.next       = new int[numCells * 4];
+		this.tunnel     = new boolean[numCells * 4];
+		this.roomOf     = new int[numCells];
+		this.entranceOf = new int[numCells];
+		this.rank       = new int[numCells];
+		this.rooms      = new ArrayList<Room>();
+		for (int idx=0; idx<numCells; idx++)
+			for (Direction dir : DIRECTIONS)
+				next[idx * 4 + dir.ordinal()] = level.step(idx, dir);
+		Arrays.fill(roomOf, -1);
+		Arrays.fill(entranceOf, -1);
+		Arrays.fill(rank, -1);
+
+		boolean[] inside = insideCells(start);
+		findTunnels(inside);
+		this.articulation = findArticulations(inside, start);
+		findRooms(inside, start);
+	}
+
+	/**
+	 * Is a cell a tunnel cell for a box pushed into it in a direction?
+	 *
+	 * @param idx the cell index
+	 * @param dir the direction ordinal of the push
+	 * @return must a box pushed here be pushed on?
+	 */
+	boolean isTunnel(int idx, int dir) {
+		return tunnel[idx * 4 + dir];
+	}
+
+	/**
+	 * Is a cell an articulation square (one whose removal cuts the level in two)?
+	 *
+	 * @param idx the cell index
+	 * @return is the cell an articulation square?
+	 */
+	boolean isArticulation(int idx) {
+		return articulation[idx];
+	}
+
+	/**
+	 * Gets the number of goal rooms found
+	 *
+	 * @return the number of goal rooms
+	 */
+	int numRooms() {
+		return rooms.size();
+	}
+
+	/**
+	 * Gets the pushes that carry on from a push as a macro move
+	 *
+	 * @param boxes the box cell indices before the push
+	 * @param boxAt which cells hold boxes before the push (left unchanged)
+	 * @param from the cell the box is pushed from
+	 * @param dir the direction ordinal of the push
+	 * @param reach scratch, to check the actor can get to a goal room's entrance
+	 * @return the direction ordinals of the pushes that follow (null if none)
+	 */
+	byte[] follow(int[] boxes, boolean[] boxAt, int from, int dir, Reachability reach) {
+		int    box    = next[from * 4 + dir];
+		int    actor  = from;
+		byte[] pushes = null;
+		int    num    = 0;
+		while (true) {
+			int r = entranceOf[box];
+			if (r >= 0) {
+				byte[] packing = pack(rooms.get(r), boxes, boxAt, from, box, actor, reach);
+				if (packing != null) {
+					pushes = append(pushes, num, packing, packing.length);
+					num   += packing.length;
+					break;
+				}
+			}
+			if (!tunnel[box * 4 + dir])
+				break;
+			int ahead = next[box * 4 + dir];
+			if ((ahead < 0) || level.isWall(ahead) || level.isDead(ahead) || boxAt[ahead])
+				break;
+			pushes = append(pushes, num, new byte[] {(byte) dir}, 1);
+			num++;
+			actor = box;
+			box   = ahead;
+		}
+		return (num == 0) ? null : Arrays.copyOf(pushes, num);
+	}
+
+	/**
+	 * Gets the pushes that pack a box on a goal room's entrance into the room, if the
+	 * room holds just the first few boxes of its packing order
+	 *
+	 * @param room the goal room
+	 * @param boxes the box cell indices before the box moved
+	 * @param boxAt which cells hold boxes before the box moved (left unchanged)
+	 * @param from the cell the moving box started from
+	 * @param box the cell the moving box is on (the entrance)
+	 * @param actor the cell the actor is on
+	 * @param reach scratch, to check the actor can get behind the box
+	 * @return the direction ordinals of the pushes (null if the room is not ready)
+	 */
+	private byte[] pack(Room room, int[] boxes, boolean[] boxAt, int from, int box, int actor, Reachability reach) {
+		int packed = 0;
+		int ready  = 0;
+		for (int b : boxes) {
+			if ((b == from) || (roomOf[b] != room.id))
+				continue;
+			if (rank[b] < 0)
+				return null;
+			packed++;
+			ready = Math.max(ready, rank[b] + 1);
+		}
+		// the boxes must be exactly the first of the packing order, with a target left
+		if ((ready != packed) || (packed >= room.order.length))
+			return null;
+		int outside = room.outside;
+		if ((outside != from) && boxAt[outside])
+			return null;
+		if (actor != outside) {
+			boolean moved = boxAt[from];
+			boxAt[from] = false;
+			boxAt[box]  = true;
+			reach.compute(boxAt, actor);
+			boxAt[box]  = false;
+			boxAt[from] = moved;
+			if (!reach.isReachable(outside))
+				return null;
+		}
+		return room.pushes[packed];
+	}
+
+	/**
+	 * Find the cells the actor could walk to if there were no boxes
+	 *
+	 * @param start the actor cell index
+	 * @return which cells are inside the level
+	 */
+	private boolean[] insideCells(int start) {
+		boolean[] inside = new boolean[numCells];
+		int[]     queue  = new int[numCells];
+		int       head   = 0;
+		int       tail   = 0;
+		inside[start] = true;
+		queue[tail++] = start;
+		while (head < tail) {
+			int idx = queue[head++];
+			for (int d=0; d<4; d++) {
+				int to = next[idx * 4 + d];
+				if ((to < 0) || inside[to] || level.isWall(to))
+					continue;
+				inside[to]    = true;
+				queue[tail++] = to;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Mark the tunnel cells: cells off target where a box pushed in has walls on both
+	 * sides, and so has the actor behind it
+	 *
+	 * @param inside which cells are inside the level
+	 */
+	private void findTunnels(boolean[] inside) {
+		for (int idx=0; idx<numCells; idx++) {
+			if (!inside[idx] || level.isTarget(idx))
+				continue;
+			for (int d=0; d<4; d++) {
+				int behind = next[idx * 4 + REVERSE[d]];
+				tunnel[idx * 4 + d] = (behind >= 0) && inside[behind] && isWalled(idx, d) && isWalled(behind, d);
+			}
+		}
+	}
+
+	/**
+	 * Are both sides of a cell, across a direction, walls (or off the grid)?
+	 *
+	 * @param idx the cell index
+	 * @param dir the direction ordinal
+	 * @return are both sides blocked?
+	 */
+	private boolean isWalled(int idx, int dir) {
+		int left  = next[idx * 4 + LEFT[dir]];
+		int right = next[idx * 4 + RIGHT[dir]];
+		return ((left < 0) || level.isWall(left)) && ((right < 0) || level.isWall(right));
+	}
+
+	/**
+	 * Find the articulation squares of the inside of the level, with Tarjan's
+	 * depth-first search (iterative, as a level can have hundreds of cells)
+	 *
+	 * @param inside which cells are inside the level
+	 * @param start a cell inside the level, to search from
+	 * @return which cells are articulation squares
+	 */
+	private boolean[] findArticulations(boolean[] inside, int start) {
+		boolean[] cut    = new boolean[numCells];
+		int[]     disc   = new int[numCells];
+		int[]     low    = new int[numCells];
+		int[]     parent = new int[numCells];
+		int[]     edge   = new int[numCells];
+		int[]     stack  = new int[numCells];
+		int       sp     = 0;
+		int       time   = 0;
+		int       roots  = 0;
+		parent[start] = -1;
+		disc[start]   = ++time;
+		low[start]    = time;
+		stack[sp++]   = start;
+		while (sp > 0) {
+			int v = stack[sp - 1];
+			if (edge[v] < 4) {
+				int w = next[v * 4 + edge[v]++];
+				if ((w < 0) || !inside[w])
+					continue;
+				if (disc[w] == 0) {
+					parent[w]   = v;
+					disc[w]     = ++time;
+					low[w]      = time;
+					stack[sp++] = w;
+					if (v == start)
+						roots++;
+				} else if (w != parent[v])
+					low[v] = Math.min(low[v], disc[w]);
+			} else {
+				sp--;
+				int p = parent[v];
+				if (p < 0)
+					continue;
+				low[p] = Math.min(low[p], low[v]);
+				if ((p != start) && (low[v] >= disc[p]))
+					cut[p] = true;
+			}
+		}
+		cut[start] = (roots > 1);
+		return cut;
+	}
+
+	/**
+	 * Find the goal rooms: for each articulation square, the areas it cuts off that
+	 * hold targets but not the actor, are small enough, and have a one-square door
+	 * straight through the entrance. Smaller rooms are preferred where they overlap,
+	 * and a room is only kept if a packing order can be found for it.
+	 *
+	 * @param inside which cells are inside the level
+	 * @param start the actor cell index
+	 */
+	private void findRooms(boolean[] inside, int start) {
+		ArrayList<Room> found = new ArrayList<Room>();
+		int[] stamp = new int[numCells];
+		int[] queue = new int[numCells];
+		int   epoch = 0;
+		for (int entrance=0; entrance<numCells; entrance++) {
+			if (!articulation[entrance])
+				continue;
+			for (int d=0; d<4; d++) {
+				int door = next[entrance * 4 + d];
+				if ((door < 0) || !inside[door])
+					continue;
+				// flood the area beyond the door, up to the largest room size
+				epoch++;
+				stamp[entrance] = epoch;
+				int     head    = 0;
+				int     tail    = 0;
+				int     targets = 0;
+				boolean small   = true;
+				stamp[door]   = epoch;
+				queue[tail++] = door;
+				while (head < tail) {
+					int idx = queue[head++];
+					if (level.isTarget(idx))
+						targets++;
+					if (tail > MAX_ROOM) {
+						small = false;
+						break;
+					}
+					for (int t=0; t<4; t++) {
+						int to = next[idx * 4 + t];
+						if ((to < 0) || !inside[to] || (stamp[to] == epoch))
+							continue;
+						stamp[to]     = epoch;
+						queue[tail++] = to;
+					}
+				}
+				int outside = next[entrance * 4 + REVERSE[d]];
+				if (!small || (targets == 0) || (stamp[start] == epoch) || (outside < 0) || !inside[outside] || (stamp[outside] == epoch))
+					continue;
+				boolean oneDoor = true;
+				for (int t=0; t<4; t++) {
+					int to = next[entrance * 4 + t];
+					if ((t != d) && (to >= 0) && (stamp[to] == epoch))
+						oneDoor = false;
+				}
+				if (oneDoor)
+					found.add(new Room(entrance, outside, Arrays.copyOf(queue, tail)));
+			}
+		}
+		Collections.sort(found, new Comparator<Room>() {
+			@Override
+			public int compare(Room a, Room b) {
+				return Integer.compare(a.cells.length, b.cells.length);
+			}
+		});
+		for (Room room : found) {
+			boolean free = (roomOf[room.entrance] < 0) && (entranceOf[room.entrance] < 0);
+			for (int idx : room.cells)
+				free = free && (roomOf[idx] < 0) && (entranceOf[idx] < 0);
+			if (!free || !room.plan())
+				continue;
+			room.id = rooms.size();
+			rooms.add(room);
+			for (int idx : room.cells)
+				roomOf[idx] = room.id;
+			entranceOf[room.entrance] = room.id;
+			for (int j=0; j<room.order.length; j++)
+				rank[room.order[j]] = j;
+		}
+	}
+
+	/**
+	 * Copy some pushes onto the end of a growing array
+	 *
+	 * @param pushes the array so far (or null)
+	 * @param num the number of pushes in it
+	 * @param more the pushes to add
+	 * @param count how many of them to add
+	 * @return the array with the pushes added (perhaps a new one)
+	 */
+	private static byte[] append(byte[] pushes, int num, byte[] more, int count) {
+		if ((pushes == null) || (pushes.length < num + count))
+			pushes = Arrays.copyOf((pushes == null) ? new byte[0] : pushes, Math.max(2 * num, num + count) + 4);
+		System.arraycopy(more, 0, pushes, num, count);
+		return pushes;
+	}
+
+	/**
+	 * A goal room: its cells, its entrance, and the pushes that pack it
+	 */
+	private final class Room {
+		/**
+		 * Constructor
+		 *
+		 * @param entrance the entrance cell
+		 * @param outside the cell outside the entrance the actor pushes from
+		 * @param cells the cells of the room
+		 */
+		Room(int entrance, int outside, int[] cells) {
+			this.entrance = entrance;
+			this.outside  = outside;
+			this.cells    = cells;
+		}
+
+		/**
+		 * Work out the packing order, backwards from the full room: a box can be packed
+		 * last if it can be pushed from the entrance to its target with all the other
+		 * targets filled. Taking a box out never makes another harder to get in, so any
+		 * such box will do at each step.
+		 *
+		 * @return was a packing order found?
+		 */
+		boolean plan() {
+			// the cells the search works on: the room, then the entrance and outside
+			int m = cells.length + 2;
+			local = new int[numCells];
+			Arrays.fill(local, -1);
+			place = Arrays.copyOf(cells, m);
+			place[m-2] = entrance;
+			place[m-1] = outside;
+			for (int k=0; k<m; k++)
+				local[place[k]] = k;
+
+			ArrayList<Integer> filled = new ArrayList<Integer>();
+			for (int idx : cells)
+				if (level.isTarget(idx))
+					filled.add(idx);
+			order  = new int[filled.size()];
+			pushes = new byte[filled.size()][];
+			boolean[] blocked = new boolean[m];
+			for (int idx : filled)
+				blocked[local[idx]] = true;
+			for (int j=filled.size()-1; j>=0; j--) {
+				byte[] found = null;
+				for (int k=0; (k<filled.size()) && (found == null); k++) {
+					int target = filled.get(k);
+					blocked[local[target]] = false;
+					found = route(target, blocked);
+					if (found != null) {
+						order[j]  = target;
+						pushes[j] = found;
+						filled.remove(k);
+					} else
+						blocked[local[target]] = true;
+				}
+				if (found == null)
+					return false;
+			}
+			local = null;
+			place = null;
+			return true;
+		}
+
+		/**
+		 * Find the fewest pushes that take a box from the entrance (with the actor
+		 * outside it) to a target, with the actor walking freely in between
+		 * (a breadth-first search where walking is free and pushing costs one)
+		 *
+		 * @param target the target cell
+		 * @param blocked which local cells hold a packed box
+		 * @return the direction ordinals of the pushes (null if there is no way)
+		 */
+		private byte[] route(int target, boolean[] blocked) {
+			int   m     = place.length;
+			int[]  dist  = new int[m * m];
+			int[]  prev  = new int[m * m];
+			byte[] push  = new byte[m * m];
+			int[]  deque = new int[2 * m * m * 4 + 2]; // walks go on the front, pushes on the back
+			Arrays.fill(dist, Integer.MAX_VALUE);
+			int head  = m * m * 4;
+			int tail  = head;
+			int first = (m-2) * m + (m-1); // box on the entrance, actor outside
+			dist[first]   = 0;
+			prev[first]   = -1;
+			deque[tail++] = first;
+			while (head < tail) {
+				int state = deque[head++];
+				int b     = state / m;
+				int a     = state % m;
+				if (place[b] == target)
+					return pushesTo(state, prev, push);
+				for (int d=0; d<4; d++) {
+					int step = next[place[a] * 4 + d];
+					int to   = (step < 0) ? -1 : local[step];
+					if ((to < 0) || blocked[to] || level.isWall(step))
+						continue;
+					if (to != b) {
+						int walked = b * m + to;
+						if (dist[state] < dist[walked]) {
+							dist[walked]   = dist[state];
+							prev[walked]   = state;
+							push[walked]   = -1;
+							deque[--head]  = walked;
+						}
+						continue;
+					}
+					int ahead = next[place[b] * 4 + d];
+					int dest  = (ahead < 0) ? -1 : local[ahead];
+					if ((dest < 0) || (dest >= m-1) || blocked[dest] || level.isWall(ahead) || level.isDead(ahead))
+						continue;
+					int pushed = dest * m + b;
+					if (dist[state] + 1 < dist[pushed]) {
+						dist[pushed]  = dist[state] + 1;
+						prev[pushed]  = state;
+						push[pushed]  = (byte) d;
+						deque[tail++] = pushed;
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Read the pushes back along a route
+		 *
+		 * @param state the final state
+		 * @param prev the state each was reached from
+		 * @param push the push that reached each state (-1 for a step of walking)
+		 * @return the direction ordinals of the pushes, in order
+		 */
+		private byte[] pushesTo(int state, int[] prev, byte[] push) {
+			int num = 0;
+			for (int s=state; prev[s]>=0; s=prev[s])
+				if (push[s] >= 0)
+					num++;
+			byte[] route = new byte[num];
+			for (int s=state; prev[s]>=0; s=prev[s])
+				if (push[s] >= 0)
+					route[--num] = push[s];
+			return route;
+		}
+
+		final int   entrance;
+		final int   outside;
+		final int[] cells;
+		int         id     = -1;
+		int[]       order  = null;  // the targets, in packing order
+		byte[][]    pushes = null;  // by the number already packed: the pushes from the entrance to the next target
+		private int[] local = null; // scratch while planning: by cell, the search's number for it
+		private int[] place = null; // scratch while planning: by search number, the cell
+	}
+
+	private final Level           level;
+	private final int             numCells;
+	private final int[]           next;
+	private final boolean[]       tunnel;       // by cell * 4 + push direction
+	private final boolean[]       articulation;
+	private final int[]           roomOf;       // by cell: the goal room it is in (-1 if none)
+	private final int[]           entranceOf;   // by cell: the goal room it is the entrance of (-1 if none)
+	private final int[]           rank;         // by cell: its place in its room's packing order (-1 if none)
+	private final ArrayList<Room> rooms;
+
+	private static final int MAX_ROOM = 64; // the most cells a goal room may have
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int[]       REVERSE    = new int[DIRECTIONS.length];
+	private static final int[]       LEFT       = new int[DIRECTIONS.length];
+	private static final int[]       RIGHT      = new int[DIRECTIONS.length];
+	static {
+		for (Direction dir : DIRECTIONS)
+			REVERSE[dir.ordinal()] = dir.reverse().ordinal();
+		for (Direction dir : DIRECTIONS) {
+			boolean across = (dir == Direction.NORTH) || (dir == Direction.SOUTH);
+			LEFT[dir.ordinal()]  = (across ? Direction.WEST : Direction.NORTH).ordinal();
+			RIGHT[dir.ordinal()] = (across ? Direction.EAST : Direction.SOUTH).ordinal();
+		}
+	}
+}
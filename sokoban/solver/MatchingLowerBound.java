@@ -0,0 +1,307 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Level;
+
+/**
+ * The smallest total, over every way of giving each box a target of its own, of the
+ * push distances from the boxes to their targets (see {@link PushDistances}).
+ * Unlike {@link SimpleLowerBound}, two boxes cannot both count on the same target,
+ * which makes a far better estimate when many boxes are nearest the same targets.
+ * It is still admissible, as every solution sends each box to a different target.
+ *
+ * The matching is found with the Hungarian algorithm, which keeps a potential for
+ * each box and each target. The last matching worked out is kept: when the next
+ * position differs from it by a few boxes, as a child does from its parent, just
+ * those boxes are taken out and matched again, one O(n^2) search each, instead of
+ * matching all n boxes again in O(n^3). A position that differs in more than half
+ * its boxes is matched from scratch.
+ *
+ * The push distances are worked out once per level and kept while the same level is
+ * being solved. An instance is not thread safe.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class MatchingLowerBound implements Heuristic {
+	/**
+	 * Prepare for a level, working out its push distances (unless they are already known)
+	 *
+	 * @param level the level to be solved
+	 */
+	@Override
+	public void init(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		if ((distances == null) || (distances.getLevel() != level))
+			distances = new PushDistances(level);
+		base  = new Matching(distances);
+		trial = new Matching(distances);
+		rowAt = new int[level.getNumCells()];
+	}
+
+	/**
+	 * Estimate the pushes still needed
+	 *
+	 * @param boxes the box cell indices, in increasing order
+	 * @return the cost of the cheapest matching of boxes to targets
+	 */
+	@Override
+	public int estimate(int[] boxes) {
+		sync(boxes);
+		return bound(base.cost());
+	}
+
+	/**
+	 * Estimate the pushes still needed after one box has been pushed, by repairing
+	 * the parent's matching for the one box that moved
+	 *
+	 * @param parent the box cell indices before the push, in increasing order
+	 * @param i the position in parent of the box that was pushed
+	 * @param dest the cell the box was pushed to
+	 * @param boxes the box cell indices after the push, in increasing order
+	 * @return the cost of the cheapest matching of boxes to targets
+	 */
+	@Override
+	public int estimate(int[] parent, int i, int dest, int[] boxes) {
+		sync(parent);
+		trial.copyFrom(base);
+		trial.reassign(rowAt[parent[i]], dest);
+		return bound(trial.cost());
+	}
+
+	/**
+	 * Bring the kept matching up to date for a position, repairing it if the position
+	 * differs from it in at most half the boxes, and matching from scratch otherwise
+	 * (when the position is the same, this only checks that it is)
+	 *
+	 * @param boxes the box cell indices
+	 */
+	private void sync(int[] boxes) {
+		if (base == null)
+			throw new IllegalStateException("init has not been called");
+		int n = boxes.length;
+		if (base.numRows() == n) {
+			// the boxes that are new, and the rows of the kept matching they replace
+			if ((added == null) || (added.length < n)) {
+				added = new int[n];
+				kept  = new boolean[n + 1];
+			}
+			int numAdded = 0;
+			Arrays.fill(kept, false);
+			for (int box : boxes) {
+				if (rowAt[box] != 0)
+					kept[rowAt[box]] = true;
+				else
+					added[numAdded++] = box;
+			}
+			if (2 * numAdded <= n) {
+				int k = 0;
+				for (int row=1; (row<=n) && (k<numAdded); row++) {
+					if (kept[row])
+						continue;
+					rowAt[base.cell(row)] = 0;
+					base.reassign(row, added[k]);
+					rowAt[added[k++]] = row;
+				}
+				return;
+			}
+		}
+		for (int row=1; row<=base.numRows(); row++)
+			rowAt[base.cell(row)] = 0;
+		base.solve(boxes);
+		for (int row=1; row<=n; row++)
+			rowAt[boxes[row-1]] = row;
+	}
+
+	/**
+	 * Turn a matching cost into an estimate
+	 *
+	 * @param cost the matching cost
+	 * @return the estimate (Integer.MAX_VALUE if some box could not reach its target)
+	 */
+	private static int bound(long cost) {
+		return (cost >= PushDistances.UNREACHABLE) ? Integer.MAX_VALUE : (int) cost;
+	}
+
+	/**
+	 * A matching of boxes (rows, numbered from 1) to targets (columns, numbered from 1),
+	 * with the Hungarian algorithm's potentials. Row and column 0 are the algorithm's
+	 * working slot. Potentials are longs, as repairs can keep moving them one way.
+	 */
+	private static final class Matching {
+		/**
+		 * Constructor
+		 *
+		 * @param distances the push distances, which give the cost of each box and target
+		 */
+		Matching(PushDistances distances) {
+			int m = distances.numTargets();
+			this.distances = distances;
+			this.colRow    = new int[m + 1];
+			this.v         = new long[m + 1];
+			this.minv      = new long[m + 1];
+			this.way       = new int[m + 1];
+			this.used      = new boolean[m + 1];
+			this.cells     = new int[1];
+			this.u         = new long[1];
+		}
+
+		/**
+		 * Match a set of boxes from scratch
+		 *
+		 * @param boxes the box cell indices
+		 */
+		void solve(int[] boxes) {
+			int n = boxes.length;
+			if (n != colRow.length - 1)
+				throw new IllegalArgumentException("number of boxes and targets must be equal");
+			if (cells.length != n + 1) {
+				cells = new int[n + 1];
+				u     = new long[n + 1];
+			}
+			System.arraycopy(boxes, 0, cells, 1, n);
+			Arrays.fill(u, 0);
+			Arrays.fill(v, 0);
+			Arrays.fill(colRow, 0);
+			for (int row=1; row<=n; row++)
+				insert(row);
+		}
+
+		/**
+		 * Make this matching a copy of another
+		 *
+		 * @param other the matching to copy
+		 */
+		void copyFrom(Matching other) {
+			if (cells.length != other.cells.length) {
+				cells = new int[other.cells.length];
+				u     = new long[other.u.length];
+			}
+			System.arraycopy(other.cells, 0, cells, 0, cells.length);
+			System.arraycopy(other.u, 0, u, 0, u.length);
+			System.arraycopy(other.v, 0, v, 0, v.length);
+			System.arraycopy(other.colRow, 0, colRow, 0, colRow.length);
+		}
+
+		/**
+		 * Gets the number of rows (boxes) matched
+		 *
+		 * @return the number of rows
+		 */
+		int numRows() {
+			return cells.length - 1;
+		}
+
+		/**
+		 * Gets the cell of a row's box
+		 *
+		 * @param row the row (from 1)
+		 * @return the box cell index
+		 */
+		int cell(int row) {
+			return cells[row];
+		}
+
+		/**
+		 * Move a row's box to another cell and match it again
+		 *
+		 * @param row the row (from 1)
+		 * @param cell the box's new cell index
+		 */
+		void reassign(int row, int cell) {
+			int m = colRow.length - 1;
+			for (int j=1; j<=m; j++) {
+				if (colRow[j] == row) {
+					colRow[j] = 0;
+					break;
+				}
+			}
+			cells[row] = cell;
+			// lower the row's potential so that none of its new costs is below it
+			long low = Long.MAX_VALUE;
+			for (int j=1; j<=m; j++)
+				low = Math.min(low, distances.get(cell, j-1) - v[j]);
+			u[row] = low;
+			insert(row);
+		}
+
+		/**
+		 * Add an unmatched row to the matching along a cheapest augmenting path
+		 * (one phase of the Hungarian algorithm)
+		 *
+		 * @param row the row (from 1)
+		 */
+		private void insert(int row) {
+			int m  = colRow.length - 1;
+			int j0 = 0;
+			colRow[0] = row;
+			Arrays.fill(minv, Long.MAX_VALUE);
+			Arrays.fill(used, false);
+			do {
+				used[j0] = true;
+				int  i0    = colRow[j0];
+				int  cell  = cells[i0];
+				long delta = Long.MAX_VALUE;
+				int  j1    = 0;
+				for (int j=1; j<=m; j++) {
+					if (used[j])
+						continue;
+					long cur = distances.get(cell, j-1) - u[i0] - v[j];
+					if (cur < minv[j]) {
+						minv[j] = cur;
+						way[j]  = j0;
+					}
+					if (minv[j] < delta) {
+						delta = minv[j];
+						j1    = j;
+					}
+				}
+				for (int j=0; j<=m; j++) {
+					if (used[j]) {
+						u[colRow[j]] += delta;
+						v[j]         -= delta;
+					} else
+						minv[j] -= delta;
+				}
+				j0 = j1;
+			} while (colRow[j0] != 0);
+			do {
+				int j1 = way[j0];
+				colRow[j0] = colRow[j1];
+				j0 = j1;
+			} while (j0 != 0);
+		}
+
+		/**
+		 * Gets the total cost of the matching
+		 *
+		 * @return the sum of the push distances of the matched boxes and targets
+		 */
+		long cost() {
+			long sum = 0;
+			int  m   = colRow.length - 1;
+			for (int j=1; j<=m; j++)
+				if (colRow[j] != 0)
+					sum += distances.get(cells[colRow[j]], j-1);
+			return sum;
+		}
+
+		private final PushDistances distances;
+		private final int[]     colRow;  // the row matched to each column (0 if none)
+		private final long[]    v;       // column potentials
+		private final long[]    minv;    // scratch: cheapest reduced cost to each column
+		private final int[]     way;     // scratch: previous column on the augmenting path
+		private final boolean[] used;    // scratch: columns on the search tree
+		private int[]           cells;   // the box cell of each row
+		private long[]          u;       // row potentials
+	}
+
+	private PushDistances distances = null;
+	private Matching      base      = null;  // the matching kept for the last position
+	private Matching      trial     = null;  // scratch: the base matching with one box moved
+	private int[]         rowAt     = null;  // by cell: the row of base holding a box there (0 if none)
+	private int[]         added     = null;  // scratch: boxes not in base
+	private boolean[]     kept      = null;  // scratch: rows of base still in the position
+}
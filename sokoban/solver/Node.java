@@ -0,0 +1,82 @@
+package sokoban.solver;
+
+import java.util.*;
+
+/**
+ * A search node: a push-level position (the boxes and the actor's region) together
+ * with the push that reached it from its parent (which may be the first of a macro
+ * move: a run of pushes of the same box, see {@link Macros}).
+ * Two nodes are equal if they have the same boxes and normalised actor position;
+ * the Zobrist key of the position is carried along (updated from the parent's by
+ * two exclusive-ors) so hashing a node costs nothing and almost every unequal pair
+ * is told apart without looking at the boxes.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+final class Node {
+	/**
+	 * Constructor
+	 *
+	 * @param boxes the box cell indices, in increasing order (taken over, not copied)
+	 * @param actor the actor cell index
+	 * @param norm the normalised actor position (smallest reachable cell index)
+	 * @param parent the parent node (null for the start)
+	 * @param pushFrom the cell the pushed box came from (-1 for the start)
+	 * @param dir the direction ordinal of the push (-1 for the start)
+	 * @param macro the direction ordinals of the pushes of the same box that follow it (null if none)
+	 * @param g the number of pushes from the start
+	 * @param h the estimated pushes still needed
+	 * @param boxHash the Zobrist hash of the boxes
+	 * @param key the Zobrist hash of the boxes and normalised actor position
+	 */
+	Node(int[] boxes, int actor, int norm, Node parent, int pushFrom, int dir, byte[] macro, int g, int h, long boxHash, long key) {
+		this.boxes    = boxes;
+		this.actor    = actor;
+		this.norm     = norm;
+		this.parent   = parent;
+		this.pushFrom = pushFrom;
+		this.dir      = (byte) dir;
+		this.macro    = macro;
+		this.g        = g;
+		this.h        = h;
+		this.boxHash  = boxHash;
+		this.key      = key;
+	}
+
+	/**
+	 * Test for equality with another node, considering boxes and normalised actor only
+	 *
+	 * @param obj the other node
+	 * @return do the two nodes represent the same position?
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj == null) || !(obj instanceof Node))
+			return false;
+		Node other = (Node) obj;
+		return (key == other.key) && (norm == other.norm) && Arrays.equals(boxes, other.boxes);
+	}
+
+	/**
+	 * Hash code consistent with equals
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (key ^ (key >>> 32));
+	}
+
+	final int[]  boxes;
+	final int    actor;
+	final int    norm;
+	final Node   parent;
+	final int    pushFrom;
+	final byte   dir;
+	final byte[] macro;
+	final int    g;
+	final int    h;
+	final long   boxHash;
+	final long   key;
+}
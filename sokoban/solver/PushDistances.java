@@ -0,0 +1,204 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+
+/**
+ * The number of pushes needed to get a box from each cell to each target when it
+ * is the only box on the level. Unlike a plain distance, this takes the actor into
+ * account: a push needs the actor behind the box, and the actor can only get round
+ * the box if the walls leave it a way. So a box in a one-wide corridor can only be
+ * pushed on in the direction it is already going.
+ *
+ * The table is built by pulling a box backwards from each target, over states made
+ * of the box cell and the side of the box the actor is on, where two sides count as
+ * the same if the actor can walk from one to the other round the box. The distance
+ * from a cell is the smallest over the sides the actor might be on, so it is a lower
+ * bound whatever the actor's position.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+final class PushDistances {
+	/**
+	 * Constructor: work out the distances for a level
+	 *
+	 * @param level the level (cannot be null)
+	 */
+	PushDistances(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		int numCells = level.getNumCells();
+		this.level    = level;
+		this.numCells = numCells;
+		this.next     = new int[numCells * 4];
+		for (int idx=0; idx<numCells; idx++)
+			for (Direction dir : DIRECTIONS)
+				next[idx * 4 + dir.ordinal()] = level.step(idx, dir);
+
+		int num = 0;
+		for (int idx=0; idx<numCells; idx++)
+			if (level.isTarget(idx) && !level.isWall(idx))
+				num++;
+		this.targets = new int[num];
+		num = 0;
+		for (int idx=0; idx<numCells; idx++)
+			if (level.isTarget(idx) && !level.isWall(idx))
+				targets[num++] = idx;
+
+		this.dist = new int[numCells * targets.length];
+		Arrays.fill(dist, UNREACHABLE);
+		byte[] sides = connectedSides();
+		int[]  pulls = new int[numCells * 4];
+		int[]  queue = new int[numCells * 4];
+		for (int j=0; j<targets.length; j++)
+			pullFrom(j, sides, pulls, queue);
+	}
+
+	/**
+	 * Gets the level the distances are for
+	 *
+	 * @return the level
+	 */
+	Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the number of targets
+	 *
+	 * @return the number of targets
+	 */
+	int numTargets() {
+		return targets.length;
+	}
+
+	/**
+	 * Gets the cell of a target
+	 *
+	 * @param j the target number (0 to numTargets()-1)
+	 * @return the target cell index
+	 */
+	int target(int j) {
+		return targets[j];
+	}
+
+	/**
+	 * Gets the pushes needed to get a lone box from a cell to a target
+	 *
+	 * @param cell the box cell index
+	 * @param j the target number (0 to numTargets()-1)
+	 * @return the number of pushes (UNREACHABLE if the box can never get there)
+	 */
+	int get(int cell, int j) {
+		return dist[cell * targets.length + j];
+	}
+
+	/**
+	 * Work out, for every cell a box might be on, which sides of the box the actor can
+	 * walk between without pushing it
+	 *
+	 * @return for each cell and side (cell * 4 + direction ordinal), a bitmask of the
+	 * sides reachable from that side (0 if the actor cannot stand there)
+	 */
+	private byte[] connectedSides() {
+		byte[] sides = new byte[numCells * 4];
+		int[]  stamp = new int[numCells];
+		int[]  queue = new int[numCells];
+		int    epoch = 0;
+		for (int box=0; box<numCells; box++) {
+			if (level.isWall(box))
+				continue;
+			for (int s=0; s<4; s++) {
+				int start = next[box * 4 + s];
+				if ((start < 0) || level.isWall(start) || (sides[box * 4 + s] != 0))
+					continue;
+				// walk round the box from this side and see which other sides are reached
+				epoch++;
+				int head = 0;
+				int tail = 0;
+				stamp[start]  = epoch;
+				queue[tail++] = start;
+				while (head < tail) {
+					int idx = queue[head++];
+					for (int d=0; d<4; d++) {
+						int to = next[idx * 4 + d];
+						if ((to < 0) || (to == box) || (stamp[to] == epoch) || level.isWall(to))
+							continue;
+						stamp[to]     = epoch;
+						queue[tail++] = to;
+					}
+				}
+				int mask = 0;
+				for (int t=0; t<4; t++) {
+					int side = next[box * 4 + t];
+					if ((side >= 0) && (stamp[side] == epoch))
+						mask |= 1 << t;
+				}
+				for (int t=0; t<4; t++)
+					if ((mask & (1 << t)) != 0)
+						sides[box * 4 + t] = (byte) mask;
+			}
+		}
+		return sides;
+	}
+
+	/**
+	 * Pull a box backwards from a target, filling in that target's distances
+	 *
+	 * @param j the target number
+	 * @param sides the connected sides of each cell (from connectedSides())
+	 * @param pulls scratch: pulls to each box cell and actor side
+	 * @param queue scratch: the states waiting to be pulled from
+	 */
+	private void pullFrom(int j, byte[] sides, int[] pulls, int[] queue) {
+		int goal = targets[j];
+		int head = 0;
+		int tail = 0;
+		Arrays.fill(pulls, UNREACHABLE);
+		for (int s=0; s<4; s++) {
+			if (sides[goal * 4 + s] != 0) {
+				pulls[goal * 4 + s] = 0;
+				queue[tail++]       = goal * 4 + s;
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int box   = state >>> 2;
+			int side  = state & 3;
+			// the box was pushed here from the cell the actor is on, by an actor one step further on
+			int from  = next[box * 4 + side];
+			int actor = next[from * 4 + side];
+			if ((actor < 0) || level.isWall(actor))
+				continue;
+			int mask = sides[from * 4 + side];
+			for (int t=0; t<4; t++) {
+				int prev = from * 4 + t;
+				if (((mask & (1 << t)) == 0) || (pulls[prev] != UNREACHABLE))
+					continue;
+				pulls[prev]   = pulls[state] + 1;
+				queue[tail++] = prev;
+			}
+		}
+		dist[goal * targets.length + j] = 0;
+		for (int idx=0; idx<numCells; idx++) {
+			int best = dist[idx * targets.length + j];
+			for (int s=0; s<4; s++)
+				best = Math.min(best, pulls[idx * 4 + s]);
+			dist[idx * targets.length + j] = best;
+		}
+	}
+
+	/** The distance given when a box can never reach a target (larger than any real distance) */
+	static final int UNREACHABLE = 1 << 20;
+
+	private final Level  level;
+	private final int    numCells;
+	private final int[]  next;
+	private final int[]  targets;
+	private final int[]  dist;   // by cell * numTargets + target number
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
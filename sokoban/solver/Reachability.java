@@ -0,0 +1,150 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+
+/**
+ * Works out which cells the actor can walk to without pushing any box.
+ * The reachable region is summarised by its smallest cell index, which is used
+ * to normalise search states: two positions with the same boxes and the actor
+ * anywhere in the same region are the same state for a push-level search.
+ * The scratch arrays are allocated once per level and reused; an instance is not
+ * thread safe.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+final class Reachability {
+	/**
+	 * Constructor
+	 *
+	 * @param level the level to explore (cannot be null)
+	 */
+	Reachability(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		int numCells = level.getNumCells();
+		this.level   = level;
+		this.stamp   = new int[numCells];
+		this.queue   = new int[numCells];
+		this.from    = new byte[numCells];
+		this.next    = new int[numCells * 4];
+		for (int idx=0; idx<numCells; idx++)
+			for (Direction dir : DIRECTIONS)
+				next[idx * 4 + dir.ordinal()] = level.step(idx, dir);
+	}
+
+	/**
+	 * Flood fill from the actor cell, treating walls and boxes as blocked
+	 *
+	 * @param boxAt which cells hold boxes
+	 * @param start the actor cell index
+	 * @return the smallest reachable cell index (the normalised actor position)
+	 */
+	int compute(boolean[] boxAt, int start) {
+		nextEpoch();
+		int head = 0;
+		int tail = 0;
+		int min  = start;
+		stamp[start]  = epoch;
+		queue[tail++] = start;
+		while (head < tail) {
+			int idx = queue[head++];
+			if (idx < min)
+				min = idx;
+			for (int d=0; d<4; d++) {
+				int to = next[idx * 4 + d];
+				if ((to < 0) || (stamp[to] == epoch) || level.isWall(to) || boxAt[to])
+					continue;
+				stamp[to]     = epoch;
+				from[to]      = (byte) d;
+				queue[tail++] = to;
+			}
+		}
+		size = tail;
+		return min;
+	}
+
+	/**
+	 * Was a cell reached by the last flood fill?
+	 *
+	 * @param idx the cell index
+	 * @return was the cell reached?
+	 */
+	boolean isReachable(int idx) {
+		return (idx >= 0) && (stamp[idx] == epoch);
+	}
+
+	/**
+	 * Gets the number of cells reached by the last flood fill
+	 *
+	 * @return the number of cells reached
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a cell reached by the last flood fill, in the order they were reached
+	 *
+	 * @param i the position in the fill order (0 to size()-1)
+	 * @return the cell index
+	 */
+	int get(int i) {
+		return queue[i];
+	}
+
+	/**
+	 * Gets the neighbouring cell index in a direction (precomputed)
+	 *
+	 * @param idx the cell index
+	 * @param dir the direction ordinal
+	 * @return the neighbouring cell index (or -1 if off the grid)
+	 */
+	int step(int idx, int dir) {
+		return next[idx * 4 + dir];
+	}
+
+	/**
+	 * Find a shortest walk for the actor between two cells without pushing any box
+	 *
+	 * @param boxAt which cells hold boxes
+	 * @param start the cell the actor starts in
+	 * @param goal the cell the actor should reach
+	 * @return the moves to make (null if the goal cannot be reached)
+	 */
+	List<Direction> path(boolean[] boxAt, int start, int goal) {
+		compute(boxAt, start);
+		if (!isReachable(goal))
+			return null;
+		LinkedList<Direction> moves = new LinkedList<Direction>();
+		for (int idx=goal; idx!=start; ) {
+			Direction dir = DIRECTIONS[from[idx]];
+			moves.addFirst(dir);
+			idx = level.step(idx, dir.reverse());
+		}
+		return moves;
+	}
+
+	/**
+	 * Start a new flood fill, resetting the stamps if the epoch wraps
+	 */
+	private void nextEpoch() {
+		if (++epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+	}
+
+	private final Level  level;
+	private final int[]  stamp;
+	private final int[]  queue;
+	private final byte[] from;
+	private final int[]  next;
+	private int          epoch = 0;
+	private int          size  = 0;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+}
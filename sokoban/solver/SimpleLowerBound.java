@@ -0,0 +1,70 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+
+/**
+ * The sum over the boxes of the number of pushes to the nearest target,
+ * ignoring the other boxes. Cheap and admissible, but weak when several boxes
+ * share the same nearest target.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class SimpleLowerBound implements Heuristic {
+	/**
+	 * Prepare for a level by pulling a box backwards from every target at once,
+	 * which gives each cell's push distance to its nearest target
+	 *
+	 * @param level the level to be solved
+	 */
+	@Override
+	public void init(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("level cannot be null");
+		int   numCells = level.getNumCells();
+		int[] queue    = new int[numCells];
+		int   head     = 0;
+		int   tail     = 0;
+		nearest = new int[numCells];
+		Arrays.fill(nearest, Integer.MAX_VALUE);
+		for (int idx=0; idx<numCells; idx++) {
+			if (level.isTarget(idx)) {
+				nearest[idx]  = 0;
+				queue[tail++] = idx;
+			}
+		}
+		while (head < tail) {
+			int box = queue[head++];
+			for (Direction dir : Direction.values()) {
+				int to    = level.step(box, dir);
+				int actor = (to < 0) ? -1 : level.step(to, dir);
+				if ((actor < 0) || level.isWall(to) || level.isWall(actor) || (nearest[to] != Integer.MAX_VALUE))
+					continue;
+				nearest[to]   = nearest[box] + 1;
+				queue[tail++] = to;
+			}
+		}
+	}
+
+	/**
+	 * Estimate the pushes still needed
+	 *
+	 * @param boxes the box cell indices, in increasing order
+	 * @return the sum of the push distances from each box to its nearest target
+	 */
+	@Override
+	public int estimate(int[] boxes) {
+		int sum = 0;
+		for (int box : boxes) {
+			if (nearest[box] == Integer.MAX_VALUE)
+				return Integer.MAX_VALUE;
+			sum += nearest[box];
+		}
+		return sum;
+	}
+
+	private int[] nearest = null;
+}
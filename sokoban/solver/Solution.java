@@ -0,0 +1,157 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+
+/**
+ * The outcome of a solver run: the moves found (if any) and some search statistics.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class Solution {
+	/**
+	 * How a solver run ended
+	 */
+	public enum Status {
+		SOLVED, UNSOLVABLE, TIME_LIMIT, MEMORY_LIMIT
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param status how the run ended (cannot be null)
+	 * @param moves the actor moves that solve the puzzle (null unless solved)
+	 * @param pushes the number of box pushes in the moves
+	 * @param nodesExpanded the number of search nodes expanded
+	 * @param nodesStored the peak number of search nodes held
+	 * @param peakMemory the estimated peak memory held by the search (bytes)
+	 * @param elapsedMillis the wall time taken (milliseconds)
+	 */
+	Solution(Status status, List<Direction> moves, int pushes, long nodesExpanded,
+			long nodesStored, long peakMemory, long elapsedMillis) {
+		if (status == null)
+			throw new IllegalArgumentException("status cannot be null");
+		this.status        = status;
+		this.moves         = (moves == null) ? null : Collections.unmodifiableList(moves);
+		this.pushes        = pushes;
+		this.nodesExpanded = nodesExpanded;
+		this.nodesStored   = nodesStored;
+		this.peakMemory    = peakMemory;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Was a solution found?
+	 *
+	 * @return was a solution found?
+	 */
+	public boolean isSolved() {
+		return status == Status.SOLVED;
+	}
+
+	/**
+	 * Gets how the run ended
+	 *
+	 * @return how the run ended
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the actor moves that solve the puzzle
+	 *
+	 * @return the moves (null unless solved)
+	 */
+	public List<Direction> getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Gets the number of actor moves
+	 *
+	 * @return the number of moves (0 unless solved)
+	 */
+	public int getNumMoves() {
+		return (moves == null) ? 0 : moves.size();
+	}
+
+	/**
+	 * Gets the number of box pushes
+	 *
+	 * @return the number of pushes (0 unless solved)
+	 */
+	public int getNumPushes() {
+		return pushes;
+	}
+
+	/**
+	 * Gets the number of search nodes expanded
+	 *
+	 * @return the number of nodes expanded
+	 */
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Gets the peak number of search nodes held
+	 *
+	 * @return the peak number of nodes held
+	 */
+	public long getNodesStored() {
+		return nodesStored;
+	}
+
+	/**
+	 * Gets the estimated peak memory held by the search
+	 *
+	 * @return the estimated peak memory (bytes)
+	 */
+	public long getPeakMemory() {
+		return peakMemory;
+	}
+
+	/**
+	 * Gets the wall time taken
+	 *
+	 * @return the wall time (milliseconds)
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * The moves as a string of compass letters (N, S, E, W)
+	 *
+	 * @return the moves as a string (empty unless solved)
+	 */
+	public String movesAsString() {
+		StringBuffer b = new StringBuffer();
+		if (moves != null)
+			for (Direction dir : moves)
+				b.append(dir.toString().charAt(0));
+		return b.toString();
+	}
+
+	/**
+	 * A String representation of the Solution
+	 *
+	 * @return the String representation
+	 */
+	@Override
+	public String toString() {
+		return status + " moves=" + getNumMoves() + " pushes=" + pushes + " expanded=" + nodesExpanded
+			+ " stored=" + nodesStored + " time=" + elapsedMillis + "ms";
+	}
+
+	private final Status          status;
+	private final List<Direction> moves;
+	private final int             pushes;
+	private final long            nodesExpanded;
+	private final long            nodesStored;
+	private final long            peakMemory;
+	private final long            elapsedMillis;
+}
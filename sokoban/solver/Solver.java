@@ -0,0 +1,447 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+import sokoban.Sokoban;
+import sokoban.Zobrist;
+
+/**
+ * An A* solver for Sokoban puzzles that searches over box pushes.
+ * Each search state is the set of box cells plus the region the actor can walk to,
+ * normalised to the smallest cell index in that region; the walking in between
+ * pushes is only worked out when the solution is turned back into moves.
+ * States are keyed by their Zobrist hash, which each push updates incrementally.
+ * Pushes are only made if the puzzle itself would allow them, so every solution
+ * can be played straight back through {@link Sokoban#move(Direction)}. If the
+ * puzzle has a pattern database, pushes into deadlocked groups are never made and
+ * the push costs of groups raise the heuristic's estimate where they are higher.
+ * Positions with a PI-corral (see {@link Corrals}) are dropped if the corral is a
+ * deadlock, and otherwise only the pushes into the corral are tried. A push into a
+ * tunnel or onto the entrance of a goal room is carried on as a macro move (see
+ * {@link Macros}) that counts as one step of the search but as all of its pushes.
+ *
+ * The search is bounded by a time limit and an (estimated) memory limit, and the
+ * heuristic can be weighted to trade solution length for speed.
+ * A solver holds no state between runs, so one instance can be reused,
+ * but a single instance should not be shared between threads.
+ *
+ * Scope: the solver gives complete move sequences for the smaller bundled screens
+ * and stops with TIME_LIMIT or MEMORY_LIMIT on the others, rather than solving all
+ * 90. On one processor with a 10 s limit (BatchSolve, October 2026) plain A* solves
+ * screens 1, 2, 6, 17, 38, 78 and 83, and weight 3 solves 1, 78 and 83; within the
+ * computer player's 5 s and 64 MB (see {@link SolverPlayer}) all of those but 17 are
+ * solved, and the player moves at random on the rest.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class Solver {
+	/**
+	 * Default constructor
+	 */
+	public Solver() {
+		heuristic = new MatchingLowerBound();
+	}
+
+	/**
+	 * Changes the time limit for a run
+	 *
+	 * @param millis the time limit in milliseconds (0 for no limit)
+	 */
+	public void setTimeLimit(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("time limit cannot be negative");
+		timeLimit = millis;
+	}
+
+	/**
+	 * Gets the time limit for a run
+	 *
+	 * @return the time limit in milliseconds (0 for no limit)
+	 */
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * Changes the memory limit for a run.  The memory held by the search is
+	 * estimated from the number of stored nodes, so runs on different threads
+	 * each keep to their own budget.
+	 *
+	 * @param bytes the memory limit in bytes (0 for no limit)
+	 */
+	public void setMemoryLimit(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("memory limit cannot be negative");
+		memoryLimit = bytes;
+	}
+
+	/**
+	 * Gets the memory limit for a run
+	 *
+	 * @return the memory limit in bytes (0 for no limit)
+	 */
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	/**
+	 * Changes the weight given to the heuristic.  A weight of 1 gives plain A*, which
+	 * finds solutions with the fewest pushes (for an admissible heuristic); larger
+	 * weights make the search greedier, usually finding longer solutions much faster.
+	 *
+	 * @param weight the heuristic weight (at least 1)
+	 */
+	public void setWeight(int weight) {
+		if (weight < 1)
+			throw new IllegalArgumentException("weight must be at least 1");
+		this.weight = weight;
+	}
+
+	/**
+	 * Gets the weight given to the heuristic
+	 *
+	 * @return the heuristic weight
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Changes the heuristic used to guide the search
+	 *
+	 * @param heuristic the heuristic (cannot be null)
+	 */
+	public void setHeuristic(Heuristic heuristic) {
+		if (heuristic == null)
+			throw new IllegalArgumentException("heuristic cannot be null");
+		this.heuristic = heuristic;
+	}
+
+	/**
+	 * Gets the heuristic used to guide the search
+	 *
+	 * @return the heuristic
+	 */
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * Solve a puzzle from its current position.  The puzzle is not changed.
+	 *
+	 * @param puzzle the puzzle to solve (cannot be null)
+	 * @return the outcome of the run
+	 */
+	public Solution solve(Sokoban puzzle) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		long started = System.nanoTime();
+		long expanded = 0;
+
+		level    = puzzle.getLevel();
+		guard    = new Sokoban(puzzle.toString());
+		guard.setPatternDatabase(puzzle.getPatternDatabase());
+		reach    = new Reachability(level);
+		scratch  = new Reachability(level);
+		corrals  = new Corrals(level);
+		boxAt    = new boolean[level.getNumCells()];
+		zobrist  = level.getZobrist();
+		heuristic.init(level);
+
+		int[] boxes    = puzzle.getBoxIndices();
+		int   actor    = puzzle.getActorIndex();
+		macros = new Macros(level, actor);
+		long  maxNodes = (memoryLimit == 0) ? Long.MAX_VALUE : Math.max(1, memoryLimit / nodeBytes(boxes.length));
+		long  peak     = 0;
+
+		int h = heuristic.estimate(boxes);
+		if (h == Integer.MAX_VALUE)
+			return finish(Solution.Status.UNSOLVABLE, null, expanded, peak, boxes.length, started);
+		long boxHash = 0;
+		for (int box : boxes)
+			boxHash ^= zobrist.boxKey(box);
+		int  norm = normalise(boxes, actor);
+		Node root = new Node(boxes, actor, norm, null, -1, -1, null, 0, h, boxHash, boxHash ^ zobrist.actorKey(norm));
+
+		PriorityQueue<Node> open = new PriorityQueue<Node>(order(weight));
+		HashMap<Node,Node>  seen = new HashMap<Node,Node>();
+		open.add(root);
+		seen.put(root, root);
+		while (!open.isEmpty()) {
+			if (((expanded & 255) == 0) && (timeLimit > 0) && (System.nanoTime() - started > timeLimit * 1000000L))
+				return finish(Solution.Status.TIME_LIMIT, null, expanded, peak, boxes.length, started);
+			Node node = open.poll();
+			if (seen.get(node) != node)
+				continue; // superseded by a cheaper route to the same state
+			if (isSolved(node.boxes))
+				return finish(Solution.Status.SOLVED, node, expanded, peak, boxes.length, started);
+			expanded++;
+			expand(node, open, seen);
+			peak = Math.max(peak, seen.size());
+			if (seen.size() > maxNodes)
+				return finish(Solution.Status.MEMORY_LIMIT, null, expanded, peak, boxes.length, started);
+		}
+		return finish(Solution.Status.UNSOLVABLE, null, expanded, peak, boxes.length, started);
+	}
+
+	/**
+	 * Generate every push the actor can make from a node, adding new or cheaper states
+	 *
+	 * @param node the node to expand
+	 * @param open the nodes waiting to be expanded
+	 * @param seen the best node found so far for each state
+	 */
+	private void expand(Node node, PriorityQueue<Node> open, HashMap<Node,Node> seen) {
+		int[] boxes = node.boxes;
+		for (int box : boxes)
+			boxAt[box] = true;
+		reach.compute(boxAt, node.actor);
+		guard.setPosition(boxes, node.actor);
+		int corral = corrals.analyse(boxes, node.actor, boxAt, reach, guard);
+		for (int i=0; (i<boxes.length) && (corral != Corrals.DEADLOCK); i++) {
+			int box = boxes[i];
+			for (int d=0; d<4; d++) {
+				int behind = reach.step(box, REVERSE[d]);
+				int dest   = reach.step(box, d);
+				if (!reach.isReachable(behind) || (dest < 0) || level.isWall(dest) || boxAt[dest] || level.isDead(dest))
+					continue;
+				if ((corral == Corrals.RESTRICT) && !corrals.isInCorral(dest))
+					continue;
+				if (!guard.canPush(box, DIRECTIONS[d]))
+					continue;
+				byte[] macro = macros.follow(boxes, boxAt, box, d, scratch);
+				int    last  = (macro == null) ? -1 : playMacro(node, i, dest, macro);
+				int    actor = box;
+				if (last < 0) {
+					macro = null;
+					last  = dest;
+				} else
+					actor = reach.step(last, REVERSE[macro[macro.length-1]]);
+				int[] childBoxes = moveBox(boxes, i, last);
+				int   h          = heuristic.estimate(boxes, i, last, childBoxes);
+				if (h == Integer.MAX_VALUE)
+					continue;
+				if (macro == null)
+					h = Math.max(h, guard.patternCost(box, DIRECTIONS[d]));
+				boxAt[box]  = false;
+				boxAt[last] = true;
+				int norm = scratch.compute(boxAt, actor);
+				boxAt[last] = false;
+				boxAt[box]  = true;
+				int  g       = node.g + 1 + ((macro == null) ? 0 : macro.length);
+				long boxHash = node.boxHash ^ zobrist.boxKey(box) ^ zobrist.boxKey(last);
+				Node child   = new Node(childBoxes, actor, norm, node, box, d, macro, g, h, boxHash, boxHash ^ zobrist.actorKey(norm));
+				Node known = seen.get(child);
+				if ((known != null) && (known.g <= child.g))
+					continue;
+				seen.put(child, child);
+				open.add(child);
+			}
+		}
+		for (int box : boxes)
+			boxAt[box] = false;
+	}
+
+	/**
+	 * Check the pushes of a macro move after the first against the puzzle's rules
+	 *
+	 * @param node the node being expanded (the guard is left at its position)
+	 * @param i the position in the node's boxes of the box pushed
+	 * @param dest the cell the first push takes the box to
+	 * @param macro the direction ordinals of the pushes that follow
+	 * @return the cell the box ends on (-1 if the puzzle would refuse a push)
+	 */
+	private int playMacro(Node node, int i, int dest, byte[] macro) {
+		int[]   boxes   = moveBox(node.boxes, i, dest);
+		int     box     = dest;
+		int     actor   = node.boxes[i];
+		boolean allowed = true;
+		for (int k=0; (k<macro.length) && allowed; k++) {
+			guard.setPosition(boxes, actor);
+			allowed = guard.canPush(box, DIRECTIONS[macro[k]]);
+			int to  = reach.step(box, macro[k]);
+			boxes   = moveBox(boxes, Arrays.binarySearch(boxes, box), to);
+			actor   = box;
+			box     = to;
+		}
+		guard.setPosition(node.boxes, node.actor);
+		return allowed ? box : -1;
+	}
+
+	/**
+	 * Work out the normalised actor position for a set of boxes
+	 *
+	 * @param boxes the box cell indices
+	 * @param actor the actor cell index
+	 * @return the smallest cell index the actor can reach
+	 */
+	private int normalise(int[] boxes, int actor) {
+		for (int box : boxes)
+			boxAt[box] = true;
+		int norm = scratch.compute(boxAt, actor);
+		for (int box : boxes)
+			boxAt[box] = false;
+		return norm;
+	}
+
+	/**
+	 * Are all the boxes on targets?
+	 *
+	 * @param boxes the box cell indices
+	 * @return are all the boxes on targets?
+	 */
+	private boolean isSolved(int[] boxes) {
+		for (int box : boxes)
+			if (!level.isTarget(box))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Finish a run, turning the goal node (if any) back into actor moves
+	 *
+	 * @param status how the run ended
+	 * @param goal the goal node (null unless solved)
+	 * @param expanded the number of nodes expanded
+	 * @param peak the peak number of nodes stored
+	 * @param numBoxes the number of boxes
+	 * @param started when the run started (System.nanoTime)
+	 * @return the outcome of the run
+	 */
+	private Solution finish(Solution.Status status, Node goal, long expanded, long peak, int numBoxes, long started) {
+		List<Direction> moves  = null;
+		int             pushes = 0;
+		if (goal != null) {
+			moves  = toMoves(goal);
+			pushes = goal.g;
+		}
+		long elapsed = (System.nanoTime() - started) / 1000000L;
+		Solution solution = new Solution(status, moves, pushes, expanded, peak, peak * nodeBytes(numBoxes), elapsed);
+		level   = null;
+		guard   = null;
+		reach   = null;
+		scratch = null;
+		corrals = null;
+		macros  = null;
+		boxAt   = null;
+		zobrist = null;
+		return solution;
+	}
+
+	/**
+	 * Expand the chain of pushes (and macro moves) leading to a node into individual actor moves
+	 *
+	 * @param goal the last node of the chain
+	 * @return the actor moves from the start
+	 */
+	private List<Direction> toMoves(Node goal) {
+		LinkedList<Node> chain = new LinkedList<Node>();
+		for (Node node=goal; node.parent!=null; node=node.parent)
+			chain.addFirst(node);
+		ArrayList<Direction> moves = new ArrayList<Direction>();
+		for (Node node : chain) {
+			Node parent = node.parent;
+			for (int box : parent.boxes)
+				boxAt[box] = true;
+			int actor = parent.actor;
+			int box   = node.pushFrom;
+			int dir   = node.dir;
+			int num   = 1 + ((node.macro == null) ? 0 : node.macro.length);
+			for (int k=0; k<num; k++) {
+				if (k > 0)
+					dir = node.macro[k-1];
+				List<Direction> walk = reach.path(boxAt, actor, reach.step(box, REVERSE[dir]));
+				if (walk == null)
+					throw new IllegalStateException("push cannot be reached");
+				moves.addAll(walk);
+				moves.add(DIRECTIONS[dir]);
+				boxAt[box] = false;
+				actor      = box;
+				box        = reach.step(box, dir);
+				boxAt[box] = true;
+			}
+			for (int b : node.boxes)
+				boxAt[b] = false;
+		}
+		return moves;
+	}
+
+	/**
+	 * Copy a sorted box array with one box moved, keeping it sorted
+	 *
+	 * @param boxes the box cell indices, in increasing order
+	 * @param i the position of the box that moves
+	 * @param dest the cell the box moves to
+	 * @return the new box cell indices, in increasing order
+	 */
+	static int[] moveBox(int[] boxes, int i, int dest) {
+		int[] moved = boxes.clone();
+		while ((i > 0) && (moved[i-1] > dest)) {
+			moved[i] = moved[i-1];
+			i--;
+		}
+		while ((i < moved.length-1) && (moved[i+1] < dest)) {
+			moved[i] = moved[i+1];
+			i++;
+		}
+		moved[i] = dest;
+		return moved;
+	}
+
+	/**
+	 * The order in which nodes are expanded: lowest g + weight * h first,
+	 * then (on ties) the node nearer the goal
+	 *
+	 * @param weight the heuristic weight
+	 * @return the node order
+	 */
+	private static Comparator<Node> order(final int weight) {
+		return new Comparator<Node>() {
+			@Override
+			public int compare(Node a, Node b) {
+				long fa = a.g + (long) weight * a.h;
+				long fb = b.g + (long) weight * b.h;
+				if (fa != fb)
+					return (fa < fb) ? -1 : 1;
+				return Integer.compare(a.h, b.h);
+			}
+		};
+	}
+
+	/**
+	 * Rough estimate of the memory held per stored node: the node, its box array,
+	 * and its share of the hash map and priority queue
+	 *
+	 * @param numBoxes the number of boxes
+	 * @return the estimated bytes per stored node
+	 */
+	static long nodeBytes(int numBoxes) {
+		return NODE_OVERHEAD + 4L * numBoxes;
+	}
+
+	private long      timeLimit   = 60000;
+	private long      memoryLimit = 256L * 1024 * 1024;
+	private int       weight      = 1;
+	private Heuristic heuristic   = null;
+
+	// per-run scratch, released when the run finishes
+	private Level        level   = null;
+	private Sokoban      guard   = null;
+	private Reachability reach   = null;
+	private Reachability scratch = null;
+	private Corrals      corrals = null;
+	private Macros       macros  = null;
+	private boolean[]    boxAt   = null;
+	private Zobrist      zobrist = null;
+
+	private static final long        NODE_OVERHEAD = 120;
+	private static final Direction[] DIRECTIONS    = Direction.values();
+	private static final int[]       REVERSE       = new int[DIRECTIONS.length];
+	static {
+		for (Direction dir : DIRECTIONS)
+			REVERSE[dir.ordinal()] = dir.reverse().ordinal();
+	}
+}
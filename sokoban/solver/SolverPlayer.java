@@ -0,0 +1,206 @@
+package sokoban.solver;
+
+import java.util.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+import sokoban.Player;
+import sokoban.RandomPlayer;
+import sokoban.Sokoban;
+
+/**
+ * A computer player that follows a solver's plan for its puzzle.
+ * The plan is worked out on the first move and again whenever the puzzle is no longer
+ * where the plan expects (for instance after the user moves, undoes or restarts).
+ * If the solver gives up, the player falls back to random moves, and asks the solver again
+ * once someone else changes the position (an undo, a restart or a move by the user).
+ * <p>
+ * move plans on the caller's thread; the GUI instead calls plan on a background thread
+ * and usePlan once it is done, so the window stays responsive while the solver works.
+ * <p>
+ * The interactive solver (plain A*, 5 s and 64 MB unless given another time limit) is
+ * meant for the smaller screens: see the scope notes in the Solver class comment.
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class SolverPlayer implements Player {
+	/**
+	 * Constructor with a solver suited to interactive play (short time and memory limits)
+	 *
+	 * @param puzzle the puzzle being played (cannot be null)
+	 */
+	public SolverPlayer(Sokoban puzzle) {
+		this(puzzle, interactiveSolver(5000));
+	}
+
+	/**
+	 * Constructor with a solver suited to interactive play, given how long a plan may take
+	 * (for a caller that waits for the plan, such as the text UI)
+	 *
+	 * @param puzzle the puzzle being played (cannot be null)
+	 * @param millis the time limit for each plan in milliseconds (must be positive)
+	 */
+	public SolverPlayer(Sokoban puzzle, long millis) {
+		this(puzzle, interactiveSolver(millis));
+	}
+
+	/**
+	 * Constructor with a given solver
+	 *
+	 * @param puzzle the puzzle being played (cannot be null)
+	 * @param solver the solver to plan with (cannot be null)
+	 */
+	public SolverPlayer(Sokoban puzzle, Solver solver) {
+		if (puzzle == null)
+			throw new IllegalArgumentException("puzzle cannot be null");
+		if (solver == null)
+			throw new IllegalArgumentException("solver cannot be null");
+		this.puzzle   = puzzle;
+		this.solver   = solver;
+		this.fallback = new RandomPlayer();
+	}
+
+	/**
+	 * Play the next move of the plan, planning first if necessary
+	 *
+	 * @param choices possible directions for the player to choose from
+	 * @return the chosen direction
+	 */
+	@Override
+	public Direction move(Vector<Direction> choices) {
+		if (choices == null)
+			throw new IllegalArgumentException("cannot have null choices");
+		return move(Direction.toMask(choices));
+	}
+
+	/**
+	 * Play the next move of the plan, planning first if necessary
+	 *
+	 * @param choices bitmask of possible directions for the player to choose from
+	 * @return the chosen direction
+	 */
+	@Override
+	public Direction move(int choices) {
+		if (choices == 0)
+			throw new IllegalArgumentException("cannot have empty choices");
+		if (needsPlan())
+			replan();
+		Direction dir;
+		if (gaveUp || plan.isEmpty() || ((choices & plan.peekFirst().mask()) == 0)) {
+			plan.clear();
+			dir = fallback.move(choices);
+		} else
+			dir = plan.removeFirst();
+		expect(dir);
+		return dir;
+	}
+
+	/**
+	 * Gets the outcome of the last planning run
+	 *
+	 * @return the last solution (null if no plan has been made)
+	 */
+	public Solution getLastSolution() {
+		return lastSolution;
+	}
+
+	/**
+	 * Does the next move need a new plan (so that it will wait for the solver)?
+	 *
+	 * @return does the next move need a new plan?
+	 */
+	public boolean needsPlan() {
+		return !isWhereExpected() || (plan.isEmpty() && !gaveUp);
+	}
+
+	/**
+	 * Ask the solver for a plan from a given position, without following it yet.
+	 * This only reads the position and the solver, so a window can plan on a background
+	 * thread with a copy of its puzzle and hand the result to usePlan on its own thread.
+	 *
+	 * @param position the position to plan from (cannot be null)
+	 * @return the solver's outcome
+	 */
+	public Solution plan(Sokoban position) {
+		if (position == null)
+			throw new IllegalArgumentException("position cannot be null");
+		return solver.solve(position);
+	}
+
+	/**
+	 * Follow a plan worked out by plan (or make random moves from the position, if the
+	 * solver gave up). If the puzzle has moved on from the position planned from, the
+	 * next move plans again.
+	 *
+	 * @param solution the solver's outcome (cannot be null)
+	 * @param position the position it was planned from (cannot be null)
+	 */
+	public void usePlan(Solution solution, Sokoban position) {
+		if ((solution == null) || (position == null))
+			throw new IllegalArgumentException("solution and position cannot be null");
+		lastSolution  = solution;
+		gaveUp        = !solution.isSolved();
+		expectedActor = position.getActorIndex();
+		expectedBoxes = position.getBoxIndices();
+		plan.clear();
+		if (!gaveUp)
+			plan.addAll(solution.getMoves());
+	}
+
+	/**
+	 * Ask the solver for a new plan from the current position
+	 */
+	private void replan() {
+		usePlan(plan(puzzle), puzzle);
+	}
+
+	/**
+	 * Is the puzzle where the plan expects it to be?
+	 *
+	 * @return is the puzzle where the plan expects it to be?
+	 */
+	private boolean isWhereExpected() {
+		return (puzzle.getActorIndex() == expectedActor) && Arrays.equals(puzzle.getBoxIndices(), expectedBoxes);
+	}
+
+	/**
+	 * Work out where the puzzle will be once a move is made
+	 *
+	 * @param dir the move about to be made
+	 */
+	private void expect(Direction dir) {
+		Level level = puzzle.getLevel();
+		int[] boxes = puzzle.getBoxIndices();
+		int   next  = level.step(puzzle.getActorIndex(), dir);
+		int   i     = Arrays.binarySearch(boxes, next);
+		if (i >= 0)
+			boxes = Solver.moveBox(boxes, i, level.step(next, dir));
+		expectedActor = next;
+		expectedBoxes = boxes;
+	}
+
+	/**
+	 * A solver suited to interactive play
+	 *
+	 * @param millis the time limit in milliseconds (must be positive)
+	 * @return the solver
+	 */
+	private static Solver interactiveSolver(long millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("millis must be positive");
+		Solver solver = new Solver();
+		solver.setTimeLimit(millis);
+		solver.setMemoryLimit(64L * 1024 * 1024);
+		return solver;
+	}
+
+	private final Sokoban          puzzle;
+	private final Solver           solver;
+	private final Player           fallback;
+	private final Deque<Direction> plan          = new ArrayDeque<Direction>();
+	private Solution               lastSolution  = null;
+	private boolean                gaveUp        = false;
+	private int                    expectedActor = -1;
+	private int[]                  expectedBoxes = null;
+}
@@ -0,0 +1,52 @@
+package test;
+
+/**
+ * Small screens shared by the tests
+ *
+ * @author Dr Kelechi Berquist
+ * @version October 2026
+ */
+public class Screens {
+	Screens(){}
+
+	/** Two boxes, solved in three pushes */
+	public static final String SMALL = String.join(
+		"\n",
+		"#######",
+		"#     #",
+		"# $ . #",
+		"# @ $.#",
+		"#     #",
+		"#######"
+	);
+
+	/** Two boxes, one of them against a wall with no target along it */
+	public static final String UNSOLVABLE = String.join(
+		"\n",
+		"######",
+		"#.   #",
+		"#  $$#",
+		"#.  @#",
+		"######"
+	);
+
+	/** One box, solved by a single push east */
+	public static final String ONE_PUSH = String.join(
+		"\n",
+		"#####",
+		"#@$.#",
+		"#####"
+	);
+
+	/** Pushing the box at row 3, column 4 west closes a 2x2 square of boxes */
+	public static final String SQUARES = String.join(
+		"\n",
+		"########",
+		"#      #",
+		"# $$   #",
+		"# $ $@ #",
+		"#      #",
+		"# .... #",
+		"########"
+	);
+}
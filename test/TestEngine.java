@@ -0,0 +1,217 @@
+package test;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import sokoban.Cell;
+import sokoban.Direction;
+import sokoban.PlayoutEngine;
+import sokoban.PlayoutStats;
+import sokoban.RandomPlayer;
+import sokoban.Sokoban;
+
+public class TestEngine {
+	private String rootDir;
+
+	@Before
+	public void setUp(){
+		rootDir  =   System.getProperty("user.dir");
+	}
+
+	/**
+	 * Make a cell view of a puzzle, with the display character it already has
+	 */
+	private Cell cellAt(Sokoban puzzle, String[] rows, int row, int col){
+		if ((row < 0) || (row >= puzzle.getNumRows()) || (col < 0) || (col >= puzzle.getNumCols()))
+			return null;
+		return new Cell(rows[row].charAt(col), puzzle, row, col);
+	}
+
+	/**
+	 * The neighbouring cell in a given direction
+	 */
+	private Cell next(Sokoban puzzle, String[] rows, Cell cell, Direction dir){
+		switch(dir) {
+			case NORTH: return cellAt(puzzle, rows, cell.getRow()-1, cell.getCol());
+			case SOUTH: return cellAt(puzzle, rows, cell.getRow()+1, cell.getCol());
+			case EAST:  return cellAt(puzzle, rows, cell.getRow(), cell.getCol()+1);
+			default:    return cellAt(puzzle, rows, cell.getRow(), cell.getCol()-1);
+		}
+	}
+
+	/**
+	 * Tests that the dead squares are the ones no box can be pulled to from a target,
+	 * including the wall sides with no target as well as the corners
+	 */
+	@Test
+	public void testDeadSquares(){
+		Sokoban puzzle = new Sokoban(String.join(
+			"\n",
+			"#######",
+			"#     #",
+			"# $ . #",
+			"#@    #",
+			"#######"
+		));
+		String[] dead = {
+			"#######",
+			"#xxxxx#",
+			"#x   x#",
+			"#xxxxx#",
+			"#######"
+		};
+		String[] rows = puzzle.toString().split("\n");
+		for (int row=0; row<puzzle.getNumRows(); row++) {
+			for (int col=0; col<puzzle.getNumCols(); col++) {
+				Cell cell = cellAt(puzzle, rows, row, col);
+				assertEquals("cell " + row + "," + col, dead[row].charAt(col) == ' ', cell.isWallSafe());
+			}
+		}
+	}
+
+	/**
+	 * The recursive box mobility check the iterative one replaced, written with the
+	 * public cell methods (a wall is never a free cell)
+	 */
+	private boolean wasMoveable(Sokoban puzzle, String[] rows, Cell cell, Cell origin, Direction dir, Set<Cell> visited){
+		Cell left  = next(puzzle, rows, cell, dir.left());
+		Cell right = next(puzzle, rows, cell, dir.right());
+		if (!visited.add(cell))
+			return false;
+		boolean visitedLeft  = visited.contains(left);
+		boolean visitedRight = visited.contains(right);
+		if ((left != null) && !visitedLeft && ((isFree(left, origin) && left.isWallSafe()) ||
+				(left.hasBox() && wasMoveable(puzzle, rows, left, origin, dir.left(), visited))) &&
+				(right != null) && !visitedRight && (isFree(right, origin) ||
+				(right.hasBox() && wasMoveable(puzzle, rows, right, origin, dir.right(), visited))))
+			return true;
+		else if ((right != null) && !visitedRight && ((isFree(right, origin) && right.isWallSafe()) ||
+				(right.hasBox() && wasMoveable(puzzle, rows, right, origin, dir.right(), visited))) &&
+				(left != null) && !visitedLeft && (isFree(left, origin) ||
+				(left.hasBox() && wasMoveable(puzzle, rows, left, origin, dir.left(), visited))))
+			return true;
+		return false;
+	}
+
+	/**
+	 * Could a box move into a cell, taking the origin as empty?
+	 */
+	private boolean isFree(Cell cell, Cell origin){
+		return !cell.hasWall() && (cell.isEmpty() || cell.hasActor() || cell.equals(origin));
+	}
+
+	/**
+	 * Tests that the iterative box mobility check agrees with the recursive one, for the
+	 * checks made before a push, over random play on some bundled screens
+	 */
+	@Test
+	public void testMoveableAgreesWithRecursive(){
+		Random random = new Random(5);
+		int checks = 0;
+		for (int screen : new int[] {1, 10, 50}) {
+			Sokoban puzzle = new Sokoban(new File(rootDir + "/screens/screen." + screen));
+			for (int step=0; step<300; step++) {
+				String[] rows = puzzle.toString().split("\n");
+				for (int row=0; row<puzzle.getNumRows(); row++) {
+					for (int col=0; col<puzzle.getNumCols(); col++) {
+						Cell origin = cellAt(puzzle, rows, row, col);
+						if (!origin.hasBox())
+							continue;
+						for (Direction dir : Direction.values()) {
+							Cell to = next(puzzle, rows, origin, dir);
+							if (to.hasWall())
+								continue;
+							for (Direction side : new Direction[] {dir, dir.left(), dir.right()}) {
+								assertEquals(wasMoveable(puzzle, rows, to, origin, side, new HashSet<Cell>()),
+									to.isMoveableBoxLocation(origin, side));
+								Cell ahead = next(puzzle, rows, to, side);
+								if (!ahead.hasBox())
+									continue;
+								HashSet<Cell> taboo = new HashSet<Cell>();
+								taboo.add(to);
+								assertEquals(wasMoveable(puzzle, rows, ahead, origin, side, taboo),
+									ahead.isMoveableBoxLocation(origin, to, side));
+								checks++;
+							}
+						}
+					}
+				}
+				ArrayList<Direction> legal = new ArrayList<Direction>();
+				for (Direction dir : Direction.values())
+					if (puzzle.canMove(dir))
+						legal.add(dir);
+				if (legal.isEmpty())
+					break;
+				puzzle.move(legal.get(random.nextInt(legal.size())));
+			}
+		}
+		assertTrue(checks > 0);
+	}
+
+	/**
+	 * Tests that the legal move bitmask matches canMove in every direction, over random
+	 * play and for an actor with no move at all
+	 */
+	@Test
+	public void testLegalMoves(){
+		RandomPlayer player = new RandomPlayer();
+		for (int screen : new int[] {1, 10, 50}) {
+			Sokoban puzzle = new Sokoban(new File(rootDir + "/screens/screen." + screen));
+			for (int step=0; step<300; step++) {
+				int legal = puzzle.legalMoves();
+				for (Direction dir : Direction.values())
+					assertEquals(puzzle.canMove(dir), (legal & dir.mask()) != 0);
+				assertEquals(puzzle.canMove(), Direction.toVector(legal));
+				assertEquals(legal, Direction.toMask(puzzle.canMove()));
+				if (legal == 0)
+					break;
+				Direction dir = player.move(legal);
+				assertTrue((legal & dir.mask()) != 0);
+				puzzle.move(dir);
+			}
+		}
+		Sokoban shut = new Sokoban(String.join(
+			"\n",
+			"######",
+			"#@$#.#",
+			"######"
+		));
+		assertEquals(0, shut.legalMoves());
+		assertTrue(shut.canMove().isEmpty());
+	}
+
+	/**
+	 * Tests that every playout starts again from the starting position, and that the
+	 * solve rate and step histogram add up
+	 */
+	@Test
+	public void testPlayoutEngine(){
+		Sokoban puzzle = new Sokoban(Screens.ONE_PUSH);
+		PlayoutEngine engine = new PlayoutEngine(puzzle);
+		engine.setMaxSteps(10);
+		engine.setNumBuckets(5);
+		engine.setThreads(3);
+		PlayoutStats stats = engine.run(100);
+		assertEquals(100, stats.getPlayouts());
+		assertEquals(100, stats.getSolved());
+		assertEquals(1.0, stats.getSolveRate(), 0.0);
+		assertEquals(100, stats.getTotalSteps());
+		assertEquals(100, stats.getHistogram()[0]);
+		assertEquals(100, stats.getSolvedHistogram()[0]);
+		assertFalse(puzzle.onTarget());
+
+		PlayoutEngine random = new PlayoutEngine(new Sokoban(new File(rootDir + "/screens/screen.1")));
+		random.setMaxSteps(200);
+		random.setSeed(12);
+		random.setThreads(2);
+		PlayoutStats first = random.run(50);
+		PlayoutStats again = random.run(50);
+		assertEquals(50, first.getSolved() + first.getStuck() + first.getCutOff());
+		assertEquals(50, Arrays.stream(first.getHistogram()).sum());
+		assertEquals(first.getTotalSteps(), again.getTotalSteps());
+		assertArrayEquals(first.getHistogram(), again.getHistogram());
+	}
+}
@@ -0,0 +1,377 @@
+package test;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import sokoban.Direction;
+import sokoban.Level;
+import sokoban.LevelPack;
+import sokoban.PatternDatabase;
+import sokoban.Snapshot;
+import sokoban.Sokoban;
+import sokoban.solver.Corrals;
+import sokoban.solver.MatchingLowerBound;
+import sokoban.solver.SimpleLowerBound;
+import sokoban.solver.Solution;
+import sokoban.solver.Solver;
+import sokoban.solver.SolverPlayer;
+
+public class TestSolver {
+	private Solver solver;
+	private String rootDir;
+
+	@Before
+	public void setUp(){
+		solver   =   new Solver();
+		rootDir  =   System.getProperty("user.dir");
+		solver.setTimeLimit(30000);
+	}
+
+	/**
+	 * Play a solution back through the puzzle
+	 */
+	private void playBack(Sokoban puzzle, Solution solution){
+		for (Direction dir: solution.getMoves())
+			puzzle.move(dir);
+	}
+
+	/**
+	 * Tests that a small puzzle is solved with the fewest pushes
+	 */
+	@Test
+	public void testSolveSmallPuzzle(){
+		Sokoban puzzle = new Sokoban(Screens.SMALL);
+		String initialState = puzzle.toString();
+		Solution solution = solver.solve(puzzle);
+		assertTrue(solution.isSolved());
+		assertEquals(3, solution.getNumPushes());
+		assertEquals(initialState, puzzle.toString());
+		playBack(puzzle, solution);
+		assertTrue(puzzle.onTarget());
+	}
+
+	/**
+	 * Tests that the state hash ignores walking, follows pushes and survives undo and cloning
+	 */
+	@Test
+	public void testStateHash(){
+		Sokoban puzzle = new Sokoban(Screens.SMALL);
+		long start = puzzle.stateHash();
+		puzzle.move(Direction.WEST);
+		assertEquals(start, puzzle.stateHash());
+		puzzle.move(Direction.EAST);
+		puzzle.move(Direction.EAST);
+		assertEquals(start, puzzle.stateHash());
+		puzzle.move(Direction.EAST);
+		assertTrue(start != puzzle.stateHash());
+		puzzle.undo();
+		assertEquals(start, puzzle.stateHash());
+		puzzle.setWideHash(true);
+		Sokoban copy = (Sokoban) puzzle.clone();
+		assertEquals(puzzle.stateHash(), copy.stateHash());
+		assertEquals(puzzle.stateHashHigh(), copy.stateHashHigh());
+		assertEquals(start, new Sokoban(puzzle.toString()).stateHash());
+	}
+
+	/**
+	 * Tests that an impossible puzzle is reported as unsolvable
+	 */
+	@Test
+	public void testUnsolvablePuzzle(){
+		Sokoban puzzle = new Sokoban(Screens.UNSOLVABLE);
+		Solution solution = solver.solve(puzzle);
+		assertEquals(Solution.Status.UNSOLVABLE, solution.getStatus());
+		assertNull(solution.getMoves());
+	}
+
+	/**
+	 * Tests that the computer player stops asking the solver once it has given up, but
+	 * asks again when someone else changes the position
+	 */
+	@Test
+	public void testSolverPlayerGivesUp(){
+		Sokoban puzzle = new Sokoban(Screens.UNSOLVABLE);
+		SolverPlayer player = new SolverPlayer(puzzle, solver);
+		assertTrue(player.needsPlan());
+		puzzle.move(player.move(puzzle.legalMoves()));
+		assertEquals(Solution.Status.UNSOLVABLE, player.getLastSolution().getStatus());
+		assertFalse(player.needsPlan());
+		puzzle.undo();
+		assertTrue(player.needsPlan());
+	}
+
+	/**
+	 * Tests that a bundled screen is solved by the weighted search and plays back
+	 */
+	@Test
+	public void testSolveScreen(){
+		Sokoban puzzle = new Sokoban(new File(rootDir + "/screens/screen.1"));
+		solver.setWeight(3);
+		Solution solution = solver.solve(puzzle);
+		assertTrue(solution.isSolved());
+		playBack(puzzle, solution);
+		assertTrue(puzzle.onTarget());
+	}
+
+	/**
+	 * Tests that plain A* still finds the fewest pushes with corral pruning
+	 */
+	@Test
+	public void testSolveScreenOptimally(){
+		Sokoban puzzle = new Sokoban(new File(rootDir + "/screens/screen.38"));
+		Solution solution = solver.solve(puzzle);
+		assertTrue(solution.isSolved());
+		assertEquals(81, solution.getNumPushes());
+		playBack(puzzle, solution);
+		assertTrue(puzzle.onTarget());
+	}
+
+	/**
+	 * Tests that pushes along a tunnel and into a goal room are taken as macro moves:
+	 * a push-by-push search would expand at least one node for every push
+	 */
+	@Test
+	public void testMacroMoves(){
+		Sokoban puzzle = new Sokoban(String.join(
+			"\n",
+			"############",
+			"#   ####   #",
+			"# $ $    ..#",
+			"#@  ####   #",
+			"############"
+		));
+		Solution solution = solver.solve(puzzle);
+		assertTrue(solution.isSolved());
+		assertEquals(13, solution.getNumPushes());
+		assertTrue(solution.getNodesExpanded() < solution.getNumPushes());
+		playBack(puzzle, solution);
+		assertTrue(puzzle.onTarget());
+	}
+
+	/**
+	 * Tests that the matching bound updated push by push agrees with one worked out afresh,
+	 * and is never weaker than the nearest-target bound
+	 */
+	@Test
+	public void testMatchingLowerBound(){
+		Sokoban puzzle = new Sokoban(new File(rootDir + "/screens/screen.50"));
+		Level level = puzzle.getLevel();
+		MatchingLowerBound incremental = new MatchingLowerBound();
+		SimpleLowerBound simple = new SimpleLowerBound();
+		incremental.init(level);
+		simple.init(level);
+		Random random = new Random(50);
+		int[] boxes = puzzle.getBoxIndices();
+		int pushes = 0;
+		while (pushes < 200) {
+			int i = random.nextInt(boxes.length);
+			int dest = level.step(boxes[i], Direction.values()[random.nextInt(4)]);
+			if ((dest < 0) || level.isWall(dest) || level.isDead(dest) || (Arrays.binarySearch(boxes, dest) >= 0))
+				continue;
+			int[] moved = boxes.clone();
+			moved[i] = dest;
+			Arrays.sort(moved);
+			MatchingLowerBound fresh = new MatchingLowerBound();
+			fresh.init(level);
+			int h = incremental.estimate(boxes, i, dest, moved);
+			assertEquals(fresh.estimate(moved), h);
+			if (h == Integer.MAX_VALUE)
+				continue;
+			assertTrue(h >= simple.estimate(moved));
+			assertEquals(h, incremental.estimate(moved));
+			boxes = moved;
+			pushes++;
+		}
+	}
+
+	/**
+	 * Tests that the pattern database refuses a push that closes a 2x2 square of boxes,
+	 * and that it is saved next to the screen and found again when the screen is read
+	 */
+	@Test
+	public void testPatternDatabase() throws IOException {
+		Sokoban puzzle = new Sokoban(Screens.SQUARES);
+		int box = puzzle.getLevel().index(3, 4);
+		assertEquals(0, puzzle.patternCost(box, Direction.WEST));
+		PatternDatabase patterns = PatternDatabase.build(puzzle.getLevel());
+		assertTrue(patterns.numDeadlocks() > 0);
+		puzzle.setPatternDatabase(patterns);
+		assertEquals(Integer.MAX_VALUE, puzzle.patternCost(box, Direction.WEST));
+		assertFalse(puzzle.canMove(Direction.WEST));
+		assertTrue(puzzle.canMove(Direction.SOUTH));
+
+		File file = File.createTempFile("screen.", "");
+		File saved = PatternDatabase.fileFor(file);
+		try {
+			try (Writer out = new FileWriter(file)) {
+				out.write(Screens.SQUARES);
+			}
+			patterns.save(saved);
+			Sokoban loaded = new Sokoban(file);
+			assertNotNull(loaded.getPatternDatabase());
+			assertEquals(patterns.size(), loaded.getPatternDatabase().size());
+			assertFalse(loaded.canMove(Direction.WEST));
+		} finally {
+			file.delete();
+			saved.delete();
+		}
+	}
+
+	/**
+	 * Tests that a push leaving boxes frozen against a wall is refused unless they are all on targets
+	 */
+	@Test
+	public void testFreezeDeadlock(){
+		Sokoban frozen = new Sokoban(String.join(
+			"\n",
+			"#######",
+			"#  @  #",
+			"#  $  #",
+			"### $ #",
+			"###$  #",
+			"# ... #",
+			"#######"
+		));
+		assertFalse(frozen.canMove(Direction.SOUTH));
+		assertTrue(frozen.canMove(Direction.EAST));
+
+		Sokoban onTargets = new Sokoban(String.join(
+			"\n",
+			"#######",
+			"#  @  #",
+			"#  $  #",
+			"###.$ #",
+			"###*  #",
+			"#  .  #",
+			"#######"
+		));
+		assertTrue(onTargets.canMove(Direction.SOUTH));
+	}
+
+	/**
+	 * Tests that a corral shut off by a single box is a deadlock when its target is where
+	 * the box can never be pushed, although no box is on a dead square
+	 */
+	@Test
+	public void testCorralDeadlock(){
+		Sokoban sealed = new Sokoban(String.join(
+			"\n",
+			"#######",
+			"##   ##",
+			"# @$ .#",
+			"##$## #",
+			"#.  ###",
+			"#######"
+		));
+		Corrals corrals = new Corrals(sealed.getLevel());
+		assertEquals(Corrals.DEADLOCK, corrals.analyse(sealed));
+		assertTrue(sealed.canMove(Direction.SOUTH));
+		assertEquals(Solution.Status.UNSOLVABLE, solver.solve(sealed).getStatus());
+	}
+
+	/**
+	 * Tests that when a corral can still be solved, only pushes into it are tried
+	 */
+	@Test
+	public void testCorralRestrict(){
+		Sokoban open = new Sokoban(String.join(
+			"\n",
+			"#######",
+			"##   ##",
+			"# @$ .#",
+			"##$## #",
+			"# . ###",
+			"#######"
+		));
+		Level level = open.getLevel();
+		Corrals corrals = new Corrals(level);
+		assertEquals(Corrals.RESTRICT, corrals.analyse(open));
+		assertTrue(corrals.isInCorral(level.index(4, 2)));
+		assertFalse(corrals.isInCorral(level.index(2, 4)));
+		assertTrue(open.canMove(Direction.EAST));
+		Solution solution = solver.solve(open);
+		assertTrue(solution.isSolved());
+		assertEquals(3, solution.getNumPushes());
+	}
+
+	/**
+	 * Tests that a corral's deadlock result is cached by its fence and the actor's region,
+	 * so walking about or moving boxes outside the fence does not search it again
+	 */
+	@Test
+	public void testCorralCache(){
+		Sokoban sealed = new Sokoban(String.join(
+			"\n",
+			"#######",
+			"##   ##",
+			"# @$ .#",
+			"##$## #",
+			"#.  ###",
+			"#######"
+		));
+		Level level = sealed.getLevel();
+		Corrals corrals = new Corrals(level);
+		assertEquals(Corrals.DEADLOCK, corrals.analyse(sealed));
+		assertEquals(1, corrals.cacheSize());
+		sealed.move(Direction.WEST);
+		assertEquals(Corrals.DEADLOCK, corrals.analyse(sealed));
+		assertEquals(1, corrals.cacheSize());
+		sealed.setPosition(new int[] {level.index(1, 3), level.index(3, 2)}, level.index(2, 4));
+		assertEquals(Corrals.DEADLOCK, corrals.analyse(sealed));
+		assertEquals(1, corrals.cacheSize());
+		sealed.setPosition(new int[] {level.index(2, 4), level.index(3, 2)}, level.index(2, 3));
+		assertEquals(Corrals.DEADLOCK, corrals.analyse(sealed));
+		assertEquals(2, corrals.cacheSize());
+	}
+
+	/**
+	 * Tests that the loaders used for play (Snapshot.open and LevelPack.load) attach
+	 * the pattern database kept next to the screen or pack
+	 */
+	@Test
+	public void testPatternDatabaseOnOpen() throws IOException {
+		File file = File.createTempFile("screen.", "");
+		File pack = File.createTempFile("pack.", ".sok");
+		File[] made = {file, pack, PatternDatabase.fileFor(file), PatternDatabase.fileFor(pack, 1), new File(pack.getPath() + ".idx")};
+		try {
+			try (Writer out = new FileWriter(file)) {
+				out.write(Screens.SQUARES);
+			}
+			try (Writer out = new FileWriter(pack)) {
+				out.write("; Squares\n" + Screens.SQUARES + "\n");
+			}
+			Sokoban puzzle = Snapshot.open(file);
+			assertNull(puzzle.getPatternDatabase());
+			PatternDatabase patterns = PatternDatabase.build(puzzle.getLevel());
+			patterns.save(PatternDatabase.fileFor(file));
+			patterns.save(PatternDatabase.fileFor(pack, 1));
+
+			Sokoban opened = Snapshot.open(file);
+			assertNotNull(opened.getPatternDatabase());
+			assertEquals(patterns.size(), opened.getPatternDatabase().size());
+			assertFalse(opened.canMove(Direction.WEST));
+
+			Sokoban packed = new LevelPack(pack).load(1);
+			assertNotNull(packed.getPatternDatabase());
+			assertFalse(packed.canMove(Direction.WEST));
+		} finally {
+			for (File f : made)
+				f.delete();
+		}
+	}
+
+	/**
+	 * Tests that the time limit is respected
+	 */
+	@Test
+	public void testTimeLimit(){
+		Sokoban puzzle = new Sokoban(new File(rootDir + "/screens/screen.50"));
+		solver.setTimeLimit(200);
+		Solution solution = solver.solve(puzzle);
+		assertEquals(Solution.Status.TIME_LIMIT, solution.getStatus());
+		assertTrue(solution.getElapsedMillis() < 2000);
+	}
+}
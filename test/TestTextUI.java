@@ -10,7 +10,12 @@ import static org.mockito.Mockito.*;
 
 
 import sokoban.TUI;
+import sokoban.Direction;
 import sokoban.Helpers;
+import sokoban.LevelFormatException;
+import sokoban.MoveLog;
+import sokoban.Sokoban;
+import sokoban.SnapshotCatalog;
 
 public class TestTextUI {
 	private TUI testInstance;
@@ -51,6 +56,28 @@ public class TestTextUI {
 		assertFalse(initialState.equals(afterMove));
 	}
 
+	/**
+	 * Tests undoing several moves in turn and redoing them
+	 */
+	@Test
+	public void testUndoRedoMoves(){
+		String initialState = testInstance.getPuzzleState();
+		testInstance.execute("P");
+		testInstance.execute("P");
+		testInstance.execute("P");
+		String afterMove = testInstance.getPuzzleState();
+		testInstance.execute("U");
+		testInstance.execute("U");
+		testInstance.execute("U");
+		String afterUndo = testInstance.getPuzzleState();
+		testInstance.execute("D");
+		testInstance.execute("D");
+		testInstance.execute("D");
+		String afterRedo = testInstance.getPuzzleState();
+		assertTrue(initialState.equals(afterUndo));
+		assertTrue(afterMove.equals(afterRedo));
+	}
+
 	/**
 	 * Tests the clear method of the game
 	 */
@@ -87,6 +114,46 @@ public class TestTextUI {
 		assertFalse(savedState.equals(initialState));
 	}
 
+	/**
+	 * Tests that a batch script gives the same result as the same commands one at a time
+	 */
+	@Test
+	public void testRunScript(){
+		String moves = "NNEESSWWNESWWWSSEENN";
+		TUI stepped = new TUI(testScreenPath);
+		for (char c : moves.toCharArray())
+			stepped.execute(String.valueOf(c));
+		TUI scripted = new TUI(testScreenPath);
+		String summary = scripted.runScript("; same moves in LURD\n2u 2r 2d 2l urdl 2l2d2r2u\n");
+		assertTrue(scripted.getPuzzleState().equals(stepped.getPuzzleState()));
+		assertTrue(summary.startsWith("moves="));
+		try {
+			scripted.runScript("ux");
+			fail("invalid move accepted");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("position 2"));
+		}
+	}
+
+	/**
+	 * Tests that a saved game keeps its start and moves, so restart and undo work after loading
+	 */
+	@Test
+	public void testRestartAfterLoad(){
+		String initialState = testInstance.getPuzzleState();
+		testInstance.execute("P");
+		String afterOne = testInstance.getPuzzleState();
+		testInstance.execute("P");
+		String savedPath = testInstance.execute("V");
+
+		TUI savedGame = new TUI(savedPath);
+		new File(savedPath).delete();
+		savedGame.execute("U");
+		assertTrue(savedGame.getPuzzleState().equals(afterOne));
+		savedGame.execute("R");
+		assertTrue(savedGame.getPuzzleState().equals(initialState));
+	}
+
 
 	/**
 	 * Tests the load saved game method of the game
@@ -111,6 +178,116 @@ public class TestTextUI {
 		assertTrue(initialState.equals(fileContent));
 	}
 
+	/**
+	 * Tests that a malformed screen is reported with its line and column
+	 */
+	@Test
+	public void testMalformedScreen(){
+		try {
+			new Sokoban("#####\n\n#@$.#\n#?###\n");
+			fail("malformed screen was accepted");
+		} catch (LevelFormatException e) {
+			assertEquals(4, e.getLine());
+			assertEquals(2, e.getColumn());
+		}
+	}
+
+	/**
+	 * Tests that the catalog of saved games is empty for a missing directory, lists the
+	 * directory once it appears, newest first and a page at a time, and follows files
+	 * being added and deleted
+	 */
+	@Test
+	public void testSnapshotCatalog() throws IOException, InterruptedException {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "catalog." + System.nanoTime());
+		long now = System.currentTimeMillis();
+		try (SnapshotCatalog catalog = new SnapshotCatalog(dir)) {
+			assertEquals(0, catalog.size());
+			assertEquals(0, catalog.numPages(2));
+			assertTrue(dir.mkdir());
+			for (int i=0; i<5; i++) {
+				File save = new File(dir, "save." + i);
+				try (Writer out = new FileWriter(save)) {
+					out.write(Screens.SMALL);
+				}
+				save.setLastModified(now - (5 - i) * 60000L);
+			}
+			new File(dir, "save.5.tmp").createNewFile();
+			assertEquals(5, catalog.size());
+			assertEquals("save.4", catalog.get(0).getName());
+			assertEquals("save.0", catalog.get(4).getName());
+			assertEquals(3, catalog.numPages(2));
+			assertEquals("save.2", catalog.page(1, 2).get(0).getName());
+			assertEquals(1, catalog.page(2, 2).size());
+			assertTrue(catalog.page(3, 2).isEmpty());
+
+			File newest = new File(dir, "save.9");
+			try (Writer out = new FileWriter(newest)) {
+				out.write(Screens.SMALL);
+			}
+			newest.setLastModified(now);
+			new File(dir, "save.0").delete();
+			long deadline = System.currentTimeMillis() + 10000;
+			while ((catalog.size() != 5) || !catalog.get(0).getName().equals("save.9") || !catalog.get(4).getName().equals("save.1")) {
+				assertTrue("catalog not updated", System.currentTimeMillis() < deadline);
+				Thread.sleep(50);
+			}
+			assertEquals("save.4", catalog.get(1).getName());
+		} finally {
+			for (File f : dir.listFiles())
+				f.delete();
+			dir.delete();
+		}
+	}
 
+	/**
+	 * Tests that in ANSI mode a move redraws only the cells it changed, after one full frame
+	 */
+	@Test
+	public void testAnsiChanges() throws IOException {
+		File screen = File.createTempFile("screen.", "");
+		InputStream sysInBackup = System.in;
+		PrintStream sysOutBackup = System.out;
+		ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+		try {
+			try (Writer out = new FileWriter(screen)) {
+				out.write(Screens.ONE_PUSH);
+			}
+			System.setIn(new ByteArrayInputStream("E\n".getBytes()));
+			TUI ansiGame = new TUI(screen.getPath());
+			System.setOut(new PrintStream(terminal, true));
+			ansiGame.setAnsi(true);
+			ansiGame.menu();
+		} finally {
+			System.setIn(sysInBackup);
+			System.setOut(sysOutBackup);
+			screen.delete();
+		}
+		String shown = terminal.toString();
+		assertTrue(shown.contains("\0337\033[2;2H @*\0338"));
+		assertEquals(shown.indexOf("#@$.#"), shown.lastIndexOf("#@$.#"));
+		assertFalse(shown.contains("# @*#"));
+	}
 
+	/**
+	 * Tests that recovering an autosave log stops at a zero-filled tail, as left by a
+	 * group of moves that did not reach the disk
+	 */
+	@Test
+	public void testMoveLogZeroTail() throws IOException {
+		Sokoban puzzle = new Sokoban(Screens.SMALL);
+		File file = File.createTempFile("autosave.", ".log");
+		try {
+			MoveLog log = MoveLog.start(puzzle, file);
+			log.setCommitDelay(0);
+			puzzle.move(Direction.WEST);
+			log.close();
+			try (OutputStream out = new FileOutputStream(file, true)) {
+				out.write(new byte[16]);
+			}
+			assertEquals(puzzle.toString(), MoveLog.recover(file).toString());
+		} finally {
+			file.delete();
+		}
+	}
 }